@@ -0,0 +1,67 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.BasicResponse;
+import kong.unirest.Config;
+import kong.unirest.HttpResponse;
+import kong.unirest.RawResponse;
+
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+abstract class BaseJdkClient {
+    protected final Config config;
+
+    BaseJdkClient(Config config) {
+        this.config = config;
+    }
+
+    protected <T> HttpResponse<T> transformBody(Function<RawResponse, HttpResponse<T>> transformer, RawResponse rr) {
+        try {
+            return transformer.apply(rr);
+        } catch (RuntimeException e) {
+            String originalBody = recoverBody(rr);
+            return new BasicResponse(rr, originalBody, e);
+        }
+    }
+
+    private String recoverBody(RawResponse rr) {
+        try {
+            return rr.getContentAsString();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    static Exception unwrap(Throwable ex) {
+        Throwable cause = ex instanceof CompletionException && ex.getCause() != null ? ex.getCause() : ex;
+        if (cause instanceof Exception) {
+            return (Exception) cause;
+        }
+        return new CompletionException(cause);
+    }
+}
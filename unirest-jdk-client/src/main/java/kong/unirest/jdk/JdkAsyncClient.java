@@ -0,0 +1,92 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.*;
+
+import java.io.ByteArrayInputStream;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * An AsyncClient built on the java.net.http HttpClient of the JDK. Bodies are read in full
+ * before the response is transformed so that no thread is held waiting on the network.
+ * see JdkClient
+ */
+public class JdkAsyncClient extends BaseJdkClient implements AsyncClient {
+    private final java.net.http.HttpClient client;
+
+    public JdkAsyncClient(Config config) {
+        this(new JdkClientFactory(config).create(), config);
+    }
+
+    public JdkAsyncClient(java.net.http.HttpClient client, Config config) {
+        super(config);
+        this.client = client;
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                          Function<RawResponse, HttpResponse<T>> transformer,
+                                                          CompletableFuture<HttpResponse<T>> callback) {
+        Objects.requireNonNull(callback);
+        config.getUniInterceptor().onRequest(request, config);
+        java.net.http.HttpRequest requestObj = new JdkRequestPrep(request, config).prepare();
+        HttpRequestSummary reqSum = request.toSummary();
+        MetricContext metric = config.getMetric().begin(reqSum);
+        client.sendAsync(requestObj, BodyHandlers.ofByteArray()).whenComplete((r, ex) -> {
+            if (ex == null) {
+                JdkResponse t = new JdkResponse(r, new ByteArrayInputStream(r.body()), config);
+                metric.complete(t.toSummary(), null);
+                HttpResponse<T> response = transformBody(transformer, t);
+                config.getUniInterceptor().onResponse(response, reqSum, config);
+                callback.complete(response);
+            } else {
+                Exception e = unwrap(ex);
+                metric.complete(null, e);
+                try {
+                    HttpResponse failed = config.getUniInterceptor().onFail(e, reqSum, config);
+                    callback.complete(failed);
+                } catch (Exception ee) {
+                    callback.completeExceptionally(e);
+                }
+            }
+        });
+        return callback;
+    }
+
+    @Override
+    public java.net.http.HttpClient getClient() {
+        return client;
+    }
+
+    @Override
+    public void registerShutdownHook() {
+        // nothing to shut down
+    }
+}
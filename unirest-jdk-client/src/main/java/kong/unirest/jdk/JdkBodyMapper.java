@@ -0,0 +1,93 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.Body;
+import kong.unirest.BodyPart;
+import kong.unirest.HttpRequest;
+
+import java.net.URLEncoder;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.Charset;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Maps a unirest body onto a BodyPublisher and works out its content type
+ */
+class JdkBodyMapper {
+    private final HttpRequest request;
+    private String contentType;
+
+    JdkBodyMapper(HttpRequest request) {
+        this.request = request;
+    }
+
+    BodyPublisher apply() {
+        Optional<Body> body = request.getBody();
+        return body.map(this::applyBody).orElseGet(BodyPublishers::noBody);
+    }
+
+    /**
+     * @return the content type of the mapped body, used when the request does not set one
+     */
+    String getContentType() {
+        return contentType;
+    }
+
+    private BodyPublisher applyBody(Body b) {
+        if (b.isEntityBody()) {
+            return mapToUniBody(b);
+        } else if (b.isMultiPart()) {
+            MultipartPublisher multipart = new MultipartPublisher(b);
+            contentType = multipart.getContentType();
+            return multipart.publisher();
+        } else {
+            contentType = "application/x-www-form-urlencoded; charset=" + b.getCharset().name();
+            return BodyPublishers.ofString(toForm(b), b.getCharset());
+        }
+    }
+
+    private BodyPublisher mapToUniBody(Body b) {
+        BodyPart bodyPart = b.uniPart();
+        if (bodyPart == null) {
+            return BodyPublishers.ofString("");
+        } else if (String.class.isAssignableFrom(bodyPart.getPartType())) {
+            contentType = "text/plain; charset=" + b.getCharset().name();
+            return BodyPublishers.ofString((String) bodyPart.getValue(), b.getCharset());
+        } else {
+            return BodyPublishers.ofByteArray((byte[]) bodyPart.getValue());
+        }
+    }
+
+    private static String toForm(Body body) {
+        Charset charset = body.getCharset();
+        return body.multiParts().stream()
+                .map(p -> URLEncoder.encode(p.getName(), charset) + "=" + URLEncoder.encode(String.valueOf(p.getValue()), charset))
+                .collect(Collectors.joining("&"));
+    }
+}
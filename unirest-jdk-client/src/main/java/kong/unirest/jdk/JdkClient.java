@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.*;
+
+import java.io.InputStream;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * A Client built on the java.net.http HttpClient of the JDK. It speaks HTTP/2, multiplexing
+ * concurrent requests to the same host over a single connection, and falls back to HTTP/1.1
+ * for servers which do not support it.
+ *
+ * <pre>
+ *     Unirest.config().httpClient(JdkClient::new).asyncClient(JdkAsyncClient::new);
+ * </pre>
+ */
+public class JdkClient extends BaseJdkClient implements Client {
+    private final java.net.http.HttpClient client;
+
+    public JdkClient(Config config) {
+        this(new JdkClientFactory(config).create(), config);
+    }
+
+    public JdkClient(java.net.http.HttpClient client, Config config) {
+        super(config);
+        this.client = client;
+    }
+
+    @Override
+    public <T> HttpResponse<T> request(HttpRequest request,
+                                       Function<RawResponse, HttpResponse<T>> transformer) {
+
+        HttpRequestSummary reqSum = request.toSummary();
+        config.getUniInterceptor().onRequest(request, config);
+        java.net.http.HttpRequest requestObj = new JdkRequestPrep(request, config).prepare();
+        MetricContext metric = config.getMetric().begin(reqSum);
+        try {
+            java.net.http.HttpResponse<InputStream> execute = client.send(requestObj, BodyHandlers.ofInputStream());
+            JdkResponse t = new JdkResponse(execute, execute.body(), config);
+            metric.complete(t.toSummary(), null);
+            HttpResponse<T> httpResponse = transformBody(transformer, t);
+            config.getUniInterceptor().onResponse(httpResponse, reqSum, config);
+            return httpResponse;
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            metric.complete(null, e);
+            return (HttpResponse<T>) config.getUniInterceptor().onFail(e, reqSum, config);
+        }
+    }
+
+    @Override
+    public java.net.http.HttpClient getClient() {
+        return client;
+    }
+
+    /**
+     * The JDK client holds no resources which need closing, its connections are released when it is collected.
+     */
+    @Override
+    public Stream<Exception> close() {
+        return Stream.empty();
+    }
+
+    @Override
+    public void registerShutdownHook() {
+        // nothing to shut down
+    }
+}
@@ -0,0 +1,177 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.Config;
+import kong.unirest.Proxy;
+import kong.unirest.UnirestConfigException;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.KeyManagerFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.X509ExtendedTrustManager;
+import java.net.Authenticator;
+import java.net.CookieManager;
+import java.net.InetSocketAddress;
+import java.net.PasswordAuthentication;
+import java.net.ProxySelector;
+import java.net.Socket;
+import java.net.http.HttpClient;
+import java.security.GeneralSecurityException;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Builds a java.net.http HttpClient from the settings of a Config
+ */
+class JdkClientFactory {
+    private final Config config;
+
+    JdkClientFactory(Config config) {
+        this.config = config;
+    }
+
+    HttpClient create() {
+        HttpClient.Builder builder = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(config.getFollowRedirects() ? HttpClient.Redirect.NORMAL : HttpClient.Redirect.NEVER);
+        if (config.getConnectionTimeout() > 0) {
+            builder.connectTimeout(Duration.ofMillis(config.getConnectionTimeout()));
+        }
+        if (config.getEnabledCookieManagement()) {
+            builder.cookieHandler(new CookieManager());
+        }
+        configureProxy(builder);
+        configureSecurity(builder);
+        return builder.build();
+    }
+
+    private void configureProxy(HttpClient.Builder builder) {
+        Proxy proxy = config.getProxy();
+        if (proxy != null) {
+            builder.proxy(ProxySelector.of(new InetSocketAddress(proxy.getHost(), proxy.getPort())));
+            if (proxy.isAuthenticated()) {
+                builder.authenticator(new ProxyAuthenticator(proxy));
+            }
+        } else if (config.useSystemProperties() && ProxySelector.getDefault() != null) {
+            builder.proxy(ProxySelector.getDefault());
+        }
+    }
+
+    private void configureSecurity(HttpClient.Builder builder) {
+        if (config.isVerifySsl() && config.getSslContext() != null) {
+            builder.sslContext(config.getSslContext());
+        } else if (!config.isVerifySsl() || config.getKeystore() != null) {
+            builder.sslContext(createContext());
+        }
+        if (config.getCiphers() != null || config.getProtocols() != null) {
+            builder.sslParameters(new SSLParameters(config.getCiphers(), config.getProtocols()));
+        }
+    }
+
+    /**
+     * Like the Apache clients, the keystore is used whether or not certificates are verified
+     */
+    private SSLContext createContext() {
+        try {
+            KeyManager[] keys = null;
+            if (config.getKeystore() != null) {
+                char[] pass = Optional.ofNullable(config.getKeyStorePassword())
+                        .map(String::toCharArray)
+                        .orElse(null);
+                KeyManagerFactory factory = KeyManagerFactory.getInstance(KeyManagerFactory.getDefaultAlgorithm());
+                factory.init(config.getKeystore(), pass);
+                keys = factory.getKeyManagers();
+            }
+            TrustManager[] trust = config.isVerifySsl() ? null : new TrustManager[]{new TrustEverything()};
+            SSLContext context = SSLContext.getInstance("TLS");
+            context.init(keys, trust, null);
+            return context;
+        } catch (GeneralSecurityException e) {
+            throw new UnirestConfigException(e);
+        }
+    }
+
+    private static class ProxyAuthenticator extends Authenticator {
+        private final Proxy proxy;
+
+        ProxyAuthenticator(Proxy proxy) {
+            this.proxy = proxy;
+        }
+
+        @Override
+        protected PasswordAuthentication getPasswordAuthentication() {
+            if (getRequestorType() != RequestorType.PROXY) {
+                return null;
+            }
+            return new PasswordAuthentication(proxy.getUsername(), proxy.getPassword().toCharArray());
+        }
+    }
+
+    /**
+     * An extended trust manager so that the JDK does not add its own host name check on top
+     */
+    private static class TrustEverything extends X509ExtendedTrustManager {
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            // trusted
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, Socket socket) {
+            // trusted
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            // trusted
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType, SSLEngine engine) {
+            // trusted
+        }
+
+        @Override
+        public void checkClientTrusted(X509Certificate[] chain, String authType) {
+            // trusted
+        }
+
+        @Override
+        public void checkServerTrusted(X509Certificate[] chain, String authType) {
+            // trusted
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return new X509Certificate[0];
+        }
+    }
+}
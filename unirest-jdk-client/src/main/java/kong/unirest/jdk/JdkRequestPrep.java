@@ -0,0 +1,89 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.Config;
+import kong.unirest.Header;
+import kong.unirest.HttpRequest;
+import kong.unirest.UnirestException;
+
+import java.net.URI;
+import java.time.Duration;
+
+/**
+ * Maps a unirest request onto a java.net.http request
+ */
+class JdkRequestPrep {
+    private static final String CONTENT_TYPE = "content-type";
+    private static final String ACCEPT_ENCODING_HEADER = "accept-encoding";
+    private static final String USER_AGENT_HEADER = "user-agent";
+    private static final String USER_AGENT = "unirest-java/3.1.00";
+    private final HttpRequest request;
+    private final Config config;
+
+    JdkRequestPrep(HttpRequest request, Config config) {
+        this.request = request;
+        this.config = config;
+    }
+
+    java.net.http.HttpRequest prepare() {
+        if (!request.getHeaders().containsKey(USER_AGENT_HEADER)) {
+            request.header(USER_AGENT_HEADER, USER_AGENT);
+        }
+        if (!request.getHeaders().containsKey(ACCEPT_ENCODING_HEADER) && config.isRequestCompressionOn()) {
+            request.header(ACCEPT_ENCODING_HEADER, "gzip");
+        }
+        try {
+            JdkBodyMapper body = new JdkBodyMapper(request);
+            java.net.http.HttpRequest.Builder builder = java.net.http.HttpRequest.newBuilder(URI.create(request.getUrl()))
+                    .method(request.getHttpMethod().name(), body.apply());
+            if (request.getSocketTimeout() > 0) {
+                builder.timeout(Duration.ofMillis(request.getSocketTimeout()));
+            }
+            for (Header header : request.getHeaders().all()) {
+                addHeader(builder, header.getName(), header.getValue());
+            }
+            if (!request.getHeaders().containsKey(CONTENT_TYPE) && body.getContentType() != null) {
+                builder.header(CONTENT_TYPE, body.getContentType());
+            }
+            return builder.build();
+        } catch (RuntimeException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * The JDK manages some headers itself (Host, Connection, Content-Length...) and refuses them.
+     * Which ones depends on the java version so they are skipped as they are refused.
+     */
+    private void addHeader(java.net.http.HttpRequest.Builder builder, String name, String value) {
+        try {
+            builder.header(name, value);
+        } catch (IllegalArgumentException e) {
+            // restricted header
+        }
+    }
+}
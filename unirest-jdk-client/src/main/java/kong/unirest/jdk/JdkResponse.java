@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.Config;
+import kong.unirest.Headers;
+import kong.unirest.RawResponseBase;
+import kong.unirest.UnirestException;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.http.HttpResponse;
+import java.util.zip.GZIPInputStream;
+
+class JdkResponse extends RawResponseBase {
+    private final HttpResponse<?> r;
+    private final InputStream body;
+
+    JdkResponse(HttpResponse<?> r, InputStream body, Config config) {
+        super(config);
+        this.r = r;
+        this.body = body;
+    }
+
+    @Override
+    public int getStatus() {
+        return r.statusCode();
+    }
+
+    /**
+     * The JDK client does not expose the reason phrase, and HTTP/2 does not have one
+     */
+    @Override
+    public String getStatusText() {
+        return "";
+    }
+
+    @Override
+    public Headers getHeaders() {
+        Headers h = new Headers();
+        r.headers().map().forEach((name, values) -> values.forEach(v -> h.add(name, v)));
+        return h;
+    }
+
+    @Override
+    public InputStream getContent() {
+        if (!hasContent()) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        if (!"gzip".equalsIgnoreCase(getEncoding().trim())) {
+            return body;
+        }
+        try {
+            return new GZIPInputStream(body);
+        } catch (EOFException e) {
+            return new ByteArrayInputStream(new byte[0]);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    @Override
+    public byte[] getContentAsBytes() {
+        if (!hasContent()) {
+            return new byte[0];
+        }
+        try (InputStream is = getContent()) {
+            return is.readAllBytes();
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    @Override
+    public String getContentAsString() {
+        return getContentAsString(null);
+    }
+
+    @Override
+    public String getContentAsString(String charset) {
+        if (!hasContent()) {
+            return "";
+        }
+        try {
+            String charSet = charset == null || charset.trim().isEmpty() ? getCharSet() : charset;
+            return new String(getContentAsBytes(), charSet);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    @Override
+    public InputStreamReader getContentReader() {
+        return new InputStreamReader(getContent());
+    }
+
+    @Override
+    public boolean hasContent() {
+        int status = getStatus();
+        return !"HEAD".equalsIgnoreCase(r.request().method())
+                && status >= 200
+                && status != 204
+                && status != 304;
+    }
+
+    @Override
+    public String getContentType() {
+        return r.headers().firstValue("Content-Type").orElse("");
+    }
+
+    @Override
+    public String getEncoding() {
+        return r.headers().firstValue("Content-Encoding").orElse("");
+    }
+}
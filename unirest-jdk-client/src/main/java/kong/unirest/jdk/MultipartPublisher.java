@@ -0,0 +1,251 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import kong.unirest.Body;
+import kong.unirest.BodyPart;
+import kong.unirest.MultipartMode;
+import kong.unirest.ProgressMonitor;
+import kong.unirest.UnirestException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.net.http.HttpRequest.BodyPublisher;
+import java.net.http.HttpRequest.BodyPublishers;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+
+/**
+ * Writes a multipart/form-data body. Files and streams are read in chunks as the body is sent
+ * rather than being buffered, and upload progress is reported to the monitor of the body.
+ */
+class MultipartPublisher {
+    private static final int CHUNK = 64 * 1024;
+    private static final String CRLF = "\r\n";
+    private final Body body;
+    private final String boundary;
+    private final List<Piece> pieces = new ArrayList<>();
+
+    MultipartPublisher(Body body) {
+        this.body = body;
+        this.boundary = UUID.randomUUID().toString().replace("-", "");
+        for (BodyPart part : body.multiParts()) {
+            pieces.add(new Fixed(header(part)));
+            pieces.add(content(part));
+            pieces.add(new Fixed(CRLF.getBytes(StandardCharsets.US_ASCII)));
+        }
+        pieces.add(new Fixed(("--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII)));
+    }
+
+    String getContentType() {
+        return "multipart/form-data; boundary=" + boundary + "; charset=" + body.getCharset().name();
+    }
+
+    BodyPublisher publisher() {
+        BodyPublisher chunks = BodyPublishers.ofByteArrays(() -> new Concat(pieces.iterator()));
+        long length = 0;
+        for (Piece piece : pieces) {
+            if (piece.length() < 0) {
+                return chunks;
+            }
+            length += piece.length();
+        }
+        return BodyPublishers.fromPublisher(chunks, length);
+    }
+
+    private byte[] header(BodyPart part) {
+        String fileName = fileName(part);
+        StringBuilder sb = new StringBuilder("--").append(boundary).append(CRLF)
+                .append("Content-Disposition: form-data; name=\"").append(part.getName()).append('"');
+        if (fileName != null) {
+            sb.append("; filename=\"").append(fileName).append('"');
+        }
+        sb.append(CRLF);
+        if (part.getContentType() != null && (fileName != null || body.getMode() == MultipartMode.STRICT)) {
+            sb.append("Content-Type: ").append(part.getContentType()).append(CRLF);
+        }
+        return sb.append(CRLF).toString().getBytes(body.getCharset());
+    }
+
+    private static String fileName(BodyPart part) {
+        if (part.getValue() instanceof File) {
+            return ((File) part.getValue()).getName();
+        }
+        return part.getFileName();
+    }
+
+    private Piece content(BodyPart part) {
+        Object value = part.getValue();
+        if (value instanceof File) {
+            File file = (File) value;
+            return new Streamed(part, () -> new FileInputStream(file), file.length());
+        } else if (value instanceof InputStream) {
+            InputStream stream = (InputStream) value;
+            return new Streamed(part, () -> stream, -1);
+        } else if (value instanceof byte[]) {
+            return new Fixed((byte[]) value);
+        }
+        return new Fixed(String.valueOf(value).getBytes(body.getCharset()));
+    }
+
+    private interface Piece {
+        /**
+         * @return the number of bytes in the piece or -1 if it is not known
+         */
+        long length();
+
+        Iterator<byte[]> chunks();
+    }
+
+    private static class Fixed implements Piece {
+        private final byte[] bytes;
+
+        Fixed(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public long length() {
+            return bytes.length;
+        }
+
+        @Override
+        public Iterator<byte[]> chunks() {
+            return Collections.singletonList(bytes).iterator();
+        }
+    }
+
+    private class Streamed implements Piece {
+        private final BodyPart part;
+        private final Callable<InputStream> source;
+        private final long length;
+
+        Streamed(BodyPart part, Callable<InputStream> source, long length) {
+            this.part = part;
+            this.source = source;
+            this.length = length;
+        }
+
+        @Override
+        public long length() {
+            return length;
+        }
+
+        @Override
+        public Iterator<byte[]> chunks() {
+            return new StreamChunks(this);
+        }
+    }
+
+    /**
+     * reads a stream lazily, opening it on first use and closing it once it is exhausted
+     */
+    private class StreamChunks implements Iterator<byte[]> {
+        private final Streamed piece;
+        private final ProgressMonitor monitor = body.getMonitor();
+        private InputStream in;
+        private byte[] next;
+        private long written;
+        private boolean done;
+
+        StreamChunks(Streamed piece) {
+            this.piece = piece;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null && !done) {
+                next = read();
+            }
+            return next != null;
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            byte[] chunk = next;
+            next = null;
+            return chunk;
+        }
+
+        private byte[] read() {
+            try {
+                if (in == null) {
+                    in = piece.source.call();
+                }
+                byte[] buffer = new byte[CHUNK];
+                int read = in.readNBytes(buffer, 0, CHUNK);
+                if (read <= 0) {
+                    done = true;
+                    in.close();
+                    return null;
+                }
+                written += read;
+                if (monitor != null) {
+                    monitor.accept(piece.part.getName(), fileName(piece.part), written, piece.length);
+                }
+                return read == CHUNK ? buffer : Arrays.copyOf(buffer, read);
+            } catch (Exception e) {
+                throw new UnirestException(e);
+            }
+        }
+    }
+
+    private static class Concat implements Iterator<byte[]> {
+        private final Iterator<Piece> pieces;
+        private Iterator<byte[]> current = Collections.emptyIterator();
+
+        Concat(Iterator<Piece> pieces) {
+            this.pieces = pieces;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (!current.hasNext() && pieces.hasNext()) {
+                current = pieces.next().chunks();
+            }
+            return current.hasNext();
+        }
+
+        @Override
+        public byte[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current.next();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.jdk;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JdkClientTest {
+    private HttpServer server;
+    private UnirestInstance unirest;
+    private String url;
+    private volatile HttpExchange last;
+    private volatile String lastBody;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::echo);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        unirest = new UnirestInstance(new Config()
+                .httpClient(JdkClient::new)
+                .asyncClient(JdkAsyncClient::new));
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+        unirest.shutDown();
+    }
+
+    @Test
+    void requestsAndResponsesAreMapped() {
+        unirest.config().setDefaultHeader("X-Default", "yes");
+
+        HttpResponse<String> response = unirest.get(url + "/hello")
+                .queryString("q", "a b")
+                .header("Accept", "text/plain")
+                .asString();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("GET /hello?q=a+b", response.getBody());
+        assertEquals("abc", response.getHeaders().getFirst("X-Echo"));
+        assertEquals("text/plain", last.getRequestHeaders().getFirst("Accept"));
+        assertEquals("yes", last.getRequestHeaders().getFirst("X-Default"));
+        assertEquals("unirest-java/3.1.00", last.getRequestHeaders().getFirst("User-Agent"));
+    }
+
+    @Test
+    void entityBodiesAreSent() {
+        unirest.post(url).header("Content-Type", "application/json").body("{\"a\":1}").asEmpty();
+
+        assertEquals("{\"a\":1}", lastBody);
+        assertEquals("application/json", last.getRequestHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void formsAreUrlEncoded() {
+        unirest.post(url).field("name", "Tom Smith").field("age", "42").asEmpty();
+
+        assertEquals("age=42&name=Tom+Smith", lastBody);
+        assertEquals("application/x-www-form-urlencoded; charset=UTF-8", last.getRequestHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void multipartBodiesStreamFilesAndReportProgress() throws IOException {
+        File file = File.createTempFile("unirest", ".txt");
+        try {
+            Files.write(file.toPath(), "file contents".getBytes(StandardCharsets.UTF_8));
+            List<Long> progress = new ArrayList<>();
+
+            unirest.post(url)
+                    .field("name", "value")
+                    .field("upload", file, "text/plain")
+                    .uploadMonitor((field, fileName, written, total) -> progress.add(written))
+                    .asEmpty();
+
+            String contentType = last.getRequestHeaders().getFirst("Content-Type");
+            assertTrue(contentType.startsWith("multipart/form-data; boundary="));
+            assertTrue(lastBody.contains("Content-Disposition: form-data; name=\"name\"\r\n\r\nvalue\r\n"));
+            assertTrue(lastBody.contains("Content-Disposition: form-data; name=\"upload\"; filename=\"" + file.getName() + "\"\r\n"
+                    + "Content-Type: text/plain\r\n\r\nfile contents\r\n"));
+            assertEquals(String.valueOf(lastBody.length()), last.getRequestHeaders().getFirst("Content-Length"));
+            assertEquals(List.of(13L), progress);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void asyncRequests() {
+        HttpResponse<String> response = unirest.get(url + "/async").asStringAsync().join();
+
+        assertEquals(200, response.getStatus());
+        assertEquals("GET /async", response.getBody());
+    }
+
+    @Test
+    void gzippedResponsesAreDecompressed() {
+        HttpResponse<String> response = unirest.get(url + "/gzip").asString();
+
+        assertEquals("gzip", last.getRequestHeaders().getFirst("Accept-Encoding"));
+        assertEquals("GET /gzip", response.getBody());
+    }
+
+    @Test
+    void redirectsAreOnlyFollowedWhenEnabled() {
+        assertEquals("GET /hello", unirest.get(url + "/redirect").asString().getBody());
+
+        UnirestInstance noRedirects = new UnirestInstance(new Config().followRedirects(false).httpClient(JdkClient::new));
+
+        assertEquals(302, noRedirects.get(url + "/redirect").asString().getStatus());
+    }
+
+    @Test
+    void interceptorsAndMetricsSeeEveryRequest() {
+        List<String> events = new ArrayList<>();
+        unirest.config()
+                .interceptor(new Interceptor() {
+                    @Override
+                    public void onRequest(HttpRequest<?> request, Config config) {
+                        events.add("request");
+                    }
+
+                    @Override
+                    public void onResponse(HttpResponse<?> response, HttpRequestSummary request, Config config) {
+                        events.add("response " + response.getStatus());
+                    }
+                })
+                .instrumentWith(r -> {
+                    events.add("begin " + r.getUrl());
+                    return (response, e) -> events.add("complete " + response.getStatus());
+                });
+
+        unirest.get(url + "/hello").asEmpty();
+
+        assertEquals(List.of("request", "begin " + url + "/hello", "complete 200", "response 200"), events);
+    }
+
+    @Test
+    void failuresGoToTheInterceptor() {
+        server.stop(0);
+
+        UnirestException sync = assertThrows(UnirestException.class, () -> unirest.get(url).asString());
+        CompletionException async = assertThrows(CompletionException.class, () -> unirest.get(url).asStringAsync().join());
+
+        assertTrue(sync.getCause() instanceof IOException);
+        assertTrue(async.getCause() instanceof IOException);
+    }
+
+    private void echo(HttpExchange exchange) throws IOException {
+        lastBody = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+        last = exchange;
+        String path = exchange.getRequestURI().getRawPath();
+        String query = exchange.getRequestURI().getRawQuery();
+        byte[] body = (exchange.getRequestMethod() + " " + path + (query == null ? "" : "?" + query)).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("X-Echo", "abc");
+        if (path.equals("/redirect")) {
+            exchange.getResponseHeaders().add("Location", "/hello");
+            exchange.sendResponseHeaders(302, -1);
+        } else if (path.equals("/gzip")) {
+            ByteArrayOutputStream zipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(zipped)) {
+                gzip.write(body);
+            }
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            write(exchange, zipped.toByteArray());
+        } else {
+            write(exchange, body);
+        }
+        exchange.close();
+    }
+
+    private void write(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+}
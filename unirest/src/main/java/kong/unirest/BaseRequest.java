@@ -33,6 +33,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Stream;
 
 import static kong.unirest.CallbackFuture.wrap;
 
@@ -269,7 +270,7 @@ abstract class BaseRequest<R extends HttpRequest> implements HttpRequest<R> {
 
     @Override
     public <T> CompletableFuture<HttpResponse<T>> asObjectAsync(Function<RawResponse, T> function) {
-        return config.getAsyncClient().request(this, funcResponse(function), new CompletableFuture<>(), JsonNode.class);
+        return config.getAsyncClient().request(this, funcResponse(function), new CompletableFuture<>(), Object.class);
     }
 
     @Override
@@ -339,6 +340,16 @@ abstract class BaseRequest<R extends HttpRequest> implements HttpRequest<R> {
                 File.class);
     }
 
+    @Override
+    public HttpResponse<File> asFileParallel(String path, int parts, CopyOption... copyOptions) {
+        return new ParallelDownload(this, downloadMonitor).download(path, parts, copyOptions);
+    }
+
+    @Override
+    public HttpResponse<File> asFileResumable(String path, int retries) {
+        return new ResumableDownload(this, downloadMonitor).download(path, retries);
+    }
+
     @Override
     public <T> PagedList<T> asPaged(Function<HttpRequest, HttpResponse> mappingFunction, Function<HttpResponse<T>, String> linkExtractor) {
         PagedList<T> all = new PagedList<>();
@@ -352,6 +363,12 @@ abstract class BaseRequest<R extends HttpRequest> implements HttpRequest<R> {
         return all;
     }
 
+    @Override
+    public <T> Stream<HttpResponse<T>> asPagedStream(Function<HttpRequest, CompletableFuture<HttpResponse>> mappingFunction,
+                                                     Function<HttpResponse<T>, String> linkExtractor,
+                                                     int prefetch) {
+        return new PagedStream<>(this, mappingFunction, linkExtractor, prefetch).stream();
+    }
 
     private Function<RawResponse, HttpResponse<Object>> getConsumer(Consumer<RawResponse> consumer) {
         return r -> {
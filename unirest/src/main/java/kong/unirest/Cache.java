@@ -25,7 +25,9 @@
 
 package kong.unirest;
 
+import java.nio.file.Path;
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
@@ -68,18 +70,54 @@ public interface Cache {
         private long ttl = 0;
         private Cache backing;
         private KeyGenerator keyGen;
+        private boolean httpSemantics;
+        private boolean rawResponses;
+        private long maxWeight;
+        private Weigher weigher;
+        private long offHeapBytes;
+        private Path offHeapDirectory;
+        private Path snapshot;
+        private long staleWhileRevalidate;
+        private long staleIfError;
 
         CacheManager build() {
+            CacheManager manager = createManager();
+            if(httpSemantics){
+                manager.useHttpSemantics();
+            } else if(servesStale()){
+                manager.serveStale(ttl, staleWhileRevalidate, staleIfError);
+            }
+            if(rawResponses){
+                manager.storeRawResponses();
+            }
+            if(snapshot != null){
+                manager.snapshotTo(snapshot);
+            }
+            if(offHeapBytes > 0){
+                manager.useOffHeapTier(new OffHeapTier(offHeapBytes, offHeapDirectory));
+            }
+            return manager;
+        }
+
+        private CacheManager createManager() {
+            long retention = servesStale() ? ttl + StalePolicy.retention(staleWhileRevalidate, staleIfError) : ttl;
             if(backing != null){
                 return new CacheManager(backing, keyGen);
+            } else if(maxWeight > 0){
+                Weigher w = weigher == null ? new ResponseWeigher() : weigher;
+                return new CacheManager(new ConcurrentCache(maxWeight, retention, w), keyGen);
             }
-            return new CacheManager(depth, ttl, keyGen);
+            return new CacheManager(depth, retention, keyGen);
+        }
+
+        private boolean servesStale() {
+            return ttl > 0 && (staleWhileRevalidate > 0 || staleIfError > 0);
         }
 
         /**
          * defines the max depth of the cache in number of values.
          * defaults to 100.
-         * Elements exceeding the depth are purged on read.
+         * The least recently used elements are evicted once the depth is exceeded.
          * Custom Cache implementations may not honor this setting
          * @param value the max depth
          * @return the current builder.
@@ -92,7 +130,8 @@ public interface Cache {
         /**
          * Sets a Time-To-Live for response objects.
          * There is no TTL by default and objects will be kept indefinitely
-         * Elements exceeding the TTL are purged on read.
+         * The TTL is measured from the time of the cache key.
+         * Elements exceeding the TTL are never returned and are reclaimed lazily as the cache is used.
          * Custom Cache implementations may not honor this setting
          * @param number a number
          * @param units the TimeUnits of the number
@@ -114,9 +153,137 @@ public interface Cache {
             return this;
         }
 
+        /**
+         * Follow the HTTP caching rules of the origin (RFC 9111) rather than caching every response.
+         * Only GET and HEAD requests are cached and only when the response is storable.
+         * Freshness is computed from Cache-Control, Expires, Date and Age headers and
+         * stale entries are revalidated using their ETag and Last-Modified validators.
+         * A 304 Not Modified refreshes the stored response without downloading the body again.
+         * Responses with a Vary header are only served to requests with the same values for those headers.
+         * The depth and maxAge settings still bound how many entries are kept and for how long.
+         * default is false
+         * @param value enable or disable HTTP caching semantics
+         * @return this builder.
+         */
+        public Builder httpSemantics(boolean value) {
+            this.httpSemantics = value;
+            return this;
+        }
+
+        /**
+         * Store the raw status, headers and body bytes of each exchange rather than the parsed response.
+         * The same request read as a String, Json, bytes or an Object then shares one cache entry and one
+         * trip to the origin, and the body is parsed again for every read.
+         * Bodies are fully buffered in memory so this is not suited to large downloads.
+         * Interceptors only see the raw response when the origin is called.
+         * default is false
+         * @param value enable or disable storing raw responses
+         * @return this builder.
+         */
+        public Builder storeRawResponses(boolean value) {
+            this.rawResponses = value;
+            return this;
+        }
+
+        /**
+         * Bound the cache by the total weight of its entries rather than by the number of entries.
+         * When set the depth is ignored. By default the weight of an entry is its approximate size in bytes,
+         * the body plus the headers, see weigher(Weigher) to change this.
+         * Entries are weighed once their response has loaded.
+         * Custom Cache implementations may not honor this setting
+         * @param value the max total weight
+         * @return this builder.
+         */
+        public Builder maxWeight(long value) {
+            this.maxWeight = value;
+            return this;
+        }
+
+        /**
+         * Provide a custom weigher used with maxWeight.
+         * @param value the weigher
+         * @return this builder.
+         */
+        public Builder weigher(Weigher value) {
+            this.weigher = value;
+            return this;
+        }
+
+        /**
+         * Add a second tier behind the in heap cache which keeps response bodies in direct (off heap) ByteBuffers.
+         * Responses evicted from the in heap cache move to this tier and move back on their next hit
+         * without copying the body back onto the heap. asFile writes the body straight from the off heap buffer.
+         * This turns on storeRawResponses. It only works with the default backing cache and is not
+         * used in combination with httpSemantics.
+         * @param maxBytes the max total size of the bodies held in the tier
+         * @return this builder.
+         */
+        public Builder offHeapTier(long maxBytes) {
+            return offHeapTier(null, maxBytes);
+        }
+
+        /**
+         * Add a second tier behind the in heap cache which keeps response bodies in memory mapped files.
+         * This behaves like offHeapTier(long) but each body is written to its own file under the directory
+         * and mapped into memory, so the operating system rather than the heap holds it.
+         * Files are deleted when their entry leaves the tier.
+         * @param directory an existing directory for the body files, null for direct ByteBuffers
+         * @param maxBytes the max total size of the bodies held in the tier
+         * @return this builder.
+         */
+        public Builder offHeapTier(Path directory, long maxBytes) {
+            this.offHeapDirectory = directory;
+            this.offHeapBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * Persist the cache to a file when Unirest is shut down and load it back in the background
+         * the next time the cache is configured, so that a restarted application starts warm.
+         * Each entry keeps the time of its key so maxAge expiry carries on across the restart.
+         * This turns on storeRawResponses. It only works with the default backing cache and key generator,
+         * entries from other key generators are not written. The off heap tier is not written.
+         * @param file the snapshot file
+         * @return this builder.
+         */
+        public Builder snapshot(Path file) {
+            this.snapshot = file;
+            return this;
+        }
+
+        /**
+         * Keep serving a response for a while after its maxAge has passed.
+         * A stale response is returned immediately and refreshed in the background, using the async client
+         * when there is one. Only one refresh per key runs at a time and the new response replaces the old
+         * once it arrives. Failed refreshes leave the stale response in place.
+         * Requires maxAge and is not used with httpSemantics. Does not apply to entries
+         * restored from a snapshot or the off heap tier.
+         * @param number a number
+         * @param units the TimeUnits of the number
+         * @return this builder.
+         */
+        public Builder staleWhileRevalidate(long number, TimeUnit units) {
+            this.staleWhileRevalidate = units.toMillis(number);
+            return this;
+        }
+
+        /**
+         * Serve the last good response for a while after its maxAge has passed when the origin
+         * fails, either with an exception or a 5xx status.
+         * Requires maxAge and is not used with httpSemantics.
+         * @param number a number
+         * @param units the TimeUnits of the number
+         * @return this builder.
+         */
+        public Builder staleIfError(long number, TimeUnit units) {
+            this.staleIfError = units.toMillis(number);
+            return this;
+        }
+
         /**
          * Provide a custom key generator.
-         * The default key is a hash of the request, the request execution type and the response type.
+         * The default key is a SHA-256 digest of the request method, normalized url, headers and body,
+         * the request execution type and the response type.
          * @param keyGenerator a custom cache key generator
          * @return this builder
          */
@@ -124,6 +291,32 @@ public interface Cache {
             this.keyGen = keyGenerator;
             return this;
         }
+
+        /**
+         * Limit the headers which take part in the default cache key. Requests which differ only in other
+         * headers, such as a rotating Authorization token, then share cache entries.
+         * Names are case insensitive. By default every header takes part.
+         * Replaces any custom key generator.
+         * @param names the names of the headers which take part in the key
+         * @return this builder
+         */
+        public Builder keyHeaders(String... names) {
+            this.keyGen = RequestFingerprint.withHeaders(Arrays.asList(names));
+            return this;
+        }
+    }
+
+    /**
+     * A functional interface to compute the weight of a cached response
+     */
+    @FunctionalInterface
+    interface Weigher {
+        /**
+         * @param key the cache key
+         * @param response the response being cached
+         * @return the weight of the entry. Must not be negative
+         */
+        long weigh(Key key, HttpResponse<?> response);
     }
 
     /**
@@ -0,0 +1,82 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The parsed directives of one or more Cache-Control headers (RFC 9111 section 5.2)
+ */
+class CacheControl {
+    static final String NO_STORE = "no-store";
+    static final String NO_CACHE = "no-cache";
+    static final String MAX_AGE = "max-age";
+
+    private final Map<String, String> directives = new HashMap<>();
+
+    CacheControl(Headers headers) {
+        for (String value : headers.get(HeaderNames.CACHE_CONTROL)) {
+            parse(value);
+        }
+    }
+
+    private void parse(String value) {
+        if (value == null) {
+            return;
+        }
+        for (String directive : value.split(",")) {
+            String[] parts = directive.split("=", 2);
+            String name = parts[0].trim().toLowerCase();
+            if (!name.isEmpty()) {
+                directives.put(name, parts.length > 1 ? unquote(parts[1].trim()) : "");
+            }
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() > 1 && value.startsWith("\"") && value.endsWith("\"")) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    boolean has(String directive) {
+        return directives.containsKey(directive);
+    }
+
+    /**
+     * @param directive a directive with a delta-seconds argument like max-age
+     * @return the argument in seconds or -1 if it is missing or invalid
+     */
+    long seconds(String directive) {
+        try {
+            return Long.parseLong(directives.get(directive));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -25,33 +25,41 @@
 
 package kong.unirest;
 
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.Objects;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 
 class CacheManager {
+    private static final UniMetric NO_METRIC = new NoopMetric();
 
     private final CacheWrapper wrapper = new CacheWrapper();
     private final AsyncWrapper asyncWrapper = new AsyncWrapper();
     private final Cache backingCache;
     private final Cache.KeyGenerator keyGen;
+    private final CacheStatsCounter stats;
+    private Supplier<UniMetric> metric = () -> NO_METRIC;
+    private HttpCachePolicy httpPolicy;
+    private StalePolicy stalePolicy;
+    private boolean rawResponses;
+    private OffHeapTier tier;
+    private Path snapshot;
+    private CompletableFuture<Void> restored = CompletableFuture.completedFuture(null);
 
     private Client originalClient;
     private AsyncClient originalAsync;
 
     public CacheManager() {
-        this(100, 0, HashKey::new);
+        this(100, 0, RequestFingerprint::new);
     }
 
     public CacheManager(int depth, long ttl, Cache.KeyGenerator keyGenerator) {
-        this(new CacheMap(depth, ttl), keyGenerator);
+        this(new ConcurrentCache(depth, ttl), keyGenerator);
     }
 
     public CacheManager(Cache backing, Cache.KeyGenerator keyGenerator) {
@@ -59,8 +67,79 @@ class CacheManager {
         if(keyGenerator != null){
             this.keyGen = keyGenerator;
         }else{
-            this.keyGen = HashKey::new;
+            this.keyGen = RequestFingerprint::new;
         }
+        this.stats = new CacheStatsCounter(backing);
+    }
+
+    /**
+     * reports every lookup to the current metric of the config
+     */
+    void instrumentWith(Supplier<UniMetric> metricSource) {
+        this.metric = metricSource;
+    }
+
+    void useHttpSemantics() {
+        this.httpPolicy = new HttpCachePolicy(backingCache);
+    }
+
+    void serveStale(long maxAge, long whileRevalidate, long ifError) {
+        this.stalePolicy = new StalePolicy(backingCache, maxAge, whileRevalidate, ifError);
+    }
+
+    void storeRawResponses() {
+        this.rawResponses = true;
+    }
+
+    void useOffHeapTier(OffHeapTier offHeap) {
+        this.rawResponses = true;
+        if (backingCache instanceof ConcurrentCache) {
+            this.tier = offHeap;
+            ((ConcurrentCache) backingCache).onEviction(offHeap::promote);
+            // a body moved back in heap keeps its expiry rather than starting over from the request which found it
+            offHeap.onTake(((ConcurrentCache) backingCache)::expireAt);
+        }
+    }
+
+    void snapshotTo(Path file) {
+        this.snapshot = file;
+        this.rawResponses = true;
+    }
+
+    /**
+     * Starts loading the snapshot into the cache in the background.
+     * Entries which are already cached by the time they are read are left alone.
+     */
+    void restoreSnapshot(Config config) {
+        if (snapshot != null && backingCache instanceof ConcurrentCache && Files.exists(snapshot)) {
+            restored = CompletableFuture.runAsync(() -> CacheSnapshot.read(snapshot, config, (ConcurrentCache) backingCache, httpPolicy != null));
+        }
+    }
+
+    CompletableFuture<Void> getRestored() {
+        return restored;
+    }
+
+    /**
+     * Writes the cache to the snapshot file
+     * @return any exception raised while writing
+     */
+    Stream<Exception> saveSnapshot() {
+        if (snapshot == null || !(backingCache instanceof ConcurrentCache)) {
+            return Stream.empty();
+        }
+        try {
+            // a restore which failed has left the cache as it was, which is still worth writing
+            restored.handle((r, e) -> null).join();
+            CacheSnapshot.write(snapshot, (ConcurrentCache) backingCache);
+            return Stream.empty();
+        } catch (Exception e) {
+            return Stream.of(e);
+        }
+    }
+
+    CacheStats getStats() {
+        return stats;
     }
 
     Client wrap(Client client) {
@@ -77,41 +156,98 @@ class CacheManager {
         return keyGen.apply(request, isAsync, responseType);
     }
 
-    private static class HashKey implements Cache.Key {
-        private final int hash;
-        private final Instant time;
+    /**
+     * a load which is answered by the off heap tier when it holds the key
+     */
+    private Supplier<HttpResponse<RawResponse>> tierOr(Cache.Key key, Supplier<HttpResponse<RawResponse>> origin) {
+        return () -> {
+            HttpResponse<RawResponse> hit = fromTier(key);
+            return hit != null ? hit : origin.get();
+        };
+    }
 
-        HashKey(HttpRequest request, Boolean isAsync, Class<?> responseType) {
-            this(Objects.hash(request.hashCode(), isAsync, responseType),
-                 request.getCreationTime());
-        }
+    private AsyncLoad<RawResponse> tierOrAsync(Cache.Key key, AsyncLoad<RawResponse> origin) {
+        return cb -> {
+            HttpResponse<RawResponse> hit = fromTier(key);
+            return hit != null ? CompletableFuture.completedFuture(hit) : origin.apply(cb);
+        };
+    }
+
+    private HttpResponse<RawResponse> fromTier(Cache.Key key) {
+        return tier == null ? null : tier.take(key);
+    }
 
-        HashKey(int hash, Instant time) {
-            this.hash = hash;
-            this.time = time;
+    private void recordLookup(HttpRequest request, boolean hit) {
+        stats.recordLookup(hit);
+        UniMetric current = metric.get();
+        if (current != NO_METRIC) {
+            current.cacheLookup(request.toSummary(), hit, stats);
         }
+    }
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            HashKey key = (HashKey) o;
-            return hash == key.hash;
+    /**
+     * @param origin given the flag which marks this lookup as a miss and the request to send, loads the response
+     */
+    private <T> HttpResponse<T> lookup(Cache.Key key, HttpRequest request,
+                                       BiFunction<AtomicBoolean, HttpRequest, Supplier<HttpResponse<T>>> origin,
+                                       Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        AtomicBoolean missed = new AtomicBoolean();
+        try {
+            return find(key, request, r -> origin.apply(missed, r), stats.loadAsync(refresh, null));
+        } finally {
+            recordLookup(request, !missed.get());
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return hash;
+    private <T> HttpResponse<T> find(Cache.Key key, HttpRequest request, Function<HttpRequest, Supplier<HttpResponse<T>>> origin,
+                                     Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        if (httpPolicy != null) {
+            return httpPolicy.request(key, request, origin);
+        }
+        if (stalePolicy != null) {
+            return stalePolicy.request(key, origin.apply(request), refresh);
         }
+        return backingCache.get(key, origin.apply(request));
+    }
 
-        @Override
-        public Instant getTime() {
-            return time;
+    /**
+     * background refreshes of sync entries go through the async client when there is one
+     */
+    private <T> Supplier<CompletableFuture<HttpResponse<T>>> inBackground(HttpRequest request,
+                                                                        Function<RawResponse, HttpResponse<T>> transformer,
+                                                                        Class<?> responseType) {
+        return () -> {
+            if (originalAsync != null) {
+                return originalAsync.request(request, transformer, new CompletableFuture<>(), responseType);
+            }
+            return CompletableFuture.supplyAsync(() -> originalClient.request(request, transformer, responseType));
+        };
+    }
+
+    /**
+     * @param origin given the flag which marks this lookup as a miss and the request to send, loads the response into a callback
+     */
+    private <T> CompletableFuture<HttpResponse<T>> lookupAsync(Cache.Key key, HttpRequest request,
+                                                               BiFunction<AtomicBoolean, HttpRequest, AsyncLoad<T>> origin) {
+        AtomicBoolean missed = new AtomicBoolean();
+        AsyncLoad<T> background = origin.apply(new AtomicBoolean(), request);
+        return findAsync(key, request, r -> origin.apply(missed, r), () -> background.apply(new CompletableFuture<>()))
+                .whenComplete((r, e) -> recordLookup(request, !missed.get()));
+    }
+
+    private <T> AsyncLoad<T> timed(AtomicBoolean missed, AsyncLoad<T> origin) {
+        return cb -> stats.loadAsync(() -> origin.apply(cb), missed).get();
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> findAsync(Cache.Key key, HttpRequest request, Function<HttpRequest, AsyncLoad<T>> origin,
+                                                             Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        if (httpPolicy != null) {
+            return httpPolicy.requestAsync(key, request, origin, new CompletableFuture<>());
+        }
+        if (stalePolicy != null) {
+            return stalePolicy.requestAsync(key, () -> origin.apply(request).apply(new CompletableFuture<>()), refresh);
         }
+        return backingCache.getAsync(key, () -> origin.apply(request).apply(new CompletableFuture<>()));
     }
 
     private class CacheWrapper implements Client {
@@ -131,9 +267,16 @@ class CacheManager {
                                            Function<RawResponse, HttpResponse<T>> transformer,
                                            Class<?> responseType) {
 
-            Cache.Key hash = getHash(request, false, responseType);
-            return backingCache.get(hash,
-                    () -> originalClient.request(request, transformer, responseType));
+            if (rawResponses) {
+                Cache.Key key = getHash(request, false, RawResponse.class);
+                HttpResponse<RawResponse> raw = lookup(key, request,
+                        (missed, r) -> tierOr(key, stats.load(() -> originalClient.request(r, CachedRawResponse::capture, RawResponse.class), missed)),
+                        inBackground(request, CachedRawResponse::capture, RawResponse.class));
+                return CachedRawResponse.transform(raw, transformer);
+            }
+            return lookup(getHash(request, false, responseType), request,
+                    (missed, r) -> stats.load(() -> originalClient.request(r, transformer, responseType), missed),
+                    inBackground(request, transformer, responseType));
         }
 
         @Override
@@ -165,9 +308,14 @@ class CacheManager {
                                                               Function<RawResponse, HttpResponse<T>> transformer,
                                                               CompletableFuture<HttpResponse<T>> callback,
                                                               Class<?> responseType) {
-            Cache.Key key = getHash(request, true, responseType);
-            return backingCache.getAsync(key,
-                    () -> originalAsync.request(request, transformer, callback, responseType));
+            if (rawResponses) {
+                Cache.Key key = getHash(request, true, RawResponse.class);
+                CompletableFuture<HttpResponse<RawResponse>> raw = lookupAsync(key, request,
+                        (missed, r) -> tierOrAsync(key, timed(missed, cb -> originalAsync.request(r, CachedRawResponse::capture, cb, RawResponse.class))));
+                return Util.pipe(raw.thenApply(r -> CachedRawResponse.transform(r, transformer)), callback);
+            }
+            return Util.pipe(lookupAsync(getHash(request, true, responseType), request,
+                    (missed, r) -> timed(missed, cb -> originalAsync.request(r, transformer, cb, responseType))), callback);
         }
 
         @Override
@@ -186,39 +334,9 @@ class CacheManager {
         }
     }
 
-    private static class CacheMap extends LinkedHashMap<Cache.Key, Object> implements Cache {
-        private final int maxSize;
-        private long ttl;
-
-        CacheMap(int maxSize, long ttl) {
-            this.maxSize = maxSize;
-            this.ttl = ttl;
-        }
-
-        @Override
-        public <T> HttpResponse<T> get(Key key, Supplier<HttpResponse<T>> fetcher) {
-            clearOld();
-            return (HttpResponse<T>)super.computeIfAbsent(key, (k) -> fetcher.get());
-        }
-
-        @Override
-        public <T> CompletableFuture getAsync(Key key, Supplier<CompletableFuture<HttpResponse<T>>> fetcher) {
-            clearOld();
-            return (CompletableFuture)super.computeIfAbsent(key, (k) -> fetcher.get());
-        }
-
-        private void clearOld() {
-            if (ttl > 0) {
-                Instant now = Util.now();
-                keySet().removeIf(k -> ChronoUnit.MILLIS.between(k.getTime(), now) > ttl);
-            }
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
-            return size() > maxSize;
-        }
-
+    /**
+     * loads a response into the given callback
+     */
+    interface AsyncLoad<T> extends Function<CompletableFuture<HttpResponse<T>>, CompletableFuture<HttpResponse<T>>> {
     }
-
 }
@@ -0,0 +1,313 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reads and writes the raw responses of a ConcurrentCache in a compact binary file.
+ * Each entry holds the key digest and time, whether it was an async entry, then the status line,
+ * headers and body of the response. Entries stored with HTTP semantics also hold what their freshness
+ * is worked out from, so they are restored as the same HttpCacheEntry. Entries of the other kind than the cache
+ * now stores (after HTTP semantics were turned on or off) are skipped. Entries whose key time has passed the cache's max age
+ * are skipped by the cache itself when read back. Every length read back is checked against what is
+ * left of the file, so a truncated or corrupt snapshot fails instead of allocating what it claims.
+ */
+class CacheSnapshot {
+    private static final int MAGIC = 0x554E4943;
+    static final int VERSION = 4;
+
+    private CacheSnapshot() {
+    }
+
+    static void write(Path file, ConcurrentCache cache) throws IOException {
+        List<Entry> entries = new ArrayList<>();
+        cache.forEachLoaded((key, value) -> {
+            if (key instanceof RequestFingerprint) {
+                Entry e = Entry.of(key, value);
+                if (e != null) {
+                    entries.add(e);
+                }
+            }
+        });
+        Path temp = Files.createTempFile(file.toAbsolutePath().getParent(), "unirest-", ".snapshot");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+            for (Entry e : entries) {
+                e.write(out);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    static void read(Path file, Config config, ConcurrentCache cache, boolean httpSemantics) {
+        try (Remaining left = new Remaining(new BufferedInputStream(Files.newInputStream(file)), Files.size(file));
+             DataInputStream in = new DataInputStream(left)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return;
+            }
+            int count = left.check(in.readInt());
+            for (int i = 0; i < count; i++) {
+                Entry entry = Entry.read(in, left, config);
+                if ((entry.freshness != null) == httpSemantics) {
+                    entry.restore(cache);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Entry {
+        private final Cache.Key key;
+        private final boolean async;
+        private final CachedRawResponse response;
+        private final Freshness freshness;
+
+        Entry(Cache.Key key, boolean async, CachedRawResponse response, Freshness freshness) {
+            this.key = key;
+            this.async = async;
+            this.response = response;
+            this.freshness = freshness;
+        }
+
+        /**
+         * @return the entry for a cached value, or null if it is not a raw response or is an async one
+         *         which is still loading or failed
+         */
+        static Entry of(Cache.Key key, Object value) {
+            boolean async = value instanceof CompletableFuture;
+            if (async && !isComplete((CompletableFuture<?>) value)) {
+                return null;
+            }
+            Object response = async ? ((CompletableFuture<?>) value).join() : value;
+            Freshness freshness = null;
+            if (response instanceof HttpCacheEntry) {
+                HttpCacheEntry<?> entry = (HttpCacheEntry<?>) response;
+                if (!entry.isStorable()) {
+                    return null;
+                }
+                freshness = new Freshness(entry.getStoredHeaders(), entry.getVariedHeaders(), entry.getRequested(), entry.getReceived());
+            }
+            if (response instanceof HttpResponse && ((HttpResponse<?>) response).getBody() instanceof CachedRawResponse) {
+                return new Entry(key, async, (CachedRawResponse) ((HttpResponse<?>) response).getBody(), freshness);
+            }
+            return null;
+        }
+
+        private static boolean isComplete(CompletableFuture<?> future) {
+            return future.isDone() && !future.isCompletedExceptionally();
+        }
+
+        void restore(ConcurrentCache cache) {
+            HttpResponse<RawResponse> captured = CachedRawResponse.capture(response);
+            HttpResponse<RawResponse> value = freshness == null ? captured : freshness.entry(captured);
+            if (async) {
+                cache.getAsync(key, () -> CompletableFuture.completedFuture(value));
+            } else {
+                cache.get(key, () -> value);
+            }
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            byte[] digest = ((RequestFingerprint) key).getDigest();
+            out.writeInt(digest.length);
+            out.write(digest);
+            out.writeLong(key.getTime().toEpochMilli());
+            out.writeBoolean(async);
+            out.writeInt(response.getStatus());
+            writeString(out, response.getStatusText());
+            writeString(out, response.getContentType());
+            out.writeBoolean(response.hasContent());
+            writeHeaders(out, response.getHeaders());
+            byte[] body = response.getContentAsBytes();
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeBoolean(freshness != null);
+            if (freshness != null) {
+                freshness.write(out);
+            }
+        }
+
+        static Entry read(DataInputStream in, Remaining left, Config config) throws IOException {
+            byte[] digest = readBytes(in, left);
+            Cache.Key key = new RequestFingerprint(digest, Instant.ofEpochMilli(in.readLong()));
+            boolean async = in.readBoolean();
+            int status = in.readInt();
+            String statusText = readString(in, left);
+            String contentType = readString(in, left);
+            boolean hasContent = in.readBoolean();
+            Headers headers = readHeaders(in, left);
+            byte[] body = readBytes(in, left);
+            Freshness freshness = in.readBoolean() ? Freshness.read(in, left) : null;
+            return new Entry(key, async, new CachedRawResponse(config, status, statusText, headers,
+                    contentType, hasContent, ByteBuffer.wrap(body)), freshness);
+        }
+
+        private static void writeHeaders(DataOutputStream out, Headers headers) throws IOException {
+            List<Header> all = headers.all();
+            out.writeInt(all.size());
+            for (Header h : all) {
+                writeString(out, h.getName());
+                writeString(out, h.getValue());
+            }
+        }
+
+        private static Headers readHeaders(DataInputStream in, Remaining left) throws IOException {
+            Headers headers = new Headers();
+            int count = left.check(in.readInt());
+            for (int i = 0; i < count; i++) {
+                headers.add(readString(in, left), readString(in, left));
+            }
+            return headers;
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in, Remaining left) throws IOException {
+            int length = in.readInt();
+            if (length == -1) {
+                return null;
+            }
+            byte[] bytes = new byte[left.check(length)];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static byte[] readBytes(DataInputStream in, Remaining left) throws IOException {
+            byte[] bytes = new byte[left.check(in.readInt())];
+            in.readFully(bytes);
+            return bytes;
+        }
+    }
+
+    /**
+     * What the freshness of an entry stored with HTTP semantics is worked out from
+     */
+    private static class Freshness {
+        private final Headers stored;
+        private final Headers varied;
+        private final Instant requested;
+        private final Instant received;
+
+        Freshness(Headers stored, Headers varied, Instant requested, Instant received) {
+            this.stored = stored;
+            this.varied = varied;
+            this.requested = requested;
+            this.received = received;
+        }
+
+        HttpCacheEntry<RawResponse> entry(HttpResponse<RawResponse> response) {
+            return new HttpCacheEntry<>(response, stored, varied, requested, received);
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            Entry.writeHeaders(out, stored);
+            Entry.writeHeaders(out, varied);
+            out.writeLong(requested.toEpochMilli());
+            out.writeLong(received.toEpochMilli());
+        }
+
+        static Freshness read(DataInputStream in, Remaining left) throws IOException {
+            Headers stored = Entry.readHeaders(in, left);
+            Headers varied = Entry.readHeaders(in, left);
+            return new Freshness(stored, varied, Instant.ofEpochMilli(in.readLong()), Instant.ofEpochMilli(in.readLong()));
+        }
+    }
+
+    /**
+     * Counts down the bytes left in the file as they are read
+     */
+    private static class Remaining extends FilterInputStream {
+        private long left;
+
+        Remaining(InputStream in, long size) {
+            super(in);
+            this.left = size;
+        }
+
+        /**
+         * @return the length or count if it is not negative and no more than the bytes left to read
+         */
+        int check(int length) throws IOException {
+            if (length < 0 || length > left) {
+                throw new IOException("The cache snapshot is corrupt, it asks for " + length + " bytes with " + left + " left");
+            }
+            return length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                left--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                left -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            left -= skipped;
+            return skipped;
+        }
+    }
+}
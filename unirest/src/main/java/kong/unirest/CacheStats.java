@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+/**
+ * Live statistics of a response cache.
+ * Lookups and loads are counted for any backing cache, sizes and evictions are only known for the default cache.
+ * see Config::getCacheStats
+ */
+public interface CacheStats {
+    /**
+     * @return the number of requests answered from the cache without waiting on the server
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of requests which had to wait on the server, including revalidations
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of loads from the server which returned a response, including background refreshes
+     */
+    long getLoadSuccessCount();
+
+    /**
+     * @return the number of loads from the server which failed with an exception
+     */
+    long getLoadFailureCount();
+
+    /**
+     * @return the total time spent loading from the server in nanoseconds
+     */
+    long getTotalLoadTime();
+
+    /**
+     * @return the total weight of the cached entries. When the cache is bounded by depth every entry weighs 1
+     */
+    long getWeight();
+
+    /**
+     * @return the number of entries currently held, including those still loading
+     */
+    long getEntryCount();
+
+    /**
+     * @return the number of entries removed because the cache was full
+     */
+    long getSizeEvictionCount();
+
+    /**
+     * @return the number of entries removed because they outlived the max age
+     */
+    long getExpiredCount();
+
+    /**
+     * @return the number of entries removed because the cache was full or they expired
+     */
+    default long getEvictionCount() {
+        return getSizeEvictionCount() + getExpiredCount();
+    }
+
+    /**
+     * @return the ratio of hits to lookups, or 1 if there have been no lookups
+     */
+    default double getHitRate() {
+        long hits = getHitCount();
+        long lookups = hits + getMissCount();
+        return lookups == 0 ? 1.0 : (double) hits / lookups;
+    }
+
+    /**
+     * @return the average time of a load from the server in nanoseconds
+     */
+    default double getAverageLoadTime() {
+        long loads = getLoadSuccessCount() + getLoadFailureCount();
+        return loads == 0 ? 0.0 : (double) getTotalLoadTime() / loads;
+    }
+}
@@ -0,0 +1,150 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Counts the lookups and loads of a CacheManager. Sizes and evictions are read from the
+ * default cache, a custom backing cache reports them as zero.
+ */
+class CacheStatsCounter implements CacheStats {
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder loadSuccesses = new LongAdder();
+    private final LongAdder loadFailures = new LongAdder();
+    private final LongAdder loadTime = new LongAdder();
+    private final ConcurrentCache cache;
+
+    CacheStatsCounter(Cache backing) {
+        this.cache = backing instanceof ConcurrentCache ? (ConcurrentCache) backing : null;
+    }
+
+    /**
+     * wraps a load from the origin so that it is timed and marks the lookup as a miss
+     */
+    <T> Supplier<HttpResponse<T>> load(Supplier<HttpResponse<T>> origin, AtomicBoolean missed) {
+        return () -> {
+            missed.set(true);
+            return timed(origin);
+        };
+    }
+
+    /**
+     * wraps a load from the origin so that it is timed, marking the lookup as a miss if given a flag
+     */
+    <T> Supplier<CompletableFuture<T>> loadAsync(Supplier<CompletableFuture<T>> origin, AtomicBoolean missed) {
+        return () -> {
+            if (missed != null) {
+                missed.set(true);
+            }
+            long start = System.nanoTime();
+            try {
+                return origin.get().whenComplete((r, e) -> loaded(start, e == null));
+            } catch (RuntimeException e) {
+                loaded(start, false);
+                throw e;
+            }
+        };
+    }
+
+    <T> HttpResponse<T> timed(Supplier<HttpResponse<T>> origin) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            HttpResponse<T> response = origin.get();
+            success = true;
+            return response;
+        } finally {
+            loaded(start, success);
+        }
+    }
+
+    private void loaded(long start, boolean success) {
+        loadTime.add(System.nanoTime() - start);
+        if (success) {
+            loadSuccesses.increment();
+        } else {
+            loadFailures.increment();
+        }
+    }
+
+    void recordLookup(boolean hit) {
+        if (hit) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+    }
+
+    @Override
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    @Override
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    @Override
+    public long getLoadSuccessCount() {
+        return loadSuccesses.sum();
+    }
+
+    @Override
+    public long getLoadFailureCount() {
+        return loadFailures.sum();
+    }
+
+    @Override
+    public long getTotalLoadTime() {
+        return loadTime.sum();
+    }
+
+    @Override
+    public long getWeight() {
+        return cache == null ? 0 : cache.getWeight();
+    }
+
+    @Override
+    public long getEntryCount() {
+        return cache == null ? 0 : cache.getEntryCount();
+    }
+
+    @Override
+    public long getSizeEvictionCount() {
+        return cache == null ? 0 : cache.getSizeEvictionCount();
+    }
+
+    @Override
+    public long getExpiredCount() {
+        return cache == null ? 0 : cache.getExpiredCount();
+    }
+}
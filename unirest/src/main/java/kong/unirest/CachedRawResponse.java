@@ -0,0 +1,232 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UnsupportedEncodingException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+/**
+ * A fully buffered copy of a RawResponse which can be read any number of times.
+ * The cache stores these so that one exchange can be transformed into every response type.
+ * The content is held decoded so the encoding is always empty.
+ * The content buffer is either on the heap or, once the response has moved to the off heap tier,
+ * a direct or memory mapped buffer which is read in place.
+ */
+class CachedRawResponse extends RawResponseBase {
+    private final int status;
+    private final String statusText;
+    private final Headers headers;
+    private final boolean hasContent;
+    private final String contentType;
+    private final ByteBuffer content;
+
+    CachedRawResponse(RawResponse response) {
+        this(response, response.getHeaders(), null);
+    }
+
+    CachedRawResponse(Config config, int status, String statusText, Headers headers,
+                      String contentType, boolean hasContent, ByteBuffer content) {
+        super(config);
+        this.status = status;
+        this.statusText = statusText;
+        this.headers = headers;
+        this.hasContent = hasContent;
+        this.contentType = contentType;
+        this.content = content;
+    }
+
+    CachedRawResponse(CachedRawResponse response, ByteBuffer content) {
+        this(response, response.headers, content.asReadOnlyBuffer());
+    }
+
+    private CachedRawResponse(RawResponse response, Headers headers, ByteBuffer content) {
+        super(response.getConfig());
+        this.status = response.getStatus();
+        this.statusText = response.getStatusText();
+        this.headers = headers;
+        this.hasContent = response.hasContent();
+        this.contentType = response.getContentType();
+        if (content != null) {
+            this.content = content;
+        } else if (response instanceof CachedRawResponse) {
+            this.content = ((CachedRawResponse) response).content;
+        } else {
+            this.content = ByteBuffer.wrap(response.getContentAsBytes());
+        }
+    }
+
+    /**
+     * the transformer handed to the client when the cache stores raw responses.
+     */
+    static HttpResponse<RawResponse> capture(RawResponse response) {
+        return new BasicResponse<>(response, new CachedRawResponse(response));
+    }
+
+    /**
+     * applies the caller's transformer to a captured response.
+     * The headers of the cached response win over those captured with the body because
+     * they may have been refreshed by a revalidation.
+     * Failed exchanges carry no raw body and are returned as they are.
+     */
+    static <T> HttpResponse<T> transform(HttpResponse<RawResponse> response,
+                                         Function<RawResponse, HttpResponse<T>> transformer) {
+        if (response.getBody() instanceof CachedRawResponse) {
+            CachedRawResponse raw = (CachedRawResponse) response.getBody();
+            return transformer.apply(new CachedRawResponse(raw, copy(response.getHeaders()), null));
+        }
+        return (HttpResponse<T>) response;
+    }
+
+    private static Headers copy(Headers headers) {
+        Headers h = new Headers();
+        if (headers != null) {
+            h.putAll(headers);
+        }
+        return h;
+    }
+
+    int size() {
+        return content.remaining();
+    }
+
+    /**
+     * @return a read only view of the content which shares the underlying memory
+     */
+    ByteBuffer getBuffer() {
+        return content.duplicate();
+    }
+
+    boolean isOffHeap() {
+        return content.isDirect();
+    }
+
+    @Override
+    public int getStatus() {
+        return status;
+    }
+
+    @Override
+    public String getStatusText() {
+        return statusText;
+    }
+
+    @Override
+    public Headers getHeaders() {
+        return copy(headers);
+    }
+
+    @Override
+    public InputStream getContent() {
+        return new BufferStream(getBuffer());
+    }
+
+    @Override
+    public byte[] getContentAsBytes() {
+        byte[] copy = new byte[content.remaining()];
+        getBuffer().get(copy);
+        return copy;
+    }
+
+    @Override
+    public String getContentAsString() {
+        return getContentAsString(null);
+    }
+
+    @Override
+    public String getContentAsString(String charset) {
+        if (!hasContent) {
+            return "";
+        }
+        try {
+            String charSet = charset == null || charset.trim().isEmpty() ? getCharSet() : charset;
+            return new String(getContentAsBytes(), charSet);
+        } catch (UnsupportedEncodingException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    @Override
+    public InputStreamReader getContentReader() {
+        return new InputStreamReader(getContent());
+    }
+
+    @Override
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public String getEncoding() {
+        return "";
+    }
+
+    private static class BufferStream extends InputStream {
+        private final ByteBuffer buffer;
+
+        BufferStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            ((Buffer) buffer).position(buffer.position() + skipped);
+            return skipped;
+        }
+    }
+}
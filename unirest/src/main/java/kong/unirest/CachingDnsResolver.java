@@ -0,0 +1,198 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.apache.http.conn.DnsResolver;
+import org.apache.http.impl.conn.SystemDefaultDnsResolver;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A DnsResolver which caches the addresses of each host for a time to live of its own,
+ * whatever networkaddress.cache.ttl the JVM runs with.
+ * Once most of the time to live has passed the next resolve of the host looks it up again in the background and
+ * carries on with the cached addresses meanwhile, so busy hosts never wait on a lookup. If that lookup fails the
+ * cached addresses are kept until they expire. Concurrent resolves of an expired host share a single lookup.
+ * A host with several addresses has them handed out in turn, so new connections are spread across all of them
+ * while the rest remain for the client to fall back on.
+ * Each new lookup also drops the other hosts whose addresses have expired, leaving alone those
+ * which are being looked up. Hosts which could not be found are not kept.
+ * see Config::dnsResolver
+ */
+public class CachingDnsResolver implements DnsResolver {
+    private static final double REFRESH_AFTER = 0.8;
+
+    private final DnsResolver delegate;
+    private final Duration ttl;
+    private final Duration refreshAfter;
+    private final Executor refreshes;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * Caches the addresses of the system resolver
+     * @param ttl how long to use the addresses of a host for before looking it up again
+     */
+    public CachingDnsResolver(Duration ttl) {
+        this(SystemDefaultDnsResolver.INSTANCE, ttl);
+    }
+
+    /**
+     * @param delegate the resolver which looks up hosts which are not cached
+     * @param ttl how long to use the addresses of a host for before looking it up again
+     */
+    public CachingDnsResolver(DnsResolver delegate, Duration ttl) {
+        this(delegate, ttl, ForkJoinPool.commonPool());
+    }
+
+    CachingDnsResolver(DnsResolver delegate, Duration ttl, Executor refreshes) {
+        this.delegate = Objects.requireNonNull(delegate, "Delegate resolver may not be null");
+        Objects.requireNonNull(ttl, "TTL may not be null");
+        if (ttl.isZero() || ttl.isNegative()) {
+            throw new UnirestConfigException("The DNS cache TTL must be positive");
+        }
+        this.ttl = ttl;
+        this.refreshAfter = Duration.ofMillis((long) (ttl.toMillis() * REFRESH_AFTER));
+        this.refreshes = refreshes;
+    }
+
+    @Override
+    public InetAddress[] resolve(String host) throws UnknownHostException {
+        return entries.computeIfAbsent(host.toLowerCase(Locale.ROOT), Entry::new).resolve();
+    }
+
+    private static final class Addresses {
+        private final InetAddress[] all;
+        private final Instant resolved;
+
+        Addresses(InetAddress[] all, Instant resolved) {
+            this.all = all;
+            this.resolved = resolved;
+        }
+    }
+
+    private final class Entry {
+        private final String host;
+        private final ReentrantLock lookup = new ReentrantLock();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private final AtomicInteger next = new AtomicInteger();
+        private volatile Addresses current;
+
+        Entry(String host) {
+            this.host = host;
+        }
+
+        InetAddress[] resolve() throws UnknownHostException {
+            Addresses addresses = current;
+            Instant now = Util.now();
+            if (isExpired(addresses, now)) {
+                addresses = lookup();
+            } else if (!now.isBefore(addresses.resolved.plus(refreshAfter)) && refreshing.compareAndSet(false, true)) {
+                CompletableFuture.runAsync(this::refresh, refreshes);
+            }
+            return rotate(addresses.all);
+        }
+
+        /**
+         * Uses a lock rather than synchronized so that a virtual thread waiting on the lookup does not pin its carrier
+         */
+        private Addresses lookup() throws UnknownHostException {
+            Addresses found;
+            boolean looked = false;
+            lookup.lock();
+            try {
+                if (isExpired(current, Util.now())) {
+                    current = new Addresses(delegated(), Util.now());
+                    looked = true;
+                }
+                found = current;
+            } catch (UnknownHostException e) {
+                if (current == null) {
+                    entries.remove(host, this);
+                }
+                throw e;
+            } finally {
+                lookup.unlock();
+            }
+            if (looked) {
+                removeExpired(this);
+            }
+            return found;
+        }
+
+        private void refresh() {
+            try {
+                InetAddress[] fresh = delegated();
+                current = new Addresses(fresh, Util.now());
+            } catch (UnknownHostException e) {
+                // keep the cached addresses until they expire
+            } finally {
+                refreshing.set(false);
+            }
+        }
+
+        private InetAddress[] delegated() throws UnknownHostException {
+            InetAddress[] found = delegate.resolve(host);
+            if (found == null || found.length == 0) {
+                throw new UnknownHostException(host);
+            }
+            return found.clone();
+        }
+
+        private InetAddress[] rotate(InetAddress[] all) {
+            int first = Math.floorMod(next.getAndIncrement(), all.length);
+            InetAddress[] rotated = new InetAddress[all.length];
+            for (int i = 0; i < all.length; i++) {
+                rotated[i] = all[(first + i) % all.length];
+            }
+            return rotated;
+        }
+    }
+
+    private void removeExpired(Entry looked) {
+        Instant now = Util.now();
+        entries.values().removeIf(e -> e != looked
+                && e.current != null
+                && !e.lookup.isLocked()
+                && isExpired(e.current, now));
+    }
+
+    private boolean isExpired(Addresses addresses, Instant now) {
+        return addresses == null || !now.isBefore(addresses.resolved.plus(ttl));
+    }
+}
@@ -0,0 +1,445 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The default thread safe response cache.
+ * Values live in a ConcurrentHashMap and are loaded per key, so two threads fetching
+ * different keys never block each other and concurrent misses on the same key share one load.
+ * Eviction follows a segmented LRU (probation and protected segments) bounded either by the max depth,
+ * where every entry weighs 1, or by a total weight computed by a Weigher once each value has loaded.
+ * Reads are recorded in a lossy buffer and replayed against the policy under a tryLock
+ * so that hits never wait on the eviction lock.
+ * When a TTL is set, entries are indexed in a timer wheel by their key time. Hits check only
+ * their own entry and expired entries are reclaimed lazily as the wheel is advanced.
+ */
+class ConcurrentCache implements Cache {
+    private static final int MAX_PENDING_READS = 128;
+    private static final double PROTECTED_RATIO = 0.8;
+
+    private final Map<Key, Node> data = new ConcurrentHashMap<>();
+    private final Queue<Node> readBuffer = new ConcurrentLinkedQueue<>();
+    private final Queue<Node> evicted = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pendingReads = new AtomicInteger();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final AccessOrder probation = new AccessOrder();
+    private final AccessOrder protectedSegment = new AccessOrder();
+    private final LongAdder sizeEvictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+    private final long maximum;
+    private final long maxProtected;
+    private final long ttl;
+    private final Weigher weigher;
+    private final TimerWheel timers;
+    private EvictionListener evictionListener = (k, v, t) -> {};
+
+    ConcurrentCache(int maxSize, long ttl) {
+        this(maxSize, ttl, null);
+    }
+
+    ConcurrentCache(long maximum, long ttl, Weigher weigher) {
+        this.maximum = maximum;
+        this.maxProtected = (long) (maximum * PROTECTED_RATIO);
+        this.ttl = ttl;
+        this.weigher = weigher;
+        this.timers = new TimerWheel(now());
+    }
+
+    @Override
+    public <T> HttpResponse get(Key key, Supplier<HttpResponse<T>> fetcher) {
+        return (HttpResponse) getOrLoad(key, fetcher);
+    }
+
+    @Override
+    public <T> CompletableFuture getAsync(Key key, Supplier<CompletableFuture<HttpResponse<T>>> fetcher) {
+        return (CompletableFuture) getOrLoad(key, fetcher);
+    }
+
+    /**
+     * sets a listener which is told about every value evicted because the cache was full.
+     * It is called once the eviction lock has been released, on the thread whose write caused the eviction.
+     */
+    void onEviction(EvictionListener listener) {
+        this.evictionListener = listener;
+    }
+
+    /**
+     * Restarts the time to live of a key from the given time, for values which have been refreshed in place
+     * @param key the key of the refreshed value
+     * @param fromMillis the time the value was refreshed in epoch millis
+     */
+    void renew(Key key, long fromMillis) {
+        expireAt(key, fromMillis + ttl);
+    }
+
+    /**
+     * Sets when a key expires, for values which were first written before the key they are now cached under
+     * @param key the key of the value
+     * @param expiresAt the time the value expires in epoch millis
+     */
+    void expireAt(Key key, long expiresAt) {
+        Node node = data.get(key);
+        if (ttl <= 0 || node == null) {
+            return;
+        }
+        evictionLock.lock();
+        try {
+            if (!node.retired) {
+                timers.reschedule(node, expiresAt);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * visits every loaded value which has not expired. Entries which are still loading or which failed are skipped.
+     */
+    void forEachLoaded(BiConsumer<Key, Object> action) {
+        for (Node node : data.values()) {
+            if (!node.retired && !isExpired(node) && isLoaded(node.value)) {
+                Object value = node.value.join();
+                if (!(value instanceof CompletableFuture) || isLoaded((CompletableFuture<?>) value)) {
+                    action.accept(node.key, value);
+                }
+            }
+        }
+    }
+
+    int size() {
+        return data.size();
+    }
+
+    long getWeight() {
+        return probation.weight + protectedSegment.weight;
+    }
+
+    long getEntryCount() {
+        return data.size();
+    }
+
+    long getSizeEvictionCount() {
+        return sizeEvictions.sum();
+    }
+
+    long getExpiredCount() {
+        return expirations.sum();
+    }
+
+    long getEvictionCount() {
+        return getSizeEvictionCount() + getExpiredCount();
+    }
+
+    private Object getOrLoad(Key key, Supplier<?> fetcher) {
+        Node node = data.get(key);
+        if (node != null && isExpired(node)) {
+            if (discard(node)) {
+                expirations.increment();
+            }
+            node = data.get(key);
+        }
+        if (node == null) {
+            Node created = new Node(key);
+            node = data.putIfAbsent(key, created);
+            if (node == null) {
+                afterWrite(created);
+                return created.load(fetcher);
+            }
+        }
+        afterRead(node);
+        return node.join();
+    }
+
+    private static boolean isLoaded(CompletableFuture<?> future) {
+        return future.isDone() && !future.isCompletedExceptionally();
+    }
+
+    private boolean isExpired(Node node) {
+        return ttl > 0 && node.isExpired(now());
+    }
+
+    private static long now() {
+        return Util.now().toEpochMilli();
+    }
+
+    private void afterRead(Node node) {
+        if (pendingReads.incrementAndGet() <= MAX_PENDING_READS) {
+            readBuffer.add(node);
+        } else {
+            pendingReads.decrementAndGet();
+        }
+        if (evictionLock.tryLock()) {
+            try {
+                drainReads();
+                expire();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    private void afterWrite(Node node) {
+        evictionLock.lock();
+        try {
+            drainReads();
+            if (!node.retired) {
+                probation.add(node);
+                schedule(node);
+            }
+            expire();
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted();
+    }
+
+    private void drainReads() {
+        Node node;
+        while ((node = readBuffer.poll()) != null) {
+            pendingReads.decrementAndGet();
+            if (!node.retired && node.owner != null) {
+                onAccess(node);
+            }
+        }
+    }
+
+    private void onAccess(Node node) {
+        if (node.owner == protectedSegment || maxProtected == 0) {
+            node.owner.moveToTail(node);
+            return;
+        }
+        probation.remove(node);
+        protectedSegment.add(node);
+        while (protectedSegment.weight > maxProtected && protectedSegment.head != node) {
+            Node demoted = protectedSegment.head;
+            protectedSegment.remove(demoted);
+            probation.add(demoted);
+        }
+    }
+
+    private void schedule(Node node) {
+        if (ttl > 0) {
+            timers.schedule(node);
+        }
+    }
+
+    private void expire() {
+        if (ttl > 0) {
+            timers.advance(now(), t -> {
+                Node expired = (Node) t;
+                data.remove(expired.key, expired);
+                retire(expired);
+                expirations.increment();
+            });
+        }
+    }
+
+    private void evict() {
+        while (getWeight() > maximum) {
+            Node victim = probation.head != null ? probation.head : protectedSegment.head;
+            data.remove(victim.key, victim);
+            retire(victim);
+            sizeEvictions.increment();
+            if (victim.value.isDone() && !victim.value.isCompletedExceptionally()) {
+                evicted.add(victim);
+            }
+        }
+    }
+
+    private void notifyEvicted() {
+        Node victim;
+        while ((victim = evicted.poll()) != null) {
+            evictionListener.evicted(victim.key, victim.value.join(), victim.getExpiresAt());
+        }
+    }
+
+    private void weigh(Node node, Object loaded) {
+        if (weigher == null) {
+            return;
+        }
+        if (loaded instanceof CompletableFuture) {
+            ((CompletableFuture<?>) loaded).thenAccept(r -> weigh(node, r));
+        } else if (loaded instanceof HttpResponse) {
+            setWeight(node, weigher.weigh(node.key, (HttpResponse<?>) loaded));
+        }
+    }
+
+    private void setWeight(Node node, long weight) {
+        evictionLock.lock();
+        try {
+            AccessOrder owner = node.owner;
+            if (owner != null) {
+                owner.remove(node);
+            }
+            node.weight = weight;
+            if (owner != null) {
+                owner.add(node);
+            }
+            evict();
+        } finally {
+            evictionLock.unlock();
+        }
+        notifyEvicted();
+    }
+
+    private boolean discard(Node node) {
+        boolean removed = data.remove(node.key, node);
+        evictionLock.lock();
+        try {
+            retire(node);
+        } finally {
+            evictionLock.unlock();
+        }
+        return removed;
+    }
+
+    private void retire(Node node) {
+        node.retired = true;
+        timers.deschedule(node);
+        if (node.owner != null) {
+            node.owner.remove(node);
+        }
+    }
+
+    /**
+     * told about every value evicted because the cache was full
+     */
+    interface EvictionListener {
+        /**
+         * @param key the key of the value
+         * @param value the evicted value
+         * @param expiresAt the time the value would have expired in epoch millis, or Long.MAX_VALUE without a ttl
+         */
+        void evicted(Key key, Object value, long expiresAt);
+    }
+
+    private class Node extends TimerWheel.Timer {
+        private final Key key;
+        private final CompletableFuture<Object> value = new CompletableFuture<>();
+        private volatile boolean retired;
+        private AccessOrder owner;
+        private long weight;
+        private Node prev;
+        private Node next;
+
+        Node(Key key) {
+            super(ttl > 0 ? key.getTime().toEpochMilli() + ttl : Long.MAX_VALUE);
+            this.key = key;
+            this.weight = weigher == null ? 1 : 0;
+        }
+
+        Object load(Supplier<?> fetcher) {
+            try {
+                Object loaded = fetcher.get();
+                if (loaded instanceof CompletableFuture) {
+                    // a failed async response must not be served to every later caller
+                    ((CompletableFuture<?>) loaded).whenComplete((r, e) -> {
+                        if (e != null) {
+                            discard(this);
+                        }
+                    });
+                }
+                value.complete(loaded);
+                weigh(this, loaded);
+                return loaded;
+            } catch (Throwable e) {
+                discard(this);
+                value.completeExceptionally(e);
+                throw e;
+            }
+        }
+
+        Object join() {
+            try {
+                return value.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+    }
+
+    private static class AccessOrder {
+        private Node head;
+        private Node tail;
+        private volatile long weight;
+
+        void add(Node node) {
+            node.owner = this;
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) {
+                head = node;
+            } else {
+                tail.next = node;
+            }
+            tail = node;
+            weight += node.weight;
+        }
+
+        void remove(Node node) {
+            if (node.prev == null) {
+                head = node.next;
+            } else {
+                node.prev.next = node.next;
+            }
+            if (node.next == null) {
+                tail = node.prev;
+            } else {
+                node.next.prev = node.prev;
+            }
+            node.prev = null;
+            node.next = null;
+            node.owner = null;
+            weight -= node.weight;
+        }
+
+        void moveToTail(Node node) {
+            if (tail != node) {
+                remove(node);
+                add(node);
+            }
+        }
+    }
+}
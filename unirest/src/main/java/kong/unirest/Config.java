@@ -29,16 +29,22 @@ import kong.unirest.apache.ApacheAsyncClient;
 import kong.unirest.apache.ApacheClient;
 import org.apache.http.HttpRequestInterceptor;
 import org.apache.http.client.HttpClient;
+import org.apache.http.conn.DnsResolver;
 import org.apache.http.nio.client.HttpAsyncClient;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLContext;
 import java.io.InputStream;
+import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyStore;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -51,9 +57,11 @@ public class Config {
     public static final int DEFAULT_MAX_PER_ROUTE = 20;
     public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
     public static final int DEFAULT_SOCKET_TIMEOUT = 60000;
+    public static final int DEFAULT_ASYNC_RESPONSE_BUFFER_SIZE = 64 * 1024;
 
-    private Optional<Client> client = Optional.empty();
-    private Optional<AsyncClient> asyncClient = Optional.empty();
+    private volatile Optional<Client> client = Optional.empty();
+    private volatile Optional<AsyncClient> asyncClient = Optional.empty();
+    private final ReentrantLock clientLock = new ReentrantLock();
     private Optional<ObjectMapper> objectMapper = Optional.of(new JsonObjectMapper());
 
     private List<HttpRequestInterceptor> apacheinterceptors = new ArrayList<>();
@@ -61,8 +69,11 @@ public class Config {
     private Proxy proxy;
     private int connectionTimeout;
     private int socketTimeout;
-    private int maxTotal;
-    private int maxPerRoute;
+    private volatile int maxTotal;
+    private volatile int maxPerRoute;
+    private final Map<String, Integer> routeConcurrency = new ConcurrentHashMap<>();
+    private volatile int adaptiveConcurrency;
+    private int asyncResponseBufferSize;
     private boolean followRedirects;
     private boolean cookieManagement;
     private boolean useSystemProperties = true;
@@ -70,6 +81,9 @@ public class Config {
     private Function<Config, AsyncClient> asyncBuilder;
     private Function<Config, Client> clientBuilder;
     private boolean requestCompressionOn = true;
+    private boolean zeroCopyUploads;
+    private long downloadMonitorBytes;
+    private Duration downloadMonitorInterval = Duration.ZERO;
     private boolean automaticRetries;
     private boolean verifySsl = true;
     private boolean addShutdownHook = false;
@@ -81,10 +95,15 @@ public class Config {
     private SSLContext sslContext;
     private String[] ciphers;
     private String[] protocols;
+    private int sslSessionCacheSize;
+    private Duration sslSessionTimeout;
     private CompoundInterceptor interceptor = new CompoundInterceptor();
     private HostnameVerifier hostnameVerifier;
     private String defaultBaseUrl;
     private CacheManager cache;
+    private RequestCoalescer coalescer;
+    private Executor callbackExecutor;
+    private DnsResolver dnsResolver;
 
     public Config() {
         setDefaults();
@@ -94,22 +113,26 @@ public class Config {
         apacheinterceptors.clear();
         proxy = null;
         cache = null;
+        coalescer = null;
+        callbackExecutor = null;
+        dnsResolver = null;
         headers = new Headers();
         connectionTimeout = DEFAULT_CONNECTION_TIMEOUT;
         socketTimeout = DEFAULT_SOCKET_TIMEOUT;
         maxTotal = DEFAULT_MAX_CONNECTIONS;
         maxPerRoute = DEFAULT_MAX_PER_ROUTE;
+        routeConcurrency.clear();
+        adaptiveConcurrency = 0;
+        asyncResponseBufferSize = DEFAULT_ASYNC_RESPONSE_BUFFER_SIZE;
         followRedirects = true;
         useSystemProperties = true;
         cookieManagement = true;
         requestCompressionOn = true;
+        zeroCopyUploads = false;
+        downloadMonitorBytes = 0;
+        downloadMonitorInterval = Duration.ZERO;
         automaticRetries = true;
-        verifySsl = true;
-        keystore = null;
-        keystorePassword = null;
-        sslContext = null;
-        ciphers = null;
-        protocols = null;
+        setSslDefaults();
         interceptor = new CompoundInterceptor();
 
         this.objectMapper = Optional.of(new JsonObjectMapper());
@@ -122,6 +145,17 @@ public class Config {
         }
     }
 
+    private void setSslDefaults() {
+        verifySsl = true;
+        keystore = null;
+        keystorePassword = null;
+        sslContext = null;
+        ciphers = null;
+        protocols = null;
+        sslSessionCacheSize = -1;
+        sslSessionTimeout = null;
+    }
+
     /**
      * Set the HttpClient implementation to use for every synchronous request
      *
@@ -281,6 +315,25 @@ public class Config {
         return this;
     }
 
+    /**
+     * Tune the cache of TLS sessions the clients resume instead of making a full handshake with a host they
+     * have handshaken with before. Both clients share one cache, and each handshake is reported to UniMetric::tlsHandshake
+     * as full or resumed. The cache belongs to the SSLContext, so a context set with sslContext has its cache changed.
+     * @param size the most sessions to keep, 0 for no limit. By default the JDK keeps 20480.
+     * @param timeout how long a session may be resumed for, zero for no limit. By default the JDK keeps them for a day.
+     * @return this config object
+     */
+    public Config sslSessionCache(int size, Duration timeout) {
+        validateClientsNotRunning();
+        Objects.requireNonNull(timeout, "Timeout may not be null");
+        if (size < 0 || timeout.isNegative()) {
+            throw new UnirestConfigException("The ssl session cache size and timeout cannot be negative");
+        }
+        this.sslSessionCacheSize = size;
+        this.sslSessionTimeout = timeout;
+        return this;
+    }
+
     private void verifySecurityConfig(Object thing) {
         if(thing != null){
             throw new UnirestConfigException("You may only configure a SSLContext OR a Keystore, but not both");
@@ -347,16 +400,90 @@ public class Config {
     }
 
     /**
-     * Set the concurrency levels
+     * Set the concurrency levels.
+     * Unlike most settings this may be changed while the clients are running. Their pools are resized in place
+     * and requests which already hold a connection carry on undisturbed.
      *
      * @param total    Defines the overall connection limit for a connection pool. Default is 200.
      * @param perRoute Defines a connection limit per one HTTP route (this can be considered a per target host limit). Default is 20.
      * @return this config object
      */
     public Config concurrency(int total, int perRoute) {
-        validateClientsNotRunning();
         this.maxTotal = total;
         this.maxPerRoute = perRoute;
+        resizePools();
+        return this;
+    }
+
+    /**
+     * Override the connection limit of one host or route, in place of the perRoute limit of concurrency(total, perRoute).
+     * May be changed while the clients are running, like concurrency.
+     *
+     * @param route either a host like somewhere.com, which covers every scheme and port of it,
+     *              or a route like https://somewhere.com:8443 which only covers that one and takes precedence over its host.
+     *              A route without a port uses the default port of its scheme.
+     * @param max the most connections the pool may hold for the host or route
+     * @return this config object
+     */
+    public Config routeConcurrency(String route, int max) {
+        Objects.requireNonNull(route, "Route may not be null");
+        if (max < 1) {
+            throw new UnirestConfigException("The route concurrency must be positive");
+        }
+        routeConcurrency.put(routeKey(route), max);
+        resizePools();
+        return this;
+    }
+
+    private static String routeKey(String route) {
+        String key = route.trim().toLowerCase();
+        if (!key.contains("://")) {
+            return key;
+        }
+        URI uri = URI.create(key);
+        if (uri.getHost() == null) {
+            throw new UnirestConfigException("Not a valid route: " + route);
+        }
+        int port = uri.getPort() != -1 ? uri.getPort() : "https".equals(uri.getScheme()) ? 443 : 80;
+        return uri.getScheme() + "://" + uri.getHost() + ":" + port;
+    }
+
+    /**
+     * Let the connection limit of each route adapt to its load. Whenever a request would have to wait for a connection
+     * the route's limit grows by one, up to the ceiling, and once the route has gone 30 seconds with less than half of
+     * its limit in use the limit is halved back towards its configured one. The total limit still applies to all routes.
+     * May be changed while the clients are running, like concurrency.
+     *
+     * @param ceiling the most connections any route may grow to, or 0 to turn adaptive concurrency off (the default)
+     * @return this config object
+     */
+    public Config adaptiveConcurrency(int ceiling) {
+        if (ceiling < 0) {
+            throw new UnirestConfigException("The adaptive concurrency ceiling cannot be negative");
+        }
+        this.adaptiveConcurrency = ceiling;
+        resizePools();
+        return this;
+    }
+
+    private void resizePools() {
+        pooled(client).ifPresent(PooledClient::resizePool);
+        pooled(asyncClient).ifPresent(PooledClient::resizePool);
+    }
+
+    /**
+     * Set the size of the buffer the async client reads response bodies into.
+     * Bodies which fit are read in full before the response is transformed, larger or chunked bodies are streamed
+     * through the buffer to the transformer (a file, a parser or a consumer) so memory stays bounded by this size.
+     * @param bytes the buffer size in bytes
+     * @return this config object
+     */
+    public Config asyncResponseBufferSize(int bytes) {
+        validateClientsNotRunning();
+        if (bytes < 1) {
+            throw new UnirestConfigException("The async response buffer size must be positive");
+        }
+        this.asyncResponseBufferSize = bytes;
         return this;
     }
 
@@ -447,6 +574,32 @@ public class Config {
         return this;
     }
 
+    /**
+     * Complete async requests on an executor rather than on the I/O threads of the async client.
+     * Callbacks and any stages chained on the returned futures then run on that executor,
+     * for example Executors.newVirtualThreadPerTaskExecutor() on Java 21.
+     * @param executor the executor for async callbacks, or null to complete them on the I/O threads
+     * @return this config object
+     */
+    public Config callbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        return this;
+    }
+
+    /**
+     * Resolve host names for the Apache clients with this resolver rather than the system's.
+     * A CachingDnsResolver keeps addresses for a time to live of its own, refreshes them in the background before they
+     * expire and hands out the addresses of a host in turn, so connections are spread across all of them.
+     * Both the sync and the async client use the same resolver.
+     * @param resolver the resolver, or null for the system's
+     * @return this config object
+     */
+    public Config dnsResolver(DnsResolver resolver) {
+        validateClientsNotRunning();
+        this.dnsResolver = resolver;
+        return this;
+    }
+
     /**
      * Sets a global error handler by wrapping it in a default interceptor
      * If the response was NOT a 200-series response or a mapping exception happened. Invoke this consumer,
@@ -551,6 +704,41 @@ public class Config {
         return this;
     }
 
+    /**
+     * Throttle the callbacks of download ProgressMonitors so they are called at most once every so many bytes
+     * and at most once per interval. The final count is always reported when the download ends.
+     * By default every read from the response is reported.
+     *
+     * @param bytes the least number of bytes between callbacks, 0 for no limit
+     * @param interval the least time between callbacks, Duration.ZERO for no limit
+     * @return this config object
+     */
+    public Config downloadMonitorThrottle(long bytes, Duration interval) {
+        Objects.requireNonNull(interval);
+        if (bytes < 0 || interval.isNegative()) {
+            throw new UnirestConfigException("The download monitor throttle cannot be negative");
+        }
+        this.downloadMonitorBytes = bytes;
+        this.downloadMonitorInterval = interval;
+        return this;
+    }
+
+    /**
+     * Send the files of multipart uploads from the synchronous client straight from the file to the socket
+     * with FileChannel.transferTo rather than copying them through the heap. Only applies to plain HTTP
+     * connections with a known content length, TLS connections and chunked bodies are copied as usual.
+     * Turning this on makes the client open its plain sockets through a SocketChannel.
+     * Default is false
+     *
+     * @param value a bool is its true or not.
+     * @return this config object
+     */
+    public Config zeroCopyUploads(boolean value) {
+        validateClientsNotRunning();
+        this.zeroCopyUploads = value;
+        return this;
+    }
+
     /**
      * Automaticly retry certain recoverable errors like socket timeouts. Up to 4 times
      * Note that currently this only works on synchronous calls.
@@ -589,6 +777,7 @@ public class Config {
     public Config cacheResponses(boolean value) {
         if(value){
             this.cache = new CacheManager();
+            this.cache.instrumentWith(this::getMetric);
         } else {
             this.cache = null;
         }
@@ -602,6 +791,37 @@ public class Config {
      */
     public Config cacheResponses(Cache.Builder value) {
         this.cache = value.build();
+        this.cache.instrumentWith(this::getMetric);
+        this.cache.restoreSnapshot(this);
+        return this;
+    }
+
+    /**
+     * Collapse identical GET and HEAD requests which are already in flight into a single exchange.
+     * Callers arriving while the first request is running wait for it and receive the same response.
+     * Requests as files, objects, functions and consumers always make their own exchange.
+     * This works with or without response caching.
+     * @param value enable or disable request coalescing
+     * @return this config object
+     */
+    public Config coalesceRequests(boolean value) {
+        if(value){
+            this.coalescer = new RequestCoalescer();
+        } else {
+            this.coalescer = null;
+        }
+        return this;
+    }
+
+    /**
+     * Collapse identical GET and HEAD requests which are already in flight into a single exchange.
+     * Requests are considered identical when the key generator produces equal keys.
+     * The key generator is always called with isAsync as false so that sync and async requests are shared.
+     * @param keyGenerator the key generator used to identify identical requests
+     * @return this config object
+     */
+    public Config coalesceRequests(Cache.KeyGenerator keyGenerator) {
+        this.coalescer = new RequestCoalescer(keyGenerator);
         return this;
     }
 
@@ -713,10 +933,11 @@ public class Config {
      * @param clearOptions should the current non-client settings be retained.
      */
     public void shutDown(boolean clearOptions) {
-        List<Exception> ex = Stream.concat(
+        List<Exception> ex = Stream.of(
+                Optional.ofNullable(cache).map(CacheManager::saveSnapshot).orElseGet(Stream::empty),
                 client.map(Client::close).orElseGet(Stream::empty),
                 asyncClient.map(AsyncClient::close).orElseGet(Stream::empty)
-        ).collect(Collectors.toList());
+        ).flatMap(e -> e).collect(Collectors.toList());
 
         client = Optional.empty();
         asyncClient = Optional.empty();
@@ -744,16 +965,28 @@ public class Config {
     }
 
     private Client getFinalClient(){
+        Client c = client.get();
+        if(coalescer != null){
+            c = coalescer.wrap(c);
+        }
         if(cache == null){
-            return client.get();
+            return c;
         } else {
-            return cache.wrap(client.get());
+            return cache.wrap(c);
         }
     }
 
-    private synchronized void buildClient() {
-        if (!client.isPresent()) {
-            client = Optional.of(clientBuilder.apply(this));
+    /**
+     * Uses a lock rather than synchronized so that a virtual thread waiting on the first build does not pin its carrier
+     */
+    private void buildClient() {
+        clientLock.lock();
+        try {
+            if (!client.isPresent()) {
+                client = Optional.of(clientBuilder.apply(this));
+            }
+        } finally {
+            clientLock.unlock();
         }
     }
 
@@ -771,10 +1004,37 @@ public class Config {
     }
 
     private AsyncClient getFinalAsyncClient(){
-        if(cache == null){
-            return asyncClient.get();
+        AsyncClient c = asyncClient.get();
+        if(coalescer != null){
+            c = coalescer.wrapAsync(c);
+        }
+        if(cache != null){
+            c = cache.wrapAsync(c);
+        }
+        if(callbackExecutor != null){
+            c = new ExecutorAsyncClient(c, callbackExecutor);
+        }
+        return c;
+    }
+
+    /**
+     * @return the synchronous client without the cache or request coalescing in front of it
+     */
+    Client getOriginClient() {
+        if (!client.isPresent()) {
+            buildClient();
         }
-        return cache.wrapAsync(asyncClient.get());
+        return client.get();
+    }
+
+    /**
+     * @return the async client without the cache, request coalescing or callback executor in front of it
+     */
+    AsyncClient getOriginAsyncClient() {
+        if (!asyncClientIsReady()) {
+            buildAsyncClient();
+        }
+        return asyncClient.get();
     }
 
     private boolean asyncClientIsReady() {
@@ -783,11 +1043,16 @@ public class Config {
                 .orElse(false);
     }
 
-    private synchronized void buildAsyncClient() {
-        if (!asyncClientIsReady()) {
-            AsyncClient value = asyncBuilder.apply(this);
-            verifyIsOn(value);
-            asyncClient = Optional.of(value);
+    private void buildAsyncClient() {
+        clientLock.lock();
+        try {
+            if (!asyncClientIsReady()) {
+                AsyncClient value = asyncBuilder.apply(this);
+                verifyIsOn(value);
+                asyncClient = Optional.of(value);
+            }
+        } finally {
+            clientLock.unlock();
         }
     }
 
@@ -831,6 +1096,30 @@ public class Config {
         return maxPerRoute;
     }
 
+    /**
+     * @return the connection limits of hosts and routes which override the maximum number of connections per route,
+     * keyed by host (somewhere.com) or route (https://somewhere.com:443)
+     */
+    public Map<String, Integer> getRouteConcurrency() {
+        return Collections.unmodifiableMap(routeConcurrency);
+    }
+
+    /**
+     * @return the ceiling routes may grow their connection limit to under load, or 0 if adaptive concurrency is off
+     *         default: 0
+     */
+    public int getAdaptiveConcurrency() {
+        return adaptiveConcurrency;
+    }
+
+    /**
+     * @return the size of the buffer the async client reads response bodies into
+     *         default: 65536
+     */
+    public int getAsyncResponseBufferSize() {
+        return asyncResponseBufferSize;
+    }
+
     /**
      * @return the connection timeout in milliseconds
      *         default: 10000
@@ -915,6 +1204,27 @@ public class Config {
         return requestCompressionOn;
     }
 
+    /**
+     * @return the least number of bytes between download ProgressMonitor callbacks
+     */
+    public long getDownloadMonitorBytes() {
+        return downloadMonitorBytes;
+    }
+
+    /**
+     * @return the least time between download ProgressMonitor callbacks
+     */
+    public Duration getDownloadMonitorInterval() {
+        return downloadMonitorInterval;
+    }
+
+    /**
+     * @return if file uploads are sent with FileChannel.transferTo where possible (default is false)
+     */
+    public boolean isZeroCopyUploadsOn() {
+        return zeroCopyUploads;
+    }
+
     /**
      * @return if automatic retries are on (default is false)
      */
@@ -953,6 +1263,79 @@ public class Config {
         return metrics;
     }
 
+    /**
+     * @return the executor async requests are completed on or null if they complete on the I/O threads
+     */
+    public Executor getCallbackExecutor() {
+        return callbackExecutor;
+    }
+
+    /**
+     * @return the resolver host names are looked up with or null for the system's
+     */
+    public DnsResolver getDnsResolver() {
+        return dnsResolver;
+    }
+
+    /**
+     * @return the statistics of the response cache or null if caching is off
+     */
+    public CacheStats getCacheStats() {
+        if(cache == null){
+            return null;
+        }
+        return cache.getStats();
+    }
+
+    /**
+     * @return the counters of the request coalescing layer or null if coalescing is not enabled
+     */
+    public CoalescingStats getCoalescingStats() {
+        return coalescer;
+    }
+
+    /**
+     * @return a snapshot of the synchronous client's connection pool, or null if the client has not been
+     * built yet or does not pool connections
+     */
+    public PoolStats getPoolStats() {
+        return poolStats(client);
+    }
+
+    /**
+     * @return a snapshot of the asynchronous client's connection pool, or null if the client has not been
+     * built yet or does not pool connections
+     */
+    public PoolStats getAsyncPoolStats() {
+        return poolStats(asyncClient);
+    }
+
+    /**
+     * Builds the clients if need be and warms connections to each url in the pools of those which pool connections.
+     * The asynchronous client's connections count as warm once open, their TLS handshakes finish in the background.
+     * see UnirestInstance::warmUp
+     */
+    CompletableFuture<Void> warmUp(int connections, String... urls) {
+        if (connections < 1) {
+            throw new UnirestException("Warming up needs at least one connection per route");
+        }
+        getClient();
+        getAsyncClient();
+        CompletableFuture<?>[] warming = Stream.of(pooled(client), pooled(asyncClient))
+                .flatMap(c -> c.map(Stream::of).orElseGet(Stream::empty))
+                .flatMap(c -> Stream.of(urls).map(url -> c.warmUp(url, connections)))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(warming);
+    }
+
+    private static PoolStats poolStats(Optional<?> client) {
+        return pooled(client).map(PooledClient::getPoolStats).orElse(null);
+    }
+
+    private static Optional<PooledClient> pooled(Optional<?> client) {
+        return client.filter(PooledClient.class::isInstance).map(PooledClient.class::cast);
+    }
+
     /**
      * @return the maximum life span of persistent connections regardless of their expiration setting.
      */
@@ -1013,6 +1396,21 @@ public class Config {
         return protocols;
     }
 
+    /**
+     * @return the most TLS sessions the clients keep to resume, or -1 to leave the size to the JDK
+     *         default: -1
+     */
+    public int getSslSessionCacheSize() {
+        return sslSessionCacheSize;
+    }
+
+    /**
+     * @return how long the clients may resume a TLS session for, or null to leave the timeout to the JDK
+     */
+    public Duration getSslSessionTimeout() {
+        return sslSessionTimeout;
+    }
+
     /**
      * @return the default base URL
      */
@@ -0,0 +1,104 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Completes the futures of an async client on an executor rather than on the thread which
+ * received the response, so that callbacks and dependent stages never run on the I/O threads.
+ * see Config::callbackExecutor
+ */
+class ExecutorAsyncClient implements AsyncClient {
+    private final AsyncClient delegate;
+    private final Executor executor;
+
+    ExecutorAsyncClient(AsyncClient delegate, Executor executor) {
+        this.delegate = delegate;
+        this.executor = executor;
+    }
+
+    @Override
+    public <T> T getClient() {
+        return delegate.getClient();
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                          Function<RawResponse, HttpResponse<T>> transformer,
+                                                          CompletableFuture<HttpResponse<T>> callback) {
+        return request(request, transformer, callback, Object.class);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                          Function<RawResponse, HttpResponse<T>> transformer,
+                                                          CompletableFuture<HttpResponse<T>> callback,
+                                                          Class<?> resultType) {
+        CompletableFuture<HttpResponse<T>> received = new CompletableFuture<>();
+        received.whenComplete((r, ex) -> {
+            try {
+                executor.execute(() -> complete(callback, r, ex));
+            } catch (RejectedExecutionException e) {
+                callback.completeExceptionally(e);
+            }
+        });
+        callback.whenComplete((r, ex) -> {
+            if (callback.isCancelled()) {
+                received.cancel(true);
+            }
+        });
+        delegate.request(request, transformer, received, resultType);
+        return callback;
+    }
+
+    private static <T> void complete(CompletableFuture<HttpResponse<T>> callback, HttpResponse<T> response, Throwable ex) {
+        if (ex != null) {
+            callback.completeExceptionally(ex);
+        } else {
+            callback.complete(response);
+        }
+    }
+
+    @Override
+    public void registerShutdownHook() {
+        delegate.registerShutdownHook();
+    }
+
+    @Override
+    public Stream<Exception> close() {
+        return delegate.close();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return delegate.isRunning();
+    }
+}
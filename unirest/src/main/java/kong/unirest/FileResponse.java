@@ -28,10 +28,16 @@ package kong.unirest;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
 
 public class FileResponse extends BaseResponse<File> {
     private File body;
@@ -40,14 +46,33 @@ public class FileResponse extends BaseResponse<File> {
         super(r);
         try {
             Path target = Paths.get(path);
-            InputStream content = getContent(r, downloadMonitor, target);
-            Files.copy(content, target, copyOptions);
+            if (r instanceof CachedRawResponse && downloadMonitor == null) {
+                write(((CachedRawResponse) r).getBuffer(), target, copyOptions);
+            } else {
+                InputStream content = getContent(r, downloadMonitor, target);
+                Files.copy(content, target, copyOptions);
+            }
             body = target.toFile();
         } catch (IOException e) {
             throw new UnirestException(e);
         }
     }
 
+    private static void write(ByteBuffer content, Path target, CopyOption... copyOptions) throws IOException {
+        try (FileChannel channel = open(target, copyOptions)) {
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+        }
+    }
+
+    static FileChannel open(Path target, CopyOption... copyOptions) throws IOException {
+        OpenOption create = Arrays.asList(copyOptions).contains(StandardCopyOption.REPLACE_EXISTING)
+                ? StandardOpenOption.CREATE
+                : StandardOpenOption.CREATE_NEW;
+        return FileChannel.open(target, create, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
     private InputStream getContent(RawResponse r, ProgressMonitor downloadMonitor, Path target) {
         if(downloadMonitor == null){
             return r.getContent();
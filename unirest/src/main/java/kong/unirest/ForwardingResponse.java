@@ -0,0 +1,107 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * A HttpResponse which delegates everything to another response.
+ * Cache entries extend this so they can be stored as responses while the response they hold changes.
+ */
+abstract class ForwardingResponse<T> implements HttpResponse<T> {
+
+    /**
+     * @return the response to delegate to
+     */
+    abstract HttpResponse<T> getResponse();
+
+    @Override
+    public int getStatus() {
+        return getResponse().getStatus();
+    }
+
+    @Override
+    public String getStatusText() {
+        return getResponse().getStatusText();
+    }
+
+    @Override
+    public Headers getHeaders() {
+        return getResponse().getHeaders();
+    }
+
+    @Override
+    public T getBody() {
+        return getResponse().getBody();
+    }
+
+    @Override
+    public Optional<UnirestParsingException> getParsingError() {
+        return getResponse().getParsingError();
+    }
+
+    @Override
+    public <V> V mapBody(Function<T, V> func) {
+        return getResponse().mapBody(func);
+    }
+
+    @Override
+    public <V> HttpResponse<V> map(Function<T, V> func) {
+        return getResponse().map(func);
+    }
+
+    @Override
+    public HttpResponse<T> ifSuccess(Consumer<HttpResponse<T>> consumer) {
+        return getResponse().ifSuccess(consumer);
+    }
+
+    @Override
+    public HttpResponse<T> ifFailure(Consumer<HttpResponse<T>> consumer) {
+        return getResponse().ifFailure(consumer);
+    }
+
+    @Override
+    public <E> HttpResponse<T> ifFailure(Class<? extends E> errorClass, Consumer<HttpResponse<E>> consumer) {
+        return getResponse().ifFailure(errorClass, consumer);
+    }
+
+    @Override
+    public boolean isSuccess() {
+        return getResponse().isSuccess();
+    }
+
+    @Override
+    public <E> E mapError(Class<? extends E> errorClass) {
+        return getResponse().mapError(errorClass);
+    }
+
+    @Override
+    public Cookies getCookies() {
+        return getResponse().getCookies();
+    }
+}
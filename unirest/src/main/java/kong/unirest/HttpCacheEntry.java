@@ -0,0 +1,270 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+
+/**
+ * A cached response along with the freshness information the origin sent with it.
+ * The entry is what gets stored in the backing cache, it is refreshed in place when
+ * revalidation returns a 304 and replaced in place when the origin sends a new response.
+ * As a HttpResponse it simply delegates to the currently stored response.
+ */
+class HttpCacheEntry<T> extends ForwardingResponse<T> {
+    private static final Set<Integer> CACHEABLE = new HashSet<>(Arrays.asList(200, 203, 204, 300, 301, 404, 405, 410, 414, 501));
+    private static final double HEURISTIC_FRACTION = 0.1;
+
+    private volatile Stored<T> stored;
+
+    HttpCacheEntry(HttpRequest request, HttpResponse<T> response, Instant requested, Instant received) {
+        replace(request, response, requested, received);
+    }
+
+    /**
+     * Rebuilds an entry read back from a cache snapshot
+     * @param headers the headers freshness is worked out from, which a revalidation may have updated
+     * @param varied the headers of the original request which the response varies on
+     */
+    HttpCacheEntry(HttpResponse<T> response, Headers headers, Headers varied, Instant requested, Instant received) {
+        stored = new Stored<>(varied, response, headers, requested, received);
+    }
+
+    /**
+     * @return the response currently held by this entry
+     */
+    @Override
+    HttpResponse<T> getResponse() {
+        return stored.response;
+    }
+
+    /**
+     * @param request the current request
+     * @param now the current time
+     * @return true if the stored response may be served without contacting the origin
+     */
+    boolean isFresh(HttpRequest request, Instant now) {
+        Stored<T> s = stored;
+        CacheControl requested = new CacheControl(request.getHeaders());
+        if (!s.storable || s.noCache || requested.has(CacheControl.NO_CACHE) || !s.varyMatches(request)) {
+            return false;
+        }
+        long age = s.currentAge(now);
+        long maxAge = requested.seconds(CacheControl.MAX_AGE);
+        if (maxAge >= 0 && age > maxAge * 1000) {
+            return false;
+        }
+        return s.lifetime > age;
+    }
+
+    /**
+     * @param request the current request
+     * @return true if the stored response has a validator which can be used in a conditional request
+     */
+    boolean canRevalidate(HttpRequest request) {
+        Stored<T> s = stored;
+        return s.storable && s.varyMatches(request) && (s.etag != null || s.lastModified != null);
+    }
+
+    /**
+     * Copies the request with If-None-Match and If-Modified-Since headers for the stored validators.
+     * The caller's request is left alone as the exchange may be sent after this returns and the request may be shared.
+     * @param request the request to make conditional
+     * @return the conditional copy, or the request itself if it has a body and cannot be copied
+     */
+    HttpRequest conditional(HttpRequest request) {
+        if (!(request instanceof BaseRequest) || request.getBody().isPresent()) {
+            return request;
+        }
+        Stored<T> s = stored;
+        HttpRequestNoBody copy = new HttpRequestNoBody((BaseRequest) request, request.getHttpMethod());
+        Headers headers = copy.getHeaders();
+        if (s.etag != null && !headers.containsKey(HeaderNames.IF_NONE_MATCH)) {
+            copy.header(HeaderNames.IF_NONE_MATCH, s.etag);
+        }
+        if (s.lastModified != null && !headers.containsKey(HeaderNames.IF_MODIFIED_SINCE)) {
+            copy.header(HeaderNames.IF_MODIFIED_SINCE, s.lastModified);
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if the stored response may be served or revalidated at all
+     */
+    boolean isStorable() {
+        return stored.storable;
+    }
+
+    /**
+     * @return the headers freshness is worked out from
+     */
+    Headers getStoredHeaders() {
+        return stored.headers;
+    }
+
+    /**
+     * @return the headers of the original request which the response varies on
+     */
+    Headers getVariedHeaders() {
+        Headers headers = new Headers();
+        stored.varied.forEach((name, values) -> values.forEach(v -> headers.add(name, v)));
+        return headers;
+    }
+
+    Instant getRequested() {
+        return stored.requested;
+    }
+
+    Instant getReceived() {
+        return stored.received;
+    }
+
+    /**
+     * Updates the freshness of the stored response from a 304 Not Modified.
+     * The stored body is kept, the headers of the 304 take precedence for freshness.
+     */
+    void refresh(HttpRequest request, HttpResponse<?> notModified, Instant requested, Instant received) {
+        Stored<T> s = stored;
+        Headers merged = new Headers();
+        merged.putAll(s.headers);
+        notModified.getHeaders().all().forEach(h -> merged.replace(h.getName(), h.getValue()));
+        stored = new Stored<>(request.getHeaders(), s.response, merged, requested, received);
+    }
+
+    /**
+     * Replaces the stored response with a new one from the origin
+     */
+    void replace(HttpRequest request, HttpResponse<T> response, Instant requested, Instant received) {
+        Headers headers = new Headers();
+        if (response != null) {
+            headers.putAll(response.getHeaders());
+        }
+        stored = new Stored<>(request.getHeaders(), response, headers, requested, received);
+    }
+
+    private static class Stored<T> {
+        private final HttpResponse<T> response;
+        private final Headers headers;
+        private final Instant requested;
+        private final Instant received;
+        private final boolean storable;
+        private final boolean noCache;
+        private final long lifetime;
+        private final String etag;
+        private final String lastModified;
+        private final Map<String, List<String>> varied = new HashMap<>();
+
+        Stored(Headers request, HttpResponse<T> response, Headers headers, Instant requested, Instant received) {
+            CacheControl control = new CacheControl(headers);
+            this.response = response;
+            this.headers = headers;
+            this.requested = requested;
+            this.received = received;
+            this.noCache = control.has(CacheControl.NO_CACHE);
+            this.lifetime = lifetime(control);
+            this.etag = validator(headers, HeaderNames.ETAG);
+            this.lastModified = validator(headers, HeaderNames.LAST_MODIFIED);
+            this.storable = isStorable(request, response, control) && recordVary(request)
+                    && (lifetime > 0 || etag != null || lastModified != null);
+        }
+
+        private static String validator(Headers headers, String name) {
+            String value = headers.getFirst(name);
+            return Util.isNullOrEmpty(value) ? null : value;
+        }
+
+        private boolean isStorable(Headers request, HttpResponse<T> candidate, CacheControl control) {
+            return candidate != null
+                    && CACHEABLE.contains(candidate.getStatus())
+                    && !control.has(CacheControl.NO_STORE)
+                    && !new CacheControl(request).has(CacheControl.NO_STORE);
+        }
+
+        private boolean recordVary(Headers request) {
+            for (String value : headers.get(HeaderNames.VARY)) {
+                for (String name : value.split(",")) {
+                    String header = name.trim();
+                    if (header.equals("*")) {
+                        return false;
+                    }
+                    varied.put(header, request.get(header));
+                }
+            }
+            return true;
+        }
+
+        boolean varyMatches(HttpRequest request) {
+            return varied.entrySet().stream()
+                    .allMatch(e -> e.getValue().equals(request.getHeaders().get(e.getKey())));
+        }
+
+        long currentAge(Instant now) {
+            Instant date = parseDate(headers.getFirst(HeaderNames.DATE)).orElse(received);
+            long apparentAge = Math.max(0, Duration.between(date, received).toMillis());
+            long correctedAge = ageHeader() + Duration.between(requested, received).toMillis();
+            return Math.max(apparentAge, correctedAge) + Duration.between(received, now).toMillis();
+        }
+
+        private long ageHeader() {
+            try {
+                return Math.max(0, Long.parseLong(headers.getFirst(HeaderNames.AGE).trim()) * 1000);
+            } catch (NumberFormatException | NullPointerException e) {
+                return 0;
+            }
+        }
+
+        private long lifetime(CacheControl control) {
+            long maxAge = control.seconds(CacheControl.MAX_AGE);
+            if (maxAge >= 0) {
+                return maxAge * 1000;
+            }
+            Optional<Instant> date = parseDate(headers.getFirst(HeaderNames.DATE));
+            if (headers.containsKey(HeaderNames.EXPIRES)) {
+                return parseDate(headers.getFirst(HeaderNames.EXPIRES))
+                        .map(e -> Duration.between(date.orElse(received), e).toMillis())
+                        .orElse(0L);
+            }
+            return parseDate(headers.getFirst(HeaderNames.LAST_MODIFIED))
+                    .map(m -> (long) (Duration.between(m, date.orElse(received)).toMillis() * HEURISTIC_FRACTION))
+                    .orElse(0L);
+        }
+
+        private static Optional<Instant> parseDate(String value) {
+            if (value == null) {
+                return Optional.empty();
+            }
+            try {
+                return Optional.of(ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+            } catch (DateTimeParseException e) {
+                return Optional.empty();
+            }
+        }
+    }
+}
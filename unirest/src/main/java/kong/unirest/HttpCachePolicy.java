@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serves cached responses according to the freshness rules of RFC 9111.
+ * Only GET and HEAD requests are cached. Fresh entries are served from the cache,
+ * stale entries are revalidated with If-None-Match / If-Modified-Since and a 304
+ * refreshes the stored entry without transferring or parsing the body again.
+ * Loads are given the request to send, which for a revalidation is a conditional copy of the caller's request.
+ */
+class HttpCachePolicy {
+    private final Cache cache;
+
+    HttpCachePolicy(Cache cache) {
+        this.cache = cache;
+    }
+
+    <T> HttpResponse<T> request(Cache.Key key, HttpRequest request, Function<HttpRequest, Supplier<HttpResponse<T>>> origin) {
+        if (!isCacheable(request)) {
+            return origin.apply(request).get();
+        }
+        boolean[] loaded = {false};
+        HttpCacheEntry<T> entry = (HttpCacheEntry<T>) cache.get(key, () -> {
+            loaded[0] = true;
+            Instant requested = Util.now();
+            return new HttpCacheEntry<>(request, origin.apply(request).get(), requested, Util.now());
+        });
+        if (loaded[0] || entry.isFresh(request, Util.now())) {
+            return entry.getResponse();
+        }
+        Instant requested = Util.now();
+        return update(entry, request, origin.apply(conditional(entry, request)).get(), requested);
+    }
+
+    <T> CompletableFuture<HttpResponse<T>> requestAsync(Cache.Key key,
+                                                        HttpRequest request,
+                                                        Function<HttpRequest, CacheManager.AsyncLoad<T>> origin,
+                                                        CompletableFuture<HttpResponse<T>> callback) {
+        if (!isCacheable(request)) {
+            return origin.apply(request).apply(callback);
+        }
+        boolean[] fetched = {false};
+        CompletableFuture<HttpResponse<T>> loaded = new CompletableFuture<>();
+        CompletableFuture<HttpCacheEntry<T>> entry = cache.getAsync(key, () -> {
+            fetched[0] = true;
+            Instant requested = Util.now();
+            CompletableFuture<HttpResponse<T>> first = origin.apply(request).apply(loaded);
+            return (CompletableFuture) first.handle((r, ex) -> new HttpCacheEntry<>(request, r, requested, Util.now()));
+        });
+        if (fetched[0]) {
+            return Util.pipe(loaded, callback);
+        }
+        return Util.pipe(entry.thenCompose(e -> serveOrRevalidate(e, request, origin)), callback);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> serveOrRevalidate(HttpCacheEntry<T> entry,
+                                                                     HttpRequest request,
+                                                                     Function<HttpRequest, CacheManager.AsyncLoad<T>> origin) {
+        if (entry.isFresh(request, Util.now())) {
+            return CompletableFuture.completedFuture(entry.getResponse());
+        }
+        Instant requested = Util.now();
+        return origin.apply(conditional(entry, request))
+                .apply(new CompletableFuture<>())
+                .thenApply(r -> update(entry, request, r, requested));
+    }
+
+    private <T> HttpRequest conditional(HttpCacheEntry<T> entry, HttpRequest request) {
+        if (entry.canRevalidate(request)) {
+            return entry.conditional(request);
+        }
+        return request;
+    }
+
+    private <T> HttpResponse<T> update(HttpCacheEntry<T> entry, HttpRequest request, HttpResponse<T> response, Instant requested) {
+        Instant received = Util.now();
+        if (response != null && response.getStatus() == HttpStatus.NOT_MODIFIED && entry.canRevalidate(request)) {
+            entry.refresh(request, response, requested, received);
+            return entry.getResponse();
+        }
+        entry.replace(request, response, requested, received);
+        return response;
+    }
+
+    private static boolean isCacheable(HttpRequest request) {
+        return HttpMethod.GET.equals(request.getHttpMethod()) || HttpMethod.HEAD.equals(request.getHttpMethod());
+    }
+}
@@ -34,6 +34,7 @@ import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 /**
     The primary request builder used to create a request. This will be completed after calling one of
@@ -346,6 +347,33 @@ public interface HttpRequest<R extends HttpRequest>  {
      * @return a file containing the results
      */
     CompletableFuture<HttpResponse<File>> asFileAsync(String path, Callback<File> callback, CopyOption... copyOptions);
+
+    /**
+     * Executes a GET request and writes the contents into a file, fetching byte ranges of it concurrently.
+     * The server is first asked for the length with a HEAD request; if it does not accept byte ranges, or
+     * for any other method, the file is downloaded in a single stream just like asFile.
+     * The parts are requested through the async client and its connection pool.
+     * A download monitor sees the bytes of all parts added together.
+     * @param path The path to the file.
+     * @param parts the number of ranges to fetch at once
+     * @param copyOptions options specifying how the copy should be done
+     * @return a HttpResponse with the file containing the results
+     */
+    HttpResponse<File> asFileParallel(String path, int parts, CopyOption... copyOptions);
+
+    /**
+     * Executes a GET request and writes the contents into a file, carrying on from an earlier attempt where possible.
+     * While the download is in progress a checkpoint file (the path plus ".resume") holds the ETag or Last-Modified
+     * of the response. If the file or its checkpoint are found the rest of the file is requested with Range and If-Range,
+     * and the whole file is downloaded again if it changed on the server.
+     * Dropped connections and 408, 502, 503 and 504 responses are retried from the end of what has been written.
+     * Other methods are downloaded with asFile, replacing any existing file.
+     * @param path The path to the file.
+     * @param retries how many times to retry a failed attempt
+     * @return a HttpResponse with the file containing the results
+     */
+    HttpResponse<File> asFileResumable(String path, int retries);
+
     /**
      * Allows for following paging links common in many APIs.
      * Each request will result in the same request (headers, etc) but will use the "next" link provided by the extract function.
@@ -358,6 +386,22 @@ public interface HttpRequest<R extends HttpRequest>  {
     <T> PagedList<T> asPaged(Function<HttpRequest, HttpResponse> mappingFunction,
                              Function<HttpResponse<T>, String> linkExtractor);
 
+    /**
+     * Follows paging links like asPaged, but lazily and without keeping every page.
+     * Pages are requested with the async client, and each next link is requested as soon as its page arrives
+     * so that it loads while the previous page is being worked on. At most prefetch pages are loading or
+     * waiting to be taken at once. Closing the stream, for example with try-with-resources, cancels them.
+     *
+     * @param <T> the type of response.
+     * @param mappingFunction a function to send the request with one of the as*Async methods (asStringAsync, asObjectAsync, etc).
+     * @param linkExtractor a function to extract a "next" link to follow. Retuning a null or empty string ends the paging
+     * @param prefetch how many pages may be loading or waiting ahead of the caller, at least 1
+     * @return a Stream of the pages in order
+     */
+    <T> Stream<HttpResponse<T>> asPagedStream(Function<HttpRequest, CompletableFuture<HttpResponse>> mappingFunction,
+                                              Function<HttpResponse<T>, String> linkExtractor,
+                                              int prefetch);
+
     /**
      * Executes the request and returns the response without parsing the body
      * @return the basic HttpResponse
@@ -32,6 +32,11 @@ class HttpRequestNoBody extends BaseRequest<GetRequest> implements GetRequest {
 		super(config, method, url);
 	}
 
+	HttpRequestNoBody(BaseRequest request, HttpMethod method) {
+		super(request);
+		this.method = method;
+	}
+
 	@Override
 	public Optional<Body> getBody() {
 		return Optional.empty();
@@ -39,4 +39,13 @@ public interface MetricContext {
       *           but more likely a socket or connection timeout.
       */
      void complete(HttpResponseSummary httpResponse, Exception ex);
+
+     /**
+      * Called when the request has been given a connection from the pool, or has given up waiting for one.
+      * A long wait here means the pool is exhausted rather than the server being slow to answer.
+      * Only the Apache clients report this, and only for the connection managers they create themselves.
+      * @param waitNanos how long the request waited for a connection in nanoseconds
+      */
+     default void connectionLeased(long waitNanos) {
+     }
 }
@@ -28,12 +28,23 @@ package kong.unirest;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
 
+/**
+ * Reports download progress while passing bulk reads straight through to the response.
+ * Callbacks can be throttled by bytes and time, see Config::downloadMonitorThrottle,
+ * in which case the final count is reported once the body has been read.
+ */
 class MonitoringInputStream extends InputStream {
     private final InputStream content;
     private final ProgressMonitor downloadMonitor;
+    private final long everyBytes;
+    private final Duration everyInterval;
     private long totalSize;
     private long byteCount = 0;
+    private long reportedCount = 0;
+    private Instant reportedAt;
     private String fileName;
 
     MonitoringInputStream(InputStream content, ProgressMonitor downloadMonitor, Path target, RawResponse contentSize) {
@@ -41,6 +52,10 @@ class MonitoringInputStream extends InputStream {
         this.downloadMonitor = downloadMonitor;
         this.fileName = target.getFileName().toString();
         this.totalSize = getBodySize(contentSize);
+        Config config = contentSize.getConfig();
+        this.everyBytes = config == null ? 0 : config.getDownloadMonitorBytes();
+        this.everyInterval = config == null ? Duration.ZERO : config.getDownloadMonitorInterval();
+        this.reportedAt = everyInterval.isZero() ? null : Util.now();
     }
 
     private Long getBodySize(RawResponse r) {
@@ -53,30 +68,55 @@ class MonitoringInputStream extends InputStream {
 
     @Override
     public int read() throws IOException {
-        return content.read();
+        int b = content.read();
+        monitor(b == -1 ? -1 : 1);
+        return b;
     }
 
     @Override
     public int read(byte[] b) throws IOException {
-        int read = super.read(b);
-        monitor(read);
-        return read;
+        return read(b, 0, b.length);
     }
 
     @Override
     public int read(byte[] b, int off, int len) throws IOException {
-        int read = super.read(b, off, len);
+        int read = content.read(b, off, len);
         monitor(read);
         return read;
     }
 
     private void monitor(int bytesRead) {
-        byteCount = byteCount + bytesRead;
+        if (bytesRead == -1) {
+            finish();
+        } else if (bytesRead > 0) {
+            byteCount = byteCount + bytesRead;
+            if (byteCount - reportedCount >= everyBytes && intervalPassed()) {
+                report();
+            }
+        }
+    }
+
+    private boolean intervalPassed() {
+        return reportedAt == null || !Util.now().isBefore(reportedAt.plus(everyInterval));
+    }
+
+    private void finish() {
+        if (reportedCount != byteCount) {
+            report();
+        }
+    }
+
+    private void report() {
+        reportedCount = byteCount;
+        if (reportedAt != null) {
+            reportedAt = Util.now();
+        }
         downloadMonitor.accept("body", fileName, byteCount, totalSize);
     }
 
     @Override
     public void close() throws IOException {
+        finish();
         content.close();
     }
 
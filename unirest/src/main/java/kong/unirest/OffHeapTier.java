@@ -0,0 +1,265 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.IOException;
+import java.lang.ref.PhantomReference;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * A second cache tier which holds raw response bodies outside of the java heap.
+ * Responses evicted from the in heap cache are moved here and are read in place on a hit.
+ * Bodies are kept either in direct ByteBuffers or, when a directory is given, in one memory mapped
+ * file per entry under that directory. The tier is bounded by the total size of the bodies
+ * and evicts the least recently used entries first.
+ * A hit moves the entry back to the in heap cache, the body itself stays off heap.
+ * Entries keep the expiry they had in the in heap cache, an expired body is dropped rather than handed out.
+ * The file of a body which has been handed out is kept for as long as its mapping is reachable,
+ * as some platforms (Windows) cannot delete a mapped file, and is deleted on a later store or take.
+ */
+class OffHeapTier {
+    private final LinkedHashMap<Cache.Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReferenceQueue<ByteBuffer> unmapped = new ReferenceQueue<>();
+    private final Set<MappedFile> mapped = ConcurrentHashMap.newKeySet();
+    private final long maxBytes;
+    private final Path directory;
+    private BiConsumer<Cache.Key, Long> takeListener = (k, t) -> { };
+    private long bytes;
+
+    OffHeapTier(long maxBytes, Path directory) {
+        this.maxBytes = maxBytes;
+        this.directory = directory;
+    }
+
+    /**
+     * sets a listener which is told the expiry, in epoch millis, of every entry taken from the tier.
+     */
+    void onTake(BiConsumer<Cache.Key, Long> listener) {
+        this.takeListener = listener;
+    }
+
+    /**
+     * Accepts a value evicted from the in heap tier. Anything that is not a raw response is ignored.
+     * @param expiresAt the time the value expires in epoch millis
+     */
+    void promote(Cache.Key key, Object value, long expiresAt) {
+        CachedRawResponse raw = rawOf(value);
+        if (raw == null || raw.size() > maxBytes) {
+            return;
+        }
+        try {
+            store(key, raw, expiresAt);
+        } catch (IOException e) {
+            // the tier is only an optimisation, the entry is simply dropped
+        }
+    }
+
+    /**
+     * Removes and returns the response for the key
+     * @return the response or null if the tier does not hold it or it has expired
+     */
+    HttpResponse<RawResponse> take(Cache.Key key) {
+        deleteUnmapped();
+        Entry e;
+        lock.lock();
+        try {
+            e = entries.remove(key);
+            if (e == null) {
+                return null;
+            }
+            if (Util.now().toEpochMilli() - e.expiresAt > 0) {
+                release(e);
+                return null;
+            }
+            bytes -= e.size();
+        } finally {
+            lock.unlock();
+        }
+        takeListener.accept(key, e.expiresAt);
+        return CachedRawResponse.capture(e.response);
+    }
+
+    long size() {
+        lock.lock();
+        try {
+            return bytes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int count() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void store(Cache.Key key, CachedRawResponse raw, long expiresAt) throws IOException {
+        deleteUnmapped();
+        ByteBuffer body = raw.isOffHeap() ? raw.getBuffer() : null;
+        MappedFile file = null;
+        if (body == null && directory != null) {
+            Path path = Files.createTempFile(directory, "unirest-", ".body");
+            body = map(path, raw);
+            file = new MappedFile(body, path, unmapped);
+            mapped.add(file);
+        } else if (body == null) {
+            body = copyDirect(raw);
+        }
+        Entry entry = new Entry(new CachedRawResponse(raw, body), file, expiresAt);
+        lock.lock();
+        try {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                release(previous);
+            }
+            bytes += entry.size();
+            trim();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void trim() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (bytes > maxBytes && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            release(eldest);
+        }
+    }
+
+    /**
+     * Drops an entry which was never handed out. If its file cannot be deleted while it is still
+     * mapped it is left to be deleted once the mapping is unreachable.
+     */
+    private void release(Entry e) {
+        bytes -= e.size();
+        if (e.file != null && delete(e.file.path)) {
+            mapped.remove(e.file);
+        }
+    }
+
+    private void deleteUnmapped() {
+        Reference<? extends ByteBuffer> ref;
+        while ((ref = unmapped.poll()) != null) {
+            MappedFile file = (MappedFile) ref;
+            mapped.remove(file);
+            if (!delete(file.path)) {
+                file.path.toFile().deleteOnExit();
+            }
+        }
+    }
+
+    private static boolean delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static ByteBuffer copyDirect(CachedRawResponse raw) {
+        ByteBuffer body = ByteBuffer.allocateDirect(raw.size());
+        body.put(raw.getBuffer());
+        ((Buffer) body).flip();
+        return body;
+    }
+
+    private static ByteBuffer map(Path file, CachedRawResponse raw) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer source = raw.getBuffer();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, raw.size());
+        }
+    }
+
+    private static CachedRawResponse rawOf(Object value) {
+        if (value instanceof CompletableFuture) {
+            CompletableFuture<?> future = (CompletableFuture<?>) value;
+            if (!future.isDone() || future.isCompletedExceptionally()) {
+                return null;
+            }
+            return rawOf(future.join());
+        }
+        if (value instanceof HttpResponse && !(value instanceof HttpCacheEntry)) {
+            Object body = ((HttpResponse<?>) value).getBody();
+            if (body instanceof CachedRawResponse) {
+                return (CachedRawResponse) body;
+            }
+        }
+        return null;
+    }
+
+    private static class Entry {
+        private final CachedRawResponse response;
+        private final MappedFile file;
+        private final long expiresAt;
+
+        Entry(CachedRawResponse response, MappedFile file, long expiresAt) {
+            this.response = response;
+            this.file = file;
+            this.expiresAt = expiresAt;
+        }
+
+        long size() {
+            return response.size();
+        }
+    }
+
+    /**
+     * The file behind a mapped body, enqueued once nothing can read the mapping any more
+     */
+    private static class MappedFile extends PhantomReference<ByteBuffer> {
+        private final Path path;
+
+        MappedFile(ByteBuffer mapping, Path path, ReferenceQueue<ByteBuffer> queue) {
+            super(mapping, queue);
+            this.path = path;
+        }
+    }
+}
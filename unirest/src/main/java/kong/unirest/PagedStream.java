@@ -0,0 +1,170 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Follows paging links lazily. As soon as a page arrives its next link is requested through the async
+ * client, so the following pages load while the caller works on the current one. No more than the
+ * prefetch count of pages are ever loading or waiting to be taken, and closing the stream cancels them.
+ * Each page is requested with its own copy of the request, which shares the original's body, so the
+ * caller's request keeps its url and pages in flight never see each other's.
+ * see HttpRequest::asPagedStream
+ */
+class PagedStream<T> implements Iterator<HttpResponse<T>> {
+    private final BaseRequest<?> request;
+    private final Function<HttpRequest, CompletableFuture<HttpResponse>> mappingFunction;
+    private final Function<HttpResponse<T>, String> linkExtractor;
+    private final int prefetch;
+    private final Deque<CompletableFuture<HttpResponse<T>>> pages = new ArrayDeque<>();
+    private String pendingLink;
+    private boolean closed;
+
+    PagedStream(BaseRequest<?> request,
+                Function<HttpRequest, CompletableFuture<HttpResponse>> mappingFunction,
+                Function<HttpResponse<T>, String> linkExtractor,
+                int prefetch) {
+        if (prefetch < 1) {
+            throw new UnirestException("Paging needs to prefetch at least one page");
+        }
+        this.request = request;
+        this.mappingFunction = mappingFunction;
+        this.linkExtractor = linkExtractor;
+        this.prefetch = prefetch;
+    }
+
+    Stream<HttpResponse<T>> stream() {
+        fetch(request.getUrl());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(this::close);
+    }
+
+    @Override
+    public synchronized boolean hasNext() {
+        return !pages.isEmpty();
+    }
+
+    @Override
+    public HttpResponse<T> next() {
+        CompletableFuture<HttpResponse<T>> page;
+        synchronized (this) {
+            page = pages.poll();
+            if (page == null) {
+                throw new NoSuchElementException();
+            }
+            if (pendingLink != null) {
+                String link = pendingLink;
+                pendingLink = null;
+                fetch(link);
+            }
+        }
+        try {
+            return page.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new UnirestException(e.getCause());
+        }
+    }
+
+    synchronized void close() {
+        closed = true;
+        pendingLink = null;
+        pages.forEach(p -> p.cancel(true));
+        pages.clear();
+    }
+
+    private synchronized void fetch(String link) {
+        CompletableFuture<HttpResponse<T>> slot = new CompletableFuture<>();
+        pages.add(slot);
+        CompletableFuture<HttpResponse<T>> page;
+        try {
+            page = (CompletableFuture) mappingFunction.apply(new Page(request, link));
+        } catch (RuntimeException e) {
+            slot.completeExceptionally(e);
+            return;
+        }
+        slot.whenComplete((r, e) -> {
+            if (slot.isCancelled()) {
+                page.cancel(true);
+            }
+        });
+        page.whenComplete((r, e) -> arrived(slot, r, e));
+    }
+
+    /**
+     * Requests the next page before handing this one over, so a caller which has taken
+     * a page can always tell from hasNext whether another one is coming.
+     */
+    private void arrived(CompletableFuture<HttpResponse<T>> slot, HttpResponse<T> page, Throwable failure) {
+        if (failure != null) {
+            slot.completeExceptionally(failure);
+            return;
+        }
+        try {
+            follow(linkExtractor.apply(page));
+            slot.complete(page);
+        } catch (RuntimeException e) {
+            slot.completeExceptionally(e);
+        }
+    }
+
+    private synchronized void follow(String link) {
+        if (closed || Util.isNullOrEmpty(link)) {
+            return;
+        }
+        if (pages.size() < prefetch) {
+            fetch(link);
+        } else {
+            pendingLink = link;
+        }
+    }
+
+    private static class Page extends BaseRequest<Page> {
+        private final Optional<Body> body;
+
+        Page(BaseRequest<?> request, String link) {
+            super(request);
+            this.body = request.getBody();
+            this.url = new Path(link, config.getDefaultBaseUrl());
+        }
+
+        @Override
+        public Optional<Body> getBody() {
+            return body;
+        }
+    }
+}
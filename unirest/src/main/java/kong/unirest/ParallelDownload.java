@@ -0,0 +1,255 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.CopyOption;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Downloads a file as several byte ranges at once. A HEAD request finds the length and whether the
+ * server accepts ranges, then each range is fetched through the async client and written into the
+ * file at its own offset. Servers without range support get a single plain download. The ranges go
+ * straight to the async client, past the cache and request coalescing, and a range the server will not
+ * serve is cancelled rather than read to the end.
+ */
+class ParallelDownload {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final String IDENTITY = "identity";
+
+    private final BaseRequest<?> request;
+    private final ProgressMonitor monitor;
+
+    ParallelDownload(BaseRequest<?> request, ProgressMonitor monitor) {
+        this.request = request;
+        this.monitor = monitor;
+    }
+
+    HttpResponse<File> download(String path, int parts, CopyOption... copyOptions) {
+        if (parts < 1) {
+            throw new UnirestException("A parallel download needs at least one part");
+        }
+        if (parts == 1 || request.getHttpMethod() != HttpMethod.GET) {
+            return request.asFile(path, copyOptions);
+        }
+        HttpResponse probe = copy(HttpMethod.HEAD).asEmpty();
+        long length = rangeLength(probe);
+        if (length < 2) {
+            return request.asFile(path, copyOptions);
+        }
+        Path target = Paths.get(path);
+        FileChannel channel = open(target, copyOptions);
+        try {
+            fill(channel, target, length, (int) Math.min(parts, length), probe.getHeaders().getFirst("ETag"));
+        } catch (RuntimeException e) {
+            deleteQuietly(target);
+            throw e;
+        }
+        return new BasicResponse<>((BaseResponse) probe, target.toFile());
+    }
+
+    private static FileChannel open(Path target, CopyOption... copyOptions) {
+        try {
+            return FileResponse.open(target, copyOptions);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    private static long rangeLength(HttpResponse probe) {
+        Headers headers = probe.getHeaders();
+        String encoding = headers.getFirst("Content-Encoding");
+        if (!(probe instanceof BaseResponse)
+                || !probe.isSuccess()
+                || !headers.getFirst("Accept-Ranges").toLowerCase().contains("bytes")
+                || !(encoding.isEmpty() || IDENTITY.equalsIgnoreCase(encoding))) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(headers.getFirst("Content-Length").trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void fill(FileChannel channel, Path target, long length, int count, String etag) {
+        try (FileChannel file = channel) {
+            file.write(ByteBuffer.wrap(new byte[1]), length - 1);
+            fetch(file, target, length, count, etag);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    private void fetch(FileChannel channel, Path target, long length, int count, String etag) {
+        Progress progress = new Progress(target, length, count);
+        List<Part> parts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Part part = new Part(i, length * i / count, length * (i + 1) / count - 1);
+            parts.add(part);
+            range(channel, part, etag, progress);
+        }
+        try {
+            for (Part part : parts) {
+                part.check();
+            }
+        } catch (RuntimeException e) {
+            parts.forEach(p -> p.result.cancel(true));
+            throw e;
+        }
+    }
+
+    private void range(FileChannel channel, Part part, String etag, Progress progress) {
+        HttpRequest ranged = copy(HttpMethod.GET).header("Range", "bytes=" + part.start + "-" + part.end);
+        if (!etag.isEmpty() && !etag.startsWith("W/")) {
+            ranged.header("If-Range", etag);
+        }
+        request.config.getOriginAsyncClient().request(ranged,
+                r -> new BasicResponse<>(r, write(r, channel, part, progress)),
+                part.result,
+                Long.class);
+    }
+
+    private long write(RawResponse response, FileChannel channel, Part part, Progress progress) {
+        if (response.getStatus() != 206) {
+            part.refuse(response.getStatus());
+            return 0L;
+        }
+        long written = 0;
+        byte[] buffer = new byte[BUFFER_SIZE];
+        try (InputStream in = progress.monitor(response, part.index)) {
+            int read;
+            while (written < part.length() && (read = in.read(buffer, 0, (int) Math.min(buffer.length, part.length() - written))) != -1) {
+                ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                while (bytes.hasRemaining()) {
+                    written += channel.write(bytes, part.start + written);
+                }
+            }
+            return written;
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    private HttpRequest copy(HttpMethod method) {
+        return new HttpRequestNoBody(request, method).headerReplace("Accept-Encoding", IDENTITY);
+    }
+
+    private static void deleteQuietly(Path target) {
+        try {
+            Files.deleteIfExists(target);
+        } catch (IOException ignored) {
+            // the original failure is the one worth reporting
+        }
+    }
+
+    private static class Part {
+        private final CompletableFuture<HttpResponse<Long>> result = new CompletableFuture<>();
+        private final int index;
+        private final long start;
+        private final long end;
+        private volatile int refused;
+
+        Part(int index, long start, long end) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+        }
+
+        long length() {
+            return end - start + 1;
+        }
+
+        /**
+         * Cancels the request, so the body the server sent instead of the range is not downloaded
+         */
+        void refuse(int status) {
+            refused = status;
+            result.cancel(true);
+        }
+
+        void check() {
+            HttpResponse<Long> response;
+            try {
+                response = result.join();
+            } catch (CancellationException e) {
+                throw refusal(refused);
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof UnirestException ? (UnirestException) e.getCause() : new UnirestException(e.getCause());
+            }
+            response.getParsingError().ifPresent(e -> {
+                throw new UnirestException(e.getCause() == null ? e : e.getCause());
+            });
+            if (response.getStatus() != 206 || response.getBody() == null || response.getBody() != length()) {
+                throw refusal(response.getStatus());
+            }
+        }
+
+        private UnirestException refusal(int status) {
+            return new UnirestException("The server did not return bytes " + start + "-" + end + " (status " + status + ")");
+        }
+    }
+
+    /**
+     * Adds up the bytes read by every part so the monitor sees one download.
+     */
+    private class Progress {
+        private final Path target;
+        private final long length;
+        private final long[] read;
+        private long total;
+
+        Progress(Path target, long length, int parts) {
+            this.target = target;
+            this.length = length;
+            this.read = new long[parts];
+        }
+
+        InputStream monitor(RawResponse response, int part) {
+            if (monitor == null) {
+                return response.getContent();
+            }
+            return new MonitoringInputStream(response.getContent(), (field, file, bytes, partLength) -> update(part, file, bytes), target, response);
+        }
+
+        private synchronized void update(int part, String file, long bytes) {
+            total += bytes - read[part];
+            read[part] = bytes;
+            monitor.accept("body", file, total, length);
+        }
+    }
+}
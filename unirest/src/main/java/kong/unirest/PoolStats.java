@@ -0,0 +1,90 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A snapshot of a client's connection pool, in total and for each route (scheme, host and port) it holds connections for.
+ * see Config::getPoolStats and Config::getAsyncPoolStats
+ */
+public class PoolStats {
+    private final int leased;
+    private final int available;
+    private final int pending;
+    private final int max;
+    private final Map<String, PoolStats> routes;
+
+    public PoolStats(int leased, int available, int pending, int max, Map<String, PoolStats> routes) {
+        this.leased = leased;
+        this.available = available;
+        this.pending = pending;
+        this.max = max;
+        this.routes = routes == null ? Collections.emptyMap() : Collections.unmodifiableMap(routes);
+    }
+
+    /**
+     * @return the number of connections currently in use by requests
+     */
+    public int getLeased() {
+        return leased;
+    }
+
+    /**
+     * @return the number of idle connections kept alive for reuse
+     */
+    public int getAvailable() {
+        return available;
+    }
+
+    /**
+     * @return the number of requests waiting for a connection. Anything above 0 means the pool is exhausted
+     */
+    public int getPending() {
+        return pending;
+    }
+
+    /**
+     * @return the most connections the pool (or route) may hold
+     */
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * @return the statistics of each route keyed by its target, for example https://somewhere.com:443.
+     * Routes have no routes of their own
+     */
+    public Map<String, PoolStats> getRoutes() {
+        return routes;
+    }
+
+    @Override
+    public String toString() {
+        return "PoolStats{leased=" + leased + ", available=" + available + ", pending=" + pending + ", max=" + max + "}";
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A Client or AsyncClient which can report on its connection pool, resize it while running and warm it up.
+ * see Config::getPoolStats, Config::getAsyncPoolStats, Config::concurrency and UnirestInstance::warmUp
+ */
+public interface PooledClient {
+    /**
+     * @return a snapshot of the client's connection pool or null if it cannot report on it
+     */
+    PoolStats getPoolStats();
+
+    /**
+     * Applies the current concurrency settings of the config to the running pool
+     * without closing any connection that is in use.
+     */
+    void resizePool();
+
+    /**
+     * Opens connections to the route of a url ahead of the first requests to it and leaves them in the pool
+     * for those requests to lease. see UnirestInstance::warmUp
+     * @param url any url of the route, only its scheme, host and port matter
+     * @param connections how many connections to open, at most the connection limit of the route
+     * @return a future completed once the connections are in the pool
+     */
+    CompletableFuture<Void> warmUp(String url, int connections);
+}
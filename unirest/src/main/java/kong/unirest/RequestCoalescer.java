@@ -0,0 +1,231 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Collapses identical GET and HEAD requests which are already in flight into a single exchange.
+ * Requests are identified by the key generator. Sync and async callers share the same exchange
+ * and all of them receive the same response object.
+ * Only requests for strings, json, bytes and empty bodies are collapsed. Files, functions and consumers
+ * each have an effect of their own (a file to write or a function to run) which sharing a response would skip,
+ * and objects may be mapped to a different generic type or by a different ObjectMapper than the response
+ * of the caller they would share.
+ */
+class RequestCoalescer implements CoalescingStats {
+    private static final Set<Class<?>> SHARED = new HashSet<>(Arrays.asList(String.class, JsonNode.class, byte[].class, Empty.class));
+    private final ConcurrentHashMap<Cache.Key, CompletableFuture<HttpResponse>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder collapsed = new LongAdder();
+    private final Cache.KeyGenerator keyGen;
+
+    RequestCoalescer() {
+        this(RequestFingerprint::new);
+    }
+
+    RequestCoalescer(Cache.KeyGenerator keyGen) {
+        this.keyGen = keyGen == null ? RequestFingerprint::new : keyGen;
+    }
+
+    Client wrap(Client client) {
+        return new SyncWrapper(client);
+    }
+
+    AsyncClient wrapAsync(AsyncClient client) {
+        return new AsyncWrapper(client);
+    }
+
+    @Override
+    public long getRequestCount() {
+        return requests.sum();
+    }
+
+    @Override
+    public long getCollapsedCount() {
+        return collapsed.sum();
+    }
+
+    @Override
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    private <T> HttpResponse<T> request(HttpRequest request, Class<?> responseType, Supplier<HttpResponse<T>> exchange) {
+        if (!isCoalescable(request, responseType)) {
+            return exchange.get();
+        }
+        requests.increment();
+        Cache.Key key = keyGen.apply(request, false, responseType);
+        CompletableFuture<HttpResponse<T>> shared = new CompletableFuture<>();
+        CompletableFuture<HttpResponse> leader = inFlight.putIfAbsent(key, (CompletableFuture) shared);
+        if (leader != null) {
+            collapsed.increment();
+            return join(leader);
+        }
+        try {
+            HttpResponse<T> response = exchange.get();
+            shared.complete(response);
+            return response;
+        } catch (Throwable e) {
+            shared.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, shared);
+        }
+    }
+
+    private static <T> HttpResponse<T> join(CompletableFuture<HttpResponse> leader) {
+        try {
+            return leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> requestAsync(HttpRequest request,
+                                                                Class<?> responseType,
+                                                                CompletableFuture<HttpResponse<T>> callback,
+                                                                Function<CompletableFuture<HttpResponse<T>>, CompletableFuture<HttpResponse<T>>> exchange) {
+        if (!isCoalescable(request, responseType)) {
+            return exchange.apply(callback);
+        }
+        requests.increment();
+        Cache.Key key = keyGen.apply(request, false, responseType);
+        CompletableFuture<HttpResponse<T>> shared = new CompletableFuture<>();
+        CompletableFuture<HttpResponse> leader = inFlight.putIfAbsent(key, (CompletableFuture) shared);
+        if (leader != null) {
+            collapsed.increment();
+            return Util.pipe((CompletableFuture) leader, callback);
+        }
+        shared.whenComplete((r, e) -> inFlight.remove(key, shared));
+        try {
+            Util.pipe(exchange.apply(new CompletableFuture<>()), shared);
+        } catch (RuntimeException e) {
+            shared.completeExceptionally(e);
+        } catch (Error e) {
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        return Util.pipe(shared, callback);
+    }
+
+    private static boolean isCoalescable(HttpRequest request, Class<?> responseType) {
+        return (HttpMethod.GET.equals(request.getHttpMethod()) || HttpMethod.HEAD.equals(request.getHttpMethod()))
+                && SHARED.contains(responseType);
+    }
+
+    private class SyncWrapper implements Client {
+        private final Client client;
+
+        SyncWrapper(Client client) {
+            this.client = client;
+        }
+
+        @Override
+        public Object getClient() {
+            return client.getClient();
+        }
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+            return request(request, transformer, Object.class);
+        }
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request,
+                                           Function<RawResponse, HttpResponse<T>> transformer,
+                                           Class<?> responseType) {
+            return RequestCoalescer.this.request(request, responseType, () -> client.request(request, transformer, responseType));
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return client.close();
+        }
+
+        @Override
+        public void registerShutdownHook() {
+            client.registerShutdownHook();
+        }
+    }
+
+    private class AsyncWrapper implements AsyncClient {
+        private final AsyncClient client;
+
+        AsyncWrapper(AsyncClient client) {
+            this.client = client;
+        }
+
+        @Override
+        public <T> T getClient() {
+            return client.getClient();
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            return request(request, transformer, callback, Object.class);
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback,
+                                                              Class<?> responseType) {
+            return requestAsync(request, responseType, callback,
+                    cb -> client.request(request, transformer, cb, responseType));
+        }
+
+        @Override
+        public void registerShutdownHook() {
+            client.registerShutdownHook();
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return client.close();
+        }
+
+        @Override
+        public boolean isRunning() {
+            return client.isRunning();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The default cache key. A SHA-256 digest of the method, normalized url, headers, body,
+ * execution type and response type of a request. Keys are equal only when their digests are.
+ * Values are streamed into the digest through a small buffer rather than built into strings.
+ * Headers are taken in the order of their lower cased names and query params in the order of their keys,
+ * so the order they were added in does not change the key.
+ * Header values are only evaluated for the headers which take part in the key.
+ * Bodies which can only be read once (InputStreams) make every key unique.
+ */
+class RequestFingerprint implements Cache.Key {
+    private static final MessageDigest SHA_256 = sha256();
+    private static final AtomicLong UNIQUE = new AtomicLong();
+
+    private final byte[] digest;
+    private final int hash;
+    private final Instant time;
+
+    RequestFingerprint(HttpRequest request, Boolean isAsync, Class<?> responseType) {
+        this(request, isAsync, responseType, null);
+    }
+
+    /**
+     * @param headers the names of the headers which take part in the key, or null for all of them
+     */
+    RequestFingerprint(HttpRequest request, Boolean isAsync, Class<?> responseType, Set<String> headers) {
+        this(fingerprint(request, isAsync, responseType, headers), request.getCreationTime());
+    }
+
+    RequestFingerprint(byte[] digest, Instant time) {
+        this.digest = digest;
+        this.time = time;
+        this.hash = (digest[0] & 0xFF) << 24 | (digest[1] & 0xFF) << 16 | (digest[2] & 0xFF) << 8 | (digest[3] & 0xFF);
+    }
+
+    /**
+     * Builds a key generator which only uses the named headers
+     */
+    static Cache.KeyGenerator withHeaders(Collection<String> names) {
+        Set<String> selected = new TreeSet<>(String.CASE_INSENSITIVE_ORDER);
+        selected.addAll(names);
+        return (request, isAsync, responseType) -> new RequestFingerprint(request, isAsync, responseType, selected);
+    }
+
+    byte[] getDigest() {
+        return digest.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        return Arrays.equals(digest, ((RequestFingerprint) o).digest);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public Instant getTime() {
+        return time;
+    }
+
+    private static byte[] fingerprint(HttpRequest request, Boolean isAsync, Class<?> responseType, Set<String> headers) {
+        Digest d = new Digest();
+        d.put(request.getHttpMethod().name());
+        url(d, request.getUrl());
+        List<Header> selected = new ArrayList<>();
+        for (Header h : request.getHeaders().all()) {
+            if (headers == null || headers.contains(h.getName())) {
+                selected.add(h);
+            }
+        }
+        selected.sort(Comparator.comparing(Header::getName, String.CASE_INSENSITIVE_ORDER));
+        for (Header h : selected) {
+            d.putLowerCase(h.getName());
+            d.put(h.getValue());
+        }
+        d.put(Boolean.TRUE.equals(isAsync) ? 1 : 0);
+        d.put(responseType == null ? "" : responseType.getName());
+        Optional<Body> body = request.getBody();
+        body.ifPresent(b -> body(d, b));
+        return d.finish();
+    }
+
+    private static void body(Digest d, Body body) {
+        d.put(body.getCharset() == null ? "" : body.getCharset().name());
+        if (body.isEntityBody()) {
+            if (body.uniPart() != null) {
+                part(d, body.uniPart());
+            }
+        } else {
+            d.put(body.isMultiPart() ? 1 : 0);
+            for (BodyPart part : body.multiParts()) {
+                part(d, part);
+            }
+        }
+    }
+
+    private static void part(Digest d, BodyPart part) {
+        d.put(part.getName());
+        d.put(part.getContentType());
+        d.put(part.getFileName());
+        Object value = part.getValue();
+        if (value instanceof byte[]) {
+            d.put((byte[]) value);
+        } else if (value instanceof File) {
+            File file = (File) value;
+            d.put(file.getAbsolutePath());
+            d.put(file.length());
+            d.put(file.lastModified());
+        } else if (value instanceof String) {
+            d.put((String) value);
+        } else {
+            d.put(UNIQUE.incrementAndGet());
+        }
+    }
+
+    /**
+     * lower cases the scheme and host, drops default ports and fragments, gives an empty path a /
+     * and sorts the query params by key
+     */
+    private static void url(Digest d, String url) {
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            d.put(url);
+            return;
+        }
+        if (uri.getHost() == null || uri.getScheme() == null) {
+            d.put(url);
+            return;
+        }
+        String scheme = uri.getScheme();
+        int port = uri.getPort();
+        if (("http".equalsIgnoreCase(scheme) && port == 80) || ("https".equalsIgnoreCase(scheme) && port == 443)) {
+            port = -1;
+        }
+        d.putLowerCase(scheme);
+        d.put(uri.getRawUserInfo());
+        d.putLowerCase(uri.getHost());
+        d.put(port);
+        String path = uri.getRawPath();
+        d.put(path == null || path.isEmpty() ? "/" : path);
+        query(d, uri.getRawQuery());
+    }
+
+    private static void query(Digest d, String query) {
+        if (query == null) {
+            d.put(-1L);
+            return;
+        }
+        List<int[]> params = new ArrayList<>();
+        int start = 0;
+        while (start <= query.length()) {
+            int end = query.indexOf('&', start);
+            if (end == -1) {
+                end = query.length();
+            }
+            if (end > start) {
+                params.add(new int[]{start, end});
+            }
+            start = end + 1;
+        }
+        params.sort((a, b) -> compareKeys(query, a, b));
+        d.put((long) params.size());
+        for (int[] param : params) {
+            d.put(query, param[0], param[1]);
+        }
+    }
+
+    private static int compareKeys(String query, int[] a, int[] b) {
+        int i = a[0];
+        int j = b[0];
+        while (true) {
+            boolean endOfA = i == a[1] || query.charAt(i) == '=';
+            boolean endOfB = j == b[1] || query.charAt(j) == '=';
+            if (endOfA || endOfB) {
+                return Boolean.compare(!endOfA, !endOfB);
+            }
+            int c = Character.compare(query.charAt(i++), query.charAt(j++));
+            if (c != 0) {
+                return c;
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * A SHA-256 digest fed through a small buffer. Every value is length prefixed so that
+     * adjacent values can not run into each other.
+     * Digests are cloned per key rather than kept per thread, so a key costs the same on a
+     * short lived thread as on a pooled one.
+     */
+    private static class Digest {
+        private final MessageDigest sha;
+        private final byte[] buffer = new byte[512];
+        private int position;
+
+        Digest() {
+            this.sha = copy();
+        }
+
+        private static MessageDigest copy() {
+            try {
+                return (MessageDigest) SHA_256.clone();
+            } catch (CloneNotSupportedException e) {
+                return sha256();
+            }
+        }
+
+        void put(String value) {
+            if (value == null) {
+                put(-1L);
+                return;
+            }
+            put(value, 0, value.length());
+        }
+
+        void put(String value, int from, int to) {
+            put((long) (to - from));
+            for (int i = from; i < to; i++) {
+                put(value.charAt(i));
+            }
+        }
+
+        void putLowerCase(String value) {
+            put((long) value.length());
+            for (int i = 0; i < value.length(); i++) {
+                put(Character.toLowerCase(value.charAt(i)));
+            }
+        }
+
+        private void put(char c) {
+            ensure(2);
+            buffer[position++] = (byte) (c >> 8);
+            buffer[position++] = (byte) c;
+        }
+
+        void put(byte[] value) {
+            put((long) value.length);
+            flush();
+            sha.update(value);
+        }
+
+        void put(long value) {
+            ensure(8);
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buffer[position++] = (byte) (value >> shift);
+            }
+        }
+
+        byte[] finish() {
+            flush();
+            return sha.digest();
+        }
+
+        private void ensure(int bytes) {
+            if (position + bytes > buffer.length) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            sha.update(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
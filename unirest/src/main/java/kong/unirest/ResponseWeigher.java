@@ -0,0 +1,76 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.File;
+
+/**
+ * The default weigher. Approximates the size of a response in bytes from its body and headers.
+ * Bodies which have already been parsed into objects are weighed by their Content-Length.
+ */
+class ResponseWeigher implements Cache.Weigher {
+    @Override
+    public long weigh(Cache.Key key, HttpResponse<?> response) {
+        return bodySize(response) + headerSize(response.getHeaders());
+    }
+
+    private static long bodySize(HttpResponse<?> response) {
+        Object body = response.getBody();
+        if (body instanceof byte[]) {
+            return ((byte[]) body).length;
+        } else if (body instanceof CharSequence) {
+            return ((CharSequence) body).length();
+        } else if (body instanceof CachedRawResponse) {
+            return ((CachedRawResponse) body).size();
+        } else if (body instanceof File) {
+            return 0;
+        }
+        return contentLength(response.getHeaders());
+    }
+
+    private static long contentLength(Headers headers) {
+        String length = headers == null ? null : headers.getFirst("Content-Length");
+        if (Util.isNullOrEmpty(length)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(length.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static long headerSize(Headers headers) {
+        if (headers == null) {
+            return 0;
+        }
+        long size = 0;
+        for (Header h : headers.all()) {
+            size += h.getName().length() + Util.nullToEmpty(h.getValue()).length();
+        }
+        return size;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+
+/**
+ * Downloads a file so that it can carry on from where an earlier attempt stopped. While a download is
+ * in progress a checkpoint file next to the target holds the validator (a strong ETag or Last-Modified)
+ * of the response. A later attempt asks for the rest of the file with Range guarded by If-Range, so a
+ * changed file is downloaded again from the start. Failed attempts are retried from the end of the file
+ * after a short backoff. The requests go straight to the client, as a cached or shared response would
+ * not write the file.
+ */
+class ResumableDownload {
+    static final String CHECKPOINT = ".resume";
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long BACKOFF_MILLIS = 100;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+
+    private final BaseRequest<?> request;
+    private final ProgressMonitor monitor;
+
+    ResumableDownload(BaseRequest<?> request, ProgressMonitor monitor) {
+        this.request = request;
+        this.monitor = monitor;
+    }
+
+    HttpResponse<File> download(String path, int retries) {
+        if (retries < 0) {
+            throw new UnirestException("The number of retries cannot be negative");
+        }
+        if (request.getHttpMethod() != HttpMethod.GET) {
+            return request.asFile(path, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Path target = Paths.get(path);
+        Path checkpoint = Paths.get(path + CHECKPOINT);
+        for (int attempt = 0; ; attempt++) {
+            try {
+                Attempt next = new Attempt(target, checkpoint);
+                HttpResponse<File> response = next.send();
+                if (attempt >= retries || !next.isTransient(response)) {
+                    next.throwFailure();
+                    return response;
+                }
+            } catch (UnirestException e) {
+                if (attempt >= retries || !(e.getCause() instanceof IOException)) {
+                    throw e;
+                }
+            }
+            backOff(attempt);
+        }
+    }
+
+    private static void backOff(int attempt) {
+        try {
+            Thread.sleep(Math.min(BACKOFF_MILLIS << Math.min(attempt, 10), MAX_BACKOFF_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * One request for the rest of the file, starting at whatever is already on disk.
+     */
+    private class Attempt implements Function<RawResponse, HttpResponse<File>> {
+        private final Path target;
+        private final Path checkpoint;
+        private final long offset;
+        private final String validator;
+        private IOException failure;
+
+        Attempt(Path target, Path checkpoint) {
+            this.target = target;
+            this.checkpoint = checkpoint;
+            try {
+                this.offset = Files.exists(target) ? Files.size(target) : 0;
+                this.validator = Files.exists(checkpoint) ? new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8) : null;
+            } catch (IOException e) {
+                throw new UnirestException(e);
+            }
+        }
+
+        HttpResponse<File> send() {
+            HttpRequest ranged = new HttpRequestNoBody(request, HttpMethod.GET).headerReplace("Accept-Encoding", "identity");
+            if (offset > 0) {
+                ranged.header("Range", "bytes=" + offset + "-");
+                if (validator != null && !validator.isEmpty()) {
+                    ranged.header("If-Range", validator);
+                }
+            }
+            return request.config.getOriginClient().request(ranged, this, File.class);
+        }
+
+        @Override
+        public HttpResponse<File> apply(RawResponse response) {
+            int status = response.getStatus();
+            if (offset > 0 && status == 206) {
+                resume(response);
+            } else if (offset > 0 && status == 416) {
+                restartUnlessComplete(response);
+            } else if (status >= 200 && status < 300) {
+                write(response, 0);
+            }
+            return new BasicResponse<>(response, target.toFile());
+        }
+
+        private void resume(RawResponse response) {
+            if (response.getHeaders().getFirst("Content-Range").startsWith("bytes " + offset + "-")) {
+                write(response, offset);
+            } else {
+                failure = new IOException("The server resumed at the wrong offset: " + response.getHeaders().getFirst("Content-Range"));
+            }
+        }
+
+        private void restartUnlessComplete(RawResponse response) {
+            try {
+                if (!response.getHeaders().getFirst("Content-Range").equals("bytes */" + offset)) {
+                    Files.deleteIfExists(target);
+                    failure = new IOException("The file on disk does not match the server, restarting the download");
+                }
+                Files.deleteIfExists(checkpoint);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private void write(RawResponse response, long from) {
+            try {
+                if (from == 0 || validator == null) {
+                    Files.write(checkpoint, validator(response).getBytes(StandardCharsets.UTF_8));
+                }
+                try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     InputStream in = monitor(response, from)) {
+                    channel.truncate(from);
+                    copy(in, channel, from);
+                }
+                Files.deleteIfExists(checkpoint);
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        private InputStream monitor(RawResponse response, long from) {
+            if (monitor == null) {
+                return response.getContent();
+            }
+            return new MonitoringInputStream(response.getContent(),
+                    (field, file, bytes, total) -> monitor.accept(field, file, from + bytes, from + total),
+                    target, response);
+        }
+
+        private void copy(InputStream in, FileChannel channel, long from) throws IOException {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long position = from;
+            try {
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    ByteBuffer bytes = ByteBuffer.wrap(buffer, 0, read);
+                    while (bytes.hasRemaining()) {
+                        position += channel.write(bytes, position);
+                    }
+                }
+            } finally {
+                channel.force(false);
+            }
+        }
+
+        private boolean isTransient(HttpResponse<File> response) {
+            int status = response.getStatus();
+            return failure != null || status == 408 || status == 502 || status == 503 || status == 504;
+        }
+
+        private void throwFailure() {
+            if (failure != null) {
+                throw new UnirestException(failure);
+            }
+        }
+    }
+
+    private static String validator(RawResponse response) {
+        String etag = response.getHeaders().getFirst("ETag");
+        if (!etag.isEmpty() && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return response.getHeaders().getFirst("Last-Modified");
+    }
+}
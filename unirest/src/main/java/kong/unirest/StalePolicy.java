@@ -0,0 +1,208 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Serves cached responses past their max age.
+ * Within the stale-while-revalidate window the stale response is returned at once and a single
+ * background refresh per key replaces it when it completes.
+ * Past that window the origin is called, and if it fails with an exception or a 5xx status
+ * the stale response is returned for as long as the stale-if-error window lasts.
+ * Ages are measured from the key time of the entry, or from the last successful refresh.
+ * A refresh also restarts the time the default backing cache keeps the entry for, so that keys in steady use
+ * are never evicted from under their refreshes.
+ * Plain responses placed in the cache by something else, such as a snapshot, are served as they are.
+ */
+class StalePolicy {
+    private final Cache cache;
+    private final long maxAge;
+    private final long whileRevalidate;
+    private final long ifError;
+
+    StalePolicy(Cache cache, long maxAge, long whileRevalidate, long ifError) {
+        this.cache = cache;
+        this.maxAge = maxAge;
+        this.whileRevalidate = whileRevalidate;
+        this.ifError = ifError;
+    }
+
+    /**
+     * @return how much longer than the max age the backing cache must hold entries
+     */
+    static long retention(long whileRevalidate, long ifError) {
+        return Math.max(whileRevalidate, ifError);
+    }
+
+    <T> HttpResponse<T> request(Cache.Key key,
+                                Supplier<HttpResponse<T>> origin,
+                                Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        boolean[] loaded = {false};
+        HttpResponse<T> cached = cache.get(key, () -> {
+            loaded[0] = true;
+            return new Entry<>(origin.get(), key.getTime().toEpochMilli());
+        });
+        if (!(cached instanceof Entry)) {
+            return cached;
+        }
+        Entry<T> entry = (Entry<T>) cached;
+        long age = entry.age();
+        if (loaded[0] || age <= maxAge) {
+            return entry.getResponse();
+        }
+        if (age <= maxAge + whileRevalidate) {
+            refreshInBackground(key, entry, refresh);
+            return entry.getResponse();
+        }
+        long requested = now();
+        try {
+            return update(key, entry, origin.get(), requested, age <= maxAge + ifError);
+        } catch (RuntimeException e) {
+            if (age <= maxAge + ifError) {
+                return entry.getResponse();
+            }
+            throw e;
+        }
+    }
+
+    <T> CompletableFuture<HttpResponse<T>> requestAsync(Cache.Key key,
+                                                        Supplier<CompletableFuture<HttpResponse<T>>> origin,
+                                                        Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        boolean[] fetched = {false};
+        CompletableFuture<HttpResponse<T>> loaded = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<T>> entry = cache.getAsync(key, () -> {
+            fetched[0] = true;
+            long requested = key.getTime().toEpochMilli();
+            return (CompletableFuture) Util.pipe(origin.get(), loaded).thenApply(r -> new Entry<>(r, requested));
+        });
+        if (fetched[0]) {
+            return loaded;
+        }
+        return entry.thenCompose(e -> e instanceof Entry
+                ? serve(key, (Entry<T>) e, origin, refresh)
+                : CompletableFuture.completedFuture(e));
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> serve(Cache.Key key,
+                                                         Entry<T> entry,
+                                                         Supplier<CompletableFuture<HttpResponse<T>>> origin,
+                                                         Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        long age = entry.age();
+        if (age <= maxAge) {
+            return CompletableFuture.completedFuture(entry.getResponse());
+        }
+        if (age <= maxAge + whileRevalidate) {
+            refreshInBackground(key, entry, refresh);
+            return CompletableFuture.completedFuture(entry.getResponse());
+        }
+        long requested = now();
+        boolean fallback = age <= maxAge + ifError;
+        return origin.get().handle((r, ex) -> {
+            if (ex == null) {
+                return update(key, entry, r, requested, fallback);
+            } else if (fallback) {
+                return entry.getResponse();
+            }
+            throw ex instanceof CompletionException ? (CompletionException) ex : new CompletionException(ex);
+        });
+    }
+
+    private <T> void refreshInBackground(Cache.Key key, Entry<T> entry, Supplier<CompletableFuture<HttpResponse<T>>> refresh) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        long requested = now();
+        try {
+            refresh.get().whenComplete((r, ex) -> {
+                if (ex == null) {
+                    update(key, entry, r, requested, true);
+                }
+                entry.refreshing.set(false);
+            });
+        } catch (RuntimeException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private <T> HttpResponse<T> update(Cache.Key key, Entry<T> entry, HttpResponse<T> fresh, long requestedAt, boolean keepOnError) {
+        HttpResponse<T> response = entry.update(fresh, requestedAt, keepOnError);
+        if (cache instanceof ConcurrentCache) {
+            ((ConcurrentCache) cache).renew(key, entry.loadedAt);
+        }
+        return response;
+    }
+
+    private static boolean isError(HttpResponse<?> response) {
+        return response == null || response.getStatus() >= HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    private static long now() {
+        return Util.now().toEpochMilli();
+    }
+
+    private static class Entry<T> extends ForwardingResponse<T> {
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+        private volatile HttpResponse<T> response;
+        private volatile long loadedAt;
+
+        Entry(HttpResponse<T> response, long loadedAt) {
+            this.response = response;
+            this.loadedAt = loadedAt;
+        }
+
+        @Override
+        HttpResponse<T> getResponse() {
+            return response;
+        }
+
+        long age() {
+            return now() - loadedAt;
+        }
+
+        /**
+         * stores a new response from the origin
+         * @param keepOnError return the current response rather than a 5xx one and keep it cached
+         * @return the response to hand to the caller
+         */
+        synchronized HttpResponse<T> update(HttpResponse<T> fresh, long requestedAt, boolean keepOnError) {
+            if (isError(fresh)) {
+                if (keepOnError) {
+                    return response;
+                }
+                return fresh;
+            }
+            if (requestedAt >= loadedAt) {
+                response = fresh;
+                loadedAt = requestedAt;
+            }
+            return fresh;
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel for expiring cache entries.
+ * Timers are hashed into buckets by their expiration time, with coarser buckets
+ * for timers that are further out. Scheduling and descheduling are O(1) and
+ * advancing the wheel only visits the buckets whose time has passed, cascading
+ * timers that are not yet due down into finer buckets.
+ * This class is not thread safe and must be guarded by the caller.
+ */
+class TimerWheel {
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            1L << 10, // 1.02 seconds
+            1L << 16, // 1.09 minutes
+            1L << 22, // 1.17 hours
+            1L << 27, // 1.55 days
+            1L << 29, // 6.21 days
+            1L << 29
+    };
+    private static final long[] SHIFT = {10, 16, 22, 27, 29};
+
+    private final Timer[][] wheel;
+    private long time;
+
+    TimerWheel(long nowMillis) {
+        this.time = nowMillis;
+        this.wheel = new Timer[BUCKETS.length][];
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = new Timer[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = sentinel();
+            }
+        }
+    }
+
+    /**
+     * Adds a timer to the wheel. Timers which are already past due are placed in the current bucket.
+     * @param timer the timer to schedule
+     */
+    void schedule(Timer timer) {
+        Timer sentinel = findBucket(Math.max(timer.expiresAt, time));
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+    }
+
+    /**
+     * Moves a timer to a new expiration time
+     * @param timer the timer to move
+     * @param expiresAt the new expiration time in epoch millis
+     */
+    void reschedule(Timer timer, long expiresAt) {
+        deschedule(timer);
+        timer.expiresAt = expiresAt;
+        schedule(timer);
+    }
+
+    /**
+     * Removes a timer from the wheel if it is scheduled.
+     * @param timer the timer to remove
+     */
+    void deschedule(Timer timer) {
+        if (timer.next != null) {
+            timer.next.prev = timer.prev;
+            timer.prev.next = timer.next;
+            timer.next = null;
+            timer.prev = null;
+        }
+    }
+
+    /**
+     * Advances the wheel to the current time and hands every expired timer to the consumer.
+     * A timer is expired once the current time is strictly after its expiration time.
+     * @param nowMillis the current time in epoch millis
+     * @param onExpired receives each expired timer after it has been removed from the wheel
+     */
+    void advance(long nowMillis, Consumer<Timer> onExpired) {
+        long previous = time;
+        time = nowMillis;
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previous >>> SHIFT[i];
+            long currentTicks = nowMillis >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, onExpired);
+        }
+    }
+
+    private void expire(int index, long previousTicks, long delta, Consumer<Timer> onExpired) {
+        Timer[] timerWheel = wheel[index];
+        int mask = timerWheel.length - 1;
+        int steps = (int) Math.min(1 + delta, timerWheel.length);
+        int start = (int) (previousTicks & mask);
+        for (int i = start; i < start + steps; i++) {
+            Timer sentinel = timerWheel[i & mask];
+            Timer timer = sentinel.next;
+            sentinel.next = sentinel;
+            sentinel.prev = sentinel;
+            while (timer != sentinel) {
+                Timer next = timer.next;
+                timer.next = null;
+                timer.prev = null;
+                if (timer.isExpired(time)) {
+                    onExpired.accept(timer);
+                } else {
+                    schedule(timer);
+                }
+                timer = next;
+            }
+        }
+    }
+
+    private static Timer sentinel() {
+        Timer sentinel = new Timer(0);
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        return sentinel;
+    }
+
+    private Timer findBucket(long expiresAt) {
+        long duration = expiresAt - time;
+        int length = wheel.length - 1;
+        for (int i = 0; i < length; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = expiresAt >>> SHIFT[i];
+                int index = (int) (ticks & (wheel[i].length - 1));
+                return wheel[i][index];
+            }
+        }
+        return wheel[length][0];
+    }
+
+    /**
+     * An entry in the wheel. Bucket sentinels are Timers that link to themselves.
+     */
+    static class Timer {
+        private volatile long expiresAt;
+        private Timer prev;
+        private Timer next;
+
+        Timer(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(long nowMillis) {
+            return nowMillis - expiresAt > 0;
+        }
+
+        long getExpiresAt() {
+            return expiresAt;
+        }
+    }
+}
@@ -36,4 +36,24 @@ public interface UniMetric {
      * @return a MetricContext for this request
      */
     MetricContext begin(HttpRequestSummary request);
+
+    /**
+     * Called after every lookup in the response cache once its response is ready.
+     * Misses are also seen by begin as they go on to the server, hits are not.
+     * @param request A summary of the Http Request which was looked up
+     * @param hit true if the response was served from the cache without waiting on the server
+     * @param stats the current statistics of the cache
+     */
+    default void cacheLookup(HttpRequestSummary request, boolean hit, CacheStats stats) {
+    }
+
+    /**
+     * Called after every TLS handshake of a new connection of the Apache clients.
+     * A resumed handshake reuses a session from the client session cache and skips the key exchange
+     * and certificate checks of a full one. see Config::sslSessionCache
+     * @param host the host the connection was made to
+     * @param resumed true if an earlier session was resumed, false for a full handshake
+     */
+    default void tlsHandshake(String host, boolean resumed) {
+    }
 }
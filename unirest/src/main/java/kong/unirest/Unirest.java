@@ -25,6 +25,8 @@
 
 package kong.unirest;
 
+import java.util.concurrent.CompletableFuture;
+
 public class Unirest {
 
     private static UnirestInstance primaryInstance = new UnirestInstance(new Config());
@@ -148,6 +150,31 @@ public class Unirest {
         return primaryInstance.isRunning();
     }
 
+    /**
+     * @return a snapshot of the primary instance's synchronous connection pool, or null if the client has not been built yet
+     */
+    public static PoolStats getPoolStats() {
+        return primaryInstance.getPoolStats();
+    }
+
+    /**
+     * @return a snapshot of the primary instance's asynchronous connection pool, or null if the client has not been built yet
+     */
+    public static PoolStats getAsyncPoolStats() {
+        return primaryInstance.getAsyncPoolStats();
+    }
+
+    /**
+     * Opens connections to each url's route in the primary instance's pools ahead of the first requests
+     * @param connections how many connections to open for each route
+     * @param urls a url for each route to warm
+     * @return a future completed once the pools are warm
+     * see UnirestInstance::warmUp
+     */
+    public static CompletableFuture<Void> warmUp(int connections, String... urls) {
+        return primaryInstance.warmUp(connections, urls);
+    }
+
     /**
      * Spawn a new Unirest Instance with a new config.
      * Don't forget to shut it down when your done.
@@ -25,6 +25,8 @@
 
 package kong.unirest;
 
+import java.util.concurrent.CompletableFuture;
+
 /**
  * A Instance of the unirest runtime, you can have many of these but it is the config
  * and its clients where all the action happens.
@@ -49,6 +51,38 @@ public class UnirestInstance implements AutoCloseable {
         return config;
     }
 
+    /**
+     * How many connections the synchronous client has leased, kept available and has requests waiting for,
+     * in total and for each route.
+     * @return a snapshot of the pool, or null if the client has not been built yet or does not pool connections
+     */
+    public PoolStats getPoolStats() {
+        return config.getPoolStats();
+    }
+
+    /**
+     * How many connections the asynchronous client has leased, kept available and has requests waiting for,
+     * in total and for each route.
+     * @return a snapshot of the pool, or null if the client has not been built yet or does not pool connections
+     */
+    public PoolStats getAsyncPoolStats() {
+        return config.getAsyncPoolStats();
+    }
+
+    /**
+     * Opens connections to each url's route ahead of the first requests, so that they do not pay for the TCP
+     * and TLS handshakes. Both the synchronous and asynchronous clients are built if need be and each warms
+     * connections in its own pool, which are the same connections later requests lease.
+     * The asynchronous client only starts the TLS handshakes of its connections, they finish in the background
+     * after the future has completed.
+     * @param connections how many connections to open for each route, at most the connection limit of the route
+     * @param urls a url for each route to warm, only its scheme, host and port matter
+     * @return a future completed once the pools are warm, or completed exceptionally if a connection could not be opened
+     */
+    public CompletableFuture<Void> warmUp(int connections, String... urls) {
+        return config.warmUp(connections, urls);
+    }
+
     /**
      * Close the asynchronous client and its event loop. Use this method to close all the threads and allow an application to exit.
      * This will also clear any options returning Unirest to a default state
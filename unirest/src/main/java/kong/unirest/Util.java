@@ -32,6 +32,7 @@ import java.net.URLEncoder;
 import java.time.Instant;
 import java.util.Base64;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -50,6 +51,17 @@ class Util {
         return clock.get();
     }
 
+    static <T> CompletableFuture<T> pipe(CompletableFuture<T> from, CompletableFuture<T> to) {
+        from.whenComplete((r, ex) -> {
+            if (ex != null) {
+                to.completeExceptionally(ex);
+            } else {
+                to.complete(r);
+            }
+        });
+        return to;
+    }
+
     static <T, M extends T> Optional<M> tryCast(T original, Class<M> too) {
         if (original != null && too.isAssignableFrom(original.getClass())) {
             return Optional.of((M) original);
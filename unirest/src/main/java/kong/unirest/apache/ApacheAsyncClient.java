@@ -32,15 +32,16 @@ import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.nio.protocol.BasicAsyncRequestProducer;
-import org.apache.http.nio.protocol.BasicAsyncResponseConsumer;
+import org.apache.http.util.EntityUtils;
 
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
 
-public class ApacheAsyncClient extends BaseApacheClient implements AsyncClient {
+public class ApacheAsyncClient extends BaseApacheClient implements AsyncClient, PooledClient {
     private ApacheAsyncConfig apache;
 
     public ApacheAsyncClient(Config config) {
@@ -64,6 +65,21 @@ public class ApacheAsyncClient extends BaseApacheClient implements AsyncClient {
         this.apache.registerShutdownHook();
     }
 
+    @Override
+    public PoolStats getPoolStats() {
+        return apache.getPoolStats();
+    }
+
+    @Override
+    public void resizePool() {
+        apache.resize();
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp(String url, int connections) {
+        return apache.warmUp(url, connections);
+    }
+
     @Override
     public <T> CompletableFuture<HttpResponse<T>> request(
             HttpRequest request,
@@ -72,40 +88,108 @@ public class ApacheAsyncClient extends BaseApacheClient implements AsyncClient {
 
         Objects.requireNonNull(callback);
         apache.config.getUniInterceptor().onRequest(request, apache.config);
-        HttpUriRequest requestObj = new RequestPrep(request, apache.config, true).prepare(configFactory);
+        HttpUriRequest requestObj = new RequestPrep(request, apache.config, true, apache.getStreams()).prepare(configFactory);
         HttpRequestSummary reqSum = request.toSummary();
         MetricContext metric = apache.config.getMetric().begin(reqSum);
         HttpHost host = determineTarget(requestObj, request.getHeaders());
-        apache.client.execute(new BasicAsyncRequestProducer(host, requestObj), new BasicAsyncResponseConsumer(), new FutureCallback<org.apache.http.HttpResponse>() {
-            @Override
-            public void completed(org.apache.http.HttpResponse httpResponse) {
+        Exchange<T> exchange = new Exchange<>(transformer, callback, reqSum, metric);
+        Future<org.apache.http.HttpResponse> future = execute(new BasicAsyncRequestProducer(host, requestObj), exchange, metric);
+        callback.whenComplete((r, e) -> {
+            if (callback.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return callback;
+    }
+
+    private Future<org.apache.http.HttpResponse> execute(BasicAsyncRequestProducer producer, Exchange<?> exchange, MetricContext metric) {
+        ConnectionPools.executing(metric);
+        try {
+            return apache.client.execute(producer, exchange.consumer, exchange);
+        } finally {
+            ConnectionPools.executed();
+        }
+    }
+
+    /**
+     * Completes the callback of one request. Small bodies are transformed on the I/O thread once complete,
+     * large ones are transformed by a reader thread while they stream in. see StreamingResponseConsumer
+     */
+    private class Exchange<T> implements FutureCallback<org.apache.http.HttpResponse> {
+        private final Function<RawResponse, HttpResponse<T>> transformer;
+        private final CompletableFuture<HttpResponse<T>> callback;
+        private final HttpRequestSummary reqSum;
+        private final MetricContext metric;
+        private final StreamingResponseConsumer consumer;
+
+        Exchange(Function<RawResponse, HttpResponse<T>> transformer,
+                 CompletableFuture<HttpResponse<T>> callback,
+                 HttpRequestSummary reqSum,
+                 MetricContext metric) {
+            this.transformer = transformer;
+            this.callback = callback;
+            this.reqSum = reqSum;
+            this.metric = metric;
+            this.consumer = new StreamingResponseConsumer(apache.config.getAsyncResponseBufferSize(), this::stream);
+        }
+
+        private void stream(org.apache.http.HttpResponse httpResponse) {
+            apache.getStreams().execute(() -> {
                 ApacheResponse t = new ApacheResponse(httpResponse, apache.config);
-                metric.complete(t.toSummary(), null);
                 HttpResponse<T> response = transformBody(transformer, t);
-                apache.config.getUniInterceptor().onResponse(response, reqSum, apache.config);
-                callback.complete(response);
+                EntityUtils.consumeQuietly(httpResponse.getEntity());
+                Exception failure = consumer.getFailure();
+                if (failure != null) {
+                    fail(failure);
+                } else {
+                    metric.complete(t.toSummary(), null);
+                    complete(response);
+                }
+            });
+        }
+
+        @Override
+        public void completed(org.apache.http.HttpResponse httpResponse) {
+            if (consumer.isStreaming()) {
+                return;
             }
+            ApacheResponse t = new ApacheResponse(httpResponse, apache.config);
+            metric.complete(t.toSummary(), null);
+            complete(transformBody(transformer, t));
+        }
 
-            @Override
-            public void failed(Exception e) {
-                metric.complete(null, e);
-                try {
-                    HttpResponse r = apache.config.getUniInterceptor().onFail(e, reqSum, apache.config);
-                    callback.complete(r);
-                } catch (Exception ee){
-                    callback.completeExceptionally(e);
-                }
+        private void complete(HttpResponse<T> response) {
+            apache.config.getUniInterceptor().onResponse(response, reqSum, apache.config);
+            callback.complete(response);
+        }
+
+        @Override
+        public void failed(Exception e) {
+            if (!consumer.isStreaming()) {
+                fail(e);
             }
+        }
 
-            @Override
-            public void cancelled() {
-                UnirestException canceled = new UnirestException("canceled");
-                metric.complete(null, canceled);
-                callback.completeExceptionally(canceled);
-                apache.config.getUniInterceptor().onFail(canceled, reqSum, apache.config);
+        private void fail(Exception e) {
+            metric.complete(null, e);
+            try {
+                HttpResponse r = apache.config.getUniInterceptor().onFail(e, reqSum, apache.config);
+                callback.complete(r);
+            } catch (Exception ee){
+                callback.completeExceptionally(e);
             }
-        });
-        return callback;
+        }
+
+        @Override
+        public void cancelled() {
+            if (consumer.isStreaming()) {
+                return;
+            }
+            UnirestException canceled = new UnirestException("canceled");
+            metric.complete(null, canceled);
+            callback.completeExceptionally(canceled);
+            apache.config.getUniInterceptor().onFail(canceled, reqSum, apache.config);
+        }
     }
 
     @Override
@@ -26,23 +26,30 @@
 package kong.unirest.apache;
 
 import kong.unirest.Config;
+import kong.unirest.PoolStats;
 import kong.unirest.UnirestConfigException;
 import org.apache.http.config.Registry;
+import org.apache.http.concurrent.FutureCallback;
 import org.apache.http.config.RegistryBuilder;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.TrustStrategy;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
 import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
 import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
 import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.nio.NHttpClientConnection;
 import org.apache.http.nio.client.HttpAsyncClient;
 import org.apache.http.nio.conn.NoopIOSessionStrategy;
 import org.apache.http.nio.conn.SchemeIOSessionStrategy;
-import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
-import org.apache.http.ssl.SSLContextBuilder;
 
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 import static kong.unirest.apache.BaseApacheClient.toApacheCreds;
@@ -52,20 +59,22 @@ class ApacheAsyncConfig {
     final Config config;
     private AsyncIdleConnectionMonitorThread syncMonitor;
     private PoolingNHttpClientConnectionManager manager;
+    private final ConnectionLimits limits;
     private boolean hookset;
+    private final ThreadPoolExecutor streams = newStreams();
 
     public ApacheAsyncConfig(Config config) {
         this.config = config;
+        this.limits = new ConnectionLimits(config);
+        sizeStreams();
         try {
             manager = createConnectionManager();
-            manager.setMaxTotal(config.getMaxConnections());
-            manager.setDefaultMaxPerRoute(config.getMaxPerRoutes());
+            limits.resize(manager, manager.getRoutes());
 
             HttpAsyncClientBuilder ab = HttpAsyncClientBuilder.create()
                     .setDefaultRequestConfig(RequestOptions.toRequestConfig(config))
                     .setConnectionManager(manager)
-                    .setDefaultCredentialsProvider(toApacheCreds(config.getProxy()))
-                    .useSystemProperties();
+                    .setDefaultCredentialsProvider(toApacheCreds(config.getProxy()));
 
             setOptions(ab);
 
@@ -83,9 +92,6 @@ class ApacheAsyncConfig {
     }
 
     private void setOptions(HttpAsyncClientBuilder ab) {
-        if (!config.isVerifySsl()) {
-            disableSsl(ab);
-        }
         if (config.useSystemProperties()) {
             ab.useSystemProperties();
         }
@@ -103,39 +109,30 @@ class ApacheAsyncConfig {
                 null,
                 getRegistry(),
                 null,
-                null,
-                config.getTTL(), TimeUnit.MILLISECONDS);
+                config.getDnsResolver(),
+                config.getTTL(), TimeUnit.MILLISECONDS) {
+            @Override
+            public Future<NHttpClientConnection> requestConnection(HttpRoute route, Object state, long connectTimeout,
+                                                                   long leaseTimeout, TimeUnit tunit,
+                                                                   FutureCallback<NHttpClientConnection> callback) {
+                limits.leasing(this, route);
+                return super.requestConnection(route, state, connectTimeout, leaseTimeout, tunit, ConnectionPools.timed(callback));
+            }
+        };
     }
 
-    private Registry<SchemeIOSessionStrategy> getRegistry() throws Exception {
-        if (config.isVerifySsl()) {
-            return RegistryBuilder.<SchemeIOSessionStrategy>create()
-                    .register("http", NoopIOSessionStrategy.INSTANCE)
-                    .register("https", SSLIOSessionStrategy.getDefaultStrategy())
-                    .build();
-        } else {
-            return RegistryBuilder.<SchemeIOSessionStrategy>create()
-                    .register("http", NoopIOSessionStrategy.INSTANCE)
-                    .register("https", new SSLIOSessionStrategy(new SSLContextBuilder()
-                            .loadTrustMaterial(null, (x509Certificates, s) -> true)
-                            .build(), NoopHostnameVerifier.INSTANCE))
-                    .build();
-        }
-    }
-
-
-    private void disableSsl(HttpAsyncClientBuilder ab) {
-        try {
-            ab.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
-            ab.setSSLContext(new SSLContextBuilder().loadTrustMaterial(null, (TrustStrategy) (arg0, arg1) -> true).build());
-        } catch (Exception e) {
-            throw new UnirestConfigException(e);
-        }
+    private Registry<SchemeIOSessionStrategy> getRegistry() {
+        return RegistryBuilder.<SchemeIOSessionStrategy>create()
+                .register("http", NoopIOSessionStrategy.INSTANCE)
+                .register("https", TlsLayer.of(config).ioSessionStrategy(config))
+                .build();
     }
 
     public ApacheAsyncConfig(HttpAsyncClient client, Config config) {
         this.client = client;
         this.config = config;
+        this.limits = new ConnectionLimits(config);
+        sizeStreams();
     }
 
     @Deprecated
@@ -149,6 +146,8 @@ class ApacheAsyncConfig {
         this.client = client;
         this.syncMonitor = monitor;
         this.manager = manager;
+        this.limits = new ConnectionLimits(config);
+        sizeStreams();
     }
 
     public void registerShutdownHook() {
@@ -168,6 +167,64 @@ class ApacheAsyncConfig {
         return client;
     }
 
+    /**
+     * @return the statistics of the connection pool or null if the client was supplied without one
+     */
+    PoolStats getPoolStats() {
+        if (manager == null) {
+            return null;
+        }
+        return ConnectionPools.stats(manager, manager.getRoutes());
+    }
+
+    /**
+     * applies the current connection limits of the config to the pool
+     */
+    void resize() {
+        if (manager != null) {
+            limits.resize(manager, manager.getRoutes());
+        }
+        sizeStreams();
+    }
+
+    /**
+     * each connection has at most one request body being written and one response body being read,
+     * so twice the connection limit is enough for every stream to have a thread. Streams beyond that
+     * wait in a queue, and idle threads are let go after a minute.
+     */
+    private void sizeStreams() {
+        if (config == null) {
+            return;
+        }
+        int threads = Math.max(1, config.getMaxConnections() * 2);
+        if (threads > streams.getMaximumPoolSize()) {
+            streams.setMaximumPoolSize(threads);
+            streams.setCorePoolSize(threads);
+        } else {
+            streams.setCorePoolSize(threads);
+            streams.setMaximumPoolSize(threads);
+        }
+    }
+
+    /**
+     * opens pooled connections to the route of the url
+     * @return a future completed once the connections are open and back in the pool
+     */
+    CompletableFuture<Void> warmUp(String url, int connections) {
+        if (manager == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ConnectionWarmer.warm(manager, config, url, connections);
+    }
+
+    /**
+     * @return the threads which read streamed response bodies and write streamed request bodies,
+     *         so the I/O threads never block on them. Bounded to twice the connection limit.
+     */
+    ExecutorService getStreams() {
+        return streams;
+    }
+
     public Stream<Exception> close() {
         return Util.collectExceptions(Util.tryCast(client, CloseableHttpAsyncClient.class)
                         .filter(c -> c.isRunning())
@@ -175,6 +232,24 @@ class ApacheAsyncConfig {
                         .filter(c -> c.isPresent())
                         .map(c -> c.get()),
                 Util.tryDo(manager, m -> m.shutdown()),
-                Util.tryDo(syncMonitor, m -> m.interrupt()));
+                Util.tryDo(syncMonitor, m -> m.interrupt()),
+                Util.tryDo(streams, s -> s.shutdown()));
+    }
+
+    private static ThreadPoolExecutor newStreams() {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(1, 1, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new StreamThreads());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static class StreamThreads implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "unirest-async-stream-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
     }
 }
@@ -35,13 +35,15 @@ import org.apache.http.impl.client.HttpClients;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 import java.io.Closeable;
+import java.io.IOException;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
-public class ApacheClient extends BaseApacheClient implements Client {
+public class ApacheClient extends BaseApacheClient implements Client, PooledClient {
     private final HttpClient client;
     private final Config config;
     private final SecurityConfig security;
@@ -79,7 +81,6 @@ public class ApacheClient extends BaseApacheClient implements Client {
     }
 
     private void setOptions(HttpClientBuilder cb) {
-        security.configureSecurity(cb);
         if (!config.isAutomaticRetries()) {
             cb.disableAutomaticRetries();
         }
@@ -95,6 +96,9 @@ public class ApacheClient extends BaseApacheClient implements Client {
         if (!config.getEnabledCookieManagement()) {
             cb.disableCookieManagement();
         }
+        if (config.isZeroCopyUploadsOn()) {
+            cb.setRequestExecutor(new ChannelRequestExecutor());
+        }
         config.getInterceptor().stream().forEach(cb::addInterceptorFirst);
         if (config.shouldAddShutdownHook()) {
             registerShutdownHook();
@@ -120,7 +124,7 @@ public class ApacheClient extends BaseApacheClient implements Client {
         MetricContext metric = config.getMetric().begin(reqSum);
         try {
             HttpHost host = determineTarget(requestObj, request.getHeaders());
-            org.apache.http.HttpResponse execute = client.execute(host, requestObj);
+            org.apache.http.HttpResponse execute = execute(host, requestObj, metric);
             ApacheResponse t = new ApacheResponse(execute, config);
             metric.complete(t.toSummary(), null);
             HttpResponse<T> httpResponse = transformBody(transformer, t);
@@ -135,6 +139,15 @@ public class ApacheClient extends BaseApacheClient implements Client {
         }
     }
 
+    private org.apache.http.HttpResponse execute(HttpHost host, HttpRequestBase requestObj, MetricContext metric) throws IOException {
+        ConnectionPools.executing(metric);
+        try {
+            return client.execute(host, requestObj);
+        } finally {
+            ConnectionPools.executed();
+        }
+    }
+
     @Override
     public HttpClient getClient() {
         return client;
@@ -144,6 +157,29 @@ public class ApacheClient extends BaseApacheClient implements Client {
         return manager;
     }
 
+    @Override
+    public PoolStats getPoolStats() {
+        if (manager == null) {
+            return null;
+        }
+        return ConnectionPools.stats(manager, manager.getRoutes());
+    }
+
+    @Override
+    public void resizePool() {
+        if (manager != null) {
+            security.resize(manager);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> warmUp(String url, int connections) {
+        if (manager == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return ConnectionWarmer.warm(manager, config, url, connections);
+    }
+
     @Override
     public Stream<Exception> close() {
         return Util.collectExceptions(Util.tryCast(client, CloseableHttpClient.class)
@@ -81,8 +81,8 @@ class ApacheResponse extends RawResponseBase {
         }
         try {
             InputStream is = getContent();
-            if (is.available() > 0 && isGzipped(getEncoding())) {
-              is = new GZIPInputStream(getContent());
+            if (isGzipped(getEncoding())) {
+                is = gunzip(is);
             }
             return getBytes(is);
         } catch (IOException e2) {
@@ -173,6 +173,20 @@ class ApacheResponse extends RawResponseBase {
         }
     }
 
+    /**
+     * Empty gzip bodies are passed through as is. This peeks for the first byte rather than trusting available()
+     * which is 0 for a body that is still streaming in
+     */
+    private static InputStream gunzip(InputStream is) throws IOException {
+        PushbackInputStream peek = new PushbackInputStream(is);
+        int first = peek.read();
+        if (first == -1) {
+            return peek;
+        }
+        peek.unread(first);
+        return new GZIPInputStream(peek);
+    }
+
     private static boolean isGzipped(String value) {
         return "gzip".equalsIgnoreCase(value.toLowerCase().trim());
     }
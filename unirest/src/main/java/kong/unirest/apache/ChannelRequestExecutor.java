@@ -0,0 +1,166 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpConnectionMetrics;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpEntityEnclosingRequest;
+import org.apache.http.HttpException;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpResponse;
+import org.apache.http.conn.ManagedHttpClientConnection;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.protocol.HttpCoreContext;
+import org.apache.http.protocol.HttpRequestExecutor;
+
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Socket;
+
+/**
+ * Writes request bodies straight to the socket when they are sent on a plain socket opened by the
+ * ChannelSocketFactory, and hands them a ChannelOutputStream so files can be sent with FileChannel.transferTo.
+ * This is only done for bodies with a content length, as chunked encoding has to frame every write.
+ */
+class ChannelRequestExecutor extends HttpRequestExecutor {
+
+    @Override
+    protected HttpResponse doSendRequest(HttpRequest request, HttpClientConnection conn, HttpContext context)
+            throws IOException, HttpException {
+        Socket socket = socketFor(request, conn);
+        if (socket == null) {
+            return super.doSendRequest(request, conn, context);
+        }
+        try {
+            return super.doSendRequest(request, new ChannelConnection(conn, socket), context);
+        } finally {
+            context.setAttribute(HttpCoreContext.HTTP_CONNECTION, conn);
+        }
+    }
+
+    private static Socket socketFor(HttpRequest request, HttpClientConnection conn) {
+        if (!(request instanceof HttpEntityEnclosingRequest) || !(conn instanceof ManagedHttpClientConnection)) {
+            return null;
+        }
+        HttpEntity entity = ((HttpEntityEnclosingRequest) request).getEntity();
+        if (entity == null || entity.getContentLength() < 0 || entity.isChunked()) {
+            return null;
+        }
+        Socket socket = ((ManagedHttpClientConnection) conn).getSocket();
+        if (socket == null || socket instanceof SSLSocket || socket.getChannel() == null) {
+            return null;
+        }
+        return socket;
+    }
+
+    /**
+     * Sends everything through the connection except the body, which is written to the socket once
+     * the request head has been flushed.
+     */
+    private static class ChannelConnection implements HttpClientConnection {
+        private final HttpClientConnection conn;
+        private final Socket socket;
+
+        ChannelConnection(HttpClientConnection conn, Socket socket) {
+            this.conn = conn;
+            this.socket = socket;
+        }
+
+        @Override
+        public void sendRequestEntity(HttpEntityEnclosingRequest request) throws HttpException, IOException {
+            HttpEntity entity = request.getEntity();
+            if (entity == null) {
+                return;
+            }
+            conn.flush();
+            try (OutputStream out = new ChannelOutputStream(socket)) {
+                entity.writeTo(out);
+            }
+        }
+
+        @Override
+        public boolean isResponseAvailable(int timeout) throws IOException {
+            return conn.isResponseAvailable(timeout);
+        }
+
+        @Override
+        public void sendRequestHeader(HttpRequest request) throws HttpException, IOException {
+            conn.sendRequestHeader(request);
+        }
+
+        @Override
+        public HttpResponse receiveResponseHeader() throws HttpException, IOException {
+            return conn.receiveResponseHeader();
+        }
+
+        @Override
+        public void receiveResponseEntity(HttpResponse response) throws HttpException, IOException {
+            conn.receiveResponseEntity(response);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            conn.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            conn.close();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return conn.isOpen();
+        }
+
+        @Override
+        public boolean isStale() {
+            return conn.isStale();
+        }
+
+        @Override
+        public void setSocketTimeout(int timeout) {
+            conn.setSocketTimeout(timeout);
+        }
+
+        @Override
+        public int getSocketTimeout() {
+            return conn.getSocketTimeout();
+        }
+
+        @Override
+        public void shutdown() throws IOException {
+            conn.shutdown();
+        }
+
+        @Override
+        public HttpConnectionMetrics getMetrics() {
+            return conn.getMetrics();
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import kong.unirest.Config;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+import org.apache.http.pool.PoolStats;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Applies the concurrency settings of a config to the pool of one of the connection managers Unirest creates.
+ * The limit of a route is looked up when the route is first leased from, and again whenever the pool is resized.
+ * With adaptive concurrency on, each lease also grows the route's limit if the request would have to wait,
+ * or halves it back towards the configured limit once the route has gone a while without needing the room.
+ * see Config::concurrency, Config::routeConcurrency and Config::adaptiveConcurrency
+ */
+final class ConnectionLimits {
+    private static final long SHRINK_AFTER = TimeUnit.SECONDS.toNanos(30);
+
+    private final Config config;
+    private final Map<HttpRoute, Route> routes = new ConcurrentHashMap<>();
+
+    ConnectionLimits(Config config) {
+        this.config = config;
+    }
+
+    /**
+     * Sets the limits of the pool and every route it knows of. Connections which are leased are left alone,
+     * a pool which shrinks below what it has leased simply stops handing out more until enough are released.
+     * Each route's entry is replaced in place, so a lease running alongside always finds one.
+     */
+    void resize(ConnPoolControl<HttpRoute> pool, Set<HttpRoute> known) {
+        pool.setMaxTotal(config.getMaxConnections());
+        pool.setDefaultMaxPerRoute(config.getMaxPerRoutes());
+        Set<HttpRoute> all = new HashSet<>(routes.keySet());
+        if (known != null) {
+            all.addAll(known);
+        }
+        for (HttpRoute route : all) {
+            Route limits = new Route(limit(route));
+            routes.put(route, limits);
+            pool.setMaxPerRoute(route, limits.limit);
+        }
+    }
+
+    void leasing(ConnPoolControl<HttpRoute> pool, HttpRoute route) {
+        Route limits = routes.get(route);
+        if (limits == null) {
+            limits = new Route(limit(route));
+            if (routes.putIfAbsent(route, limits) == null) {
+                pool.setMaxPerRoute(route, limits.limit);
+            }
+        }
+        int ceiling = config.getAdaptiveConcurrency();
+        if (ceiling > 0) {
+            adapt(pool, route, limits, Math.max(ceiling, limits.limit));
+        }
+    }
+
+    private void adapt(ConnPoolControl<HttpRoute> pool, HttpRoute route, Route limits, int ceiling) {
+        PoolStats stats = pool.getStats(route);
+        int max = stats.getMax();
+        long now = System.nanoTime();
+        if (stats.getLeased() + stats.getPending() >= max && max < ceiling) {
+            pool.setMaxPerRoute(route, max + 1);
+            limits.changed = now;
+        } else if (max > limits.limit && stats.getLeased() < max / 2 && now - limits.changed > SHRINK_AFTER) {
+            pool.setMaxPerRoute(route, Math.max(limits.limit, max / 2));
+            limits.changed = now;
+        }
+    }
+
+    private int limit(HttpRoute route) {
+        HttpHost target = route.getTargetHost();
+        Map<String, Integer> overrides = config.getRouteConcurrency();
+        Integer limit = overrides.get(target.toURI().toLowerCase());
+        if (limit == null) {
+            limit = overrides.get(target.getHostName().toLowerCase());
+        }
+        return limit == null ? config.getMaxPerRoutes() : limit;
+    }
+
+    private static final class Route {
+        private final int limit;
+        private volatile long changed = System.nanoTime();
+
+        Route(int limit) {
+            this.limit = limit;
+        }
+    }
+}
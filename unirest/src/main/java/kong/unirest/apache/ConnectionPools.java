@@ -0,0 +1,132 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import kong.unirest.MetricContext;
+import kong.unirest.PoolStats;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.pool.ConnPoolControl;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reports on the connection pools of the Apache clients. Both clients ask their pool for a connection on
+ * the thread which executes the request, so the MetricContext of the request is held for that thread while
+ * it does, and the connection managers Unirest creates time each lease for it. see MetricContext::connectionLeased
+ * Apache only passes the managers a route and a pool state, and the state decides which idle connections
+ * a request may reuse, so the metric cannot be passed along with it. It is set and removed around each
+ * execute call and never outlives it.
+ */
+final class ConnectionPools {
+    private static final ThreadLocal<MetricContext> EXECUTING = new ThreadLocal<>();
+
+    private ConnectionPools() {
+    }
+
+    static void executing(MetricContext metric) {
+        EXECUTING.set(metric);
+    }
+
+    static void executed() {
+        EXECUTING.remove();
+    }
+
+    static PoolStats stats(ConnPoolControl<HttpRoute> pool, Set<HttpRoute> routes) {
+        Map<String, PoolStats> byRoute = new LinkedHashMap<>();
+        for (HttpRoute route : routes) {
+            byRoute.put(route.getTargetHost().toURI(), toStats(pool.getStats(route), null));
+        }
+        return toStats(pool.getTotalStats(), byRoute);
+    }
+
+    private static PoolStats toStats(org.apache.http.pool.PoolStats stats, Map<String, PoolStats> routes) {
+        return new PoolStats(stats.getLeased(), stats.getAvailable(), stats.getPending(), stats.getMax(), routes);
+    }
+
+    /**
+     * Times how long the classic client blocks in ConnectionRequest::get
+     */
+    static ConnectionRequest timed(ConnectionRequest request) {
+        MetricContext metric = EXECUTING.get();
+        if (metric == null) {
+            return request;
+        }
+        return new ConnectionRequest() {
+            @Override
+            public HttpClientConnection get(long timeout, TimeUnit unit)
+                    throws InterruptedException, ExecutionException, ConnectionPoolTimeoutException {
+                long start = System.nanoTime();
+                try {
+                    return request.get(timeout, unit);
+                } finally {
+                    metric.connectionLeased(System.nanoTime() - start);
+                }
+            }
+
+            @Override
+            public boolean cancel() {
+                return request.cancel();
+            }
+        };
+    }
+
+    /**
+     * Times how long the async client waits from asking for a connection to being called back with it
+     */
+    static <C> FutureCallback<C> timed(FutureCallback<C> callback) {
+        MetricContext metric = EXECUTING.get();
+        if (metric == null) {
+            return callback;
+        }
+        long start = System.nanoTime();
+        return new FutureCallback<C>() {
+            @Override
+            public void completed(C result) {
+                metric.connectionLeased(System.nanoTime() - start);
+                callback.completed(result);
+            }
+
+            @Override
+            public void failed(Exception ex) {
+                metric.connectionLeased(System.nanoTime() - start);
+                callback.failed(ex);
+            }
+
+            @Override
+            public void cancelled() {
+                callback.cancelled();
+            }
+        };
+    }
+}
@@ -0,0 +1,190 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import kong.unirest.Config;
+import kong.unirest.UnirestException;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpException;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.client.utils.URIUtils;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.conn.ConnectionPoolTimeoutException;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.conn.routing.HttpRoutePlanner;
+import org.apache.http.impl.conn.DefaultRoutePlanner;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.conn.SystemDefaultRoutePlanner;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.message.BasicHttpRequest;
+import org.apache.http.nio.NHttpClientConnection;
+
+import java.io.IOException;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opens connections in the pools of the connection managers Unirest creates ahead of the first requests.
+ * Connections are leased from the pool like a request would lease them, connected (and for https handshaken),
+ * then released back to the pool where the next requests to the route pick them up.
+ * Routes which tunnel through a proxy need the exchange of a real request to be set up and are not warmed.
+ * see UnirestInstance::warmUp
+ */
+final class ConnectionWarmer {
+    private ConnectionWarmer() {
+    }
+
+    /**
+     * Leases the connections on the calling thread, so that they are all held at once, then connects them in parallel
+     */
+    static CompletableFuture<Void> warm(PoolingHttpClientConnectionManager manager, Config config, String url, int connections) {
+        HttpRoute route = route(config, url);
+        if (route.isTunnelled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<HttpClientConnection> leased = lease(manager, config, route, connections);
+        CompletableFuture<?>[] connecting = leased.stream()
+                .map(c -> CompletableFuture.runAsync(() -> connect(manager, config, route, c)))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(connecting)
+                .whenComplete((v, e) -> leased.forEach(c -> manager.releaseConnection(c, null, 0, TimeUnit.MILLISECONDS)));
+    }
+
+    private static List<HttpClientConnection> lease(PoolingHttpClientConnectionManager manager, Config config,
+                                                    HttpRoute route, int connections) {
+        List<HttpClientConnection> leased = new ArrayList<>();
+        try {
+            while (leased.size() < connections && (leased.isEmpty() || leased.size() < manager.getMaxPerRoute(route))) {
+                leased.add(manager.requestConnection(route, null).get(config.getConnectionTimeout(), TimeUnit.MILLISECONDS));
+            }
+        } catch (ConnectionPoolTimeoutException e) {
+            // the pool is full, so warm what it has room for
+        } catch (InterruptedException | ExecutionException e) {
+            leased.forEach(c -> manager.releaseConnection(c, null, 0, TimeUnit.MILLISECONDS));
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            throw new UnirestException(e);
+        }
+        return leased;
+    }
+
+    private static void connect(PoolingHttpClientConnectionManager manager, Config config,
+                                HttpRoute route, HttpClientConnection connection) {
+        if (connection.isOpen()) {
+            return;
+        }
+        try {
+            HttpClientContext context = HttpClientContext.create();
+            manager.connect(connection, route, config.getConnectionTimeout(), context);
+            manager.routeComplete(connection, route, context);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * The async pool connects new connections as it leases them, so they are all requested at once.
+     * The handshake of an https connection is started here and finished by the I/O reactor in the background,
+     * so the future completes once the connections are open and their handshakes have started.
+     */
+    static CompletableFuture<Void> warm(PoolingNHttpClientConnectionManager manager, Config config, String url, int connections) {
+        HttpRoute route = route(config, url);
+        if (route.isTunnelled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        List<CompletableFuture<NHttpClientConnection>> leasing = new ArrayList<>();
+        leasing.add(lease(manager, config, route));
+        int count = Math.min(connections, manager.getMaxPerRoute(route));
+        while (leasing.size() < count) {
+            leasing.add(lease(manager, config, route));
+        }
+        CompletableFuture<?>[] connecting = leasing.stream()
+                .map(f -> f.thenAccept(c -> startRoute(manager, route, c)))
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(connecting)
+                .whenComplete((v, e) -> leasing.forEach(f -> f.thenAccept(c -> manager.releaseConnection(c, null, 0, TimeUnit.MILLISECONDS))));
+    }
+
+    private static CompletableFuture<NHttpClientConnection> lease(PoolingNHttpClientConnectionManager manager,
+                                                                  Config config, HttpRoute route) {
+        CompletableFuture<NHttpClientConnection> leased = new CompletableFuture<>();
+        manager.requestConnection(route, null, config.getConnectionTimeout(), config.getConnectionTimeout(),
+                TimeUnit.MILLISECONDS, new FutureCallback<NHttpClientConnection>() {
+                    @Override
+                    public void completed(NHttpClientConnection result) {
+                        leased.complete(result);
+                    }
+
+                    @Override
+                    public void failed(Exception ex) {
+                        leased.completeExceptionally(ex);
+                    }
+
+                    @Override
+                    public void cancelled() {
+                        leased.cancel(false);
+                    }
+                });
+        return leased;
+    }
+
+    private static void startRoute(PoolingNHttpClientConnectionManager manager, HttpRoute route, NHttpClientConnection connection) {
+        if (manager.isRouteComplete(connection)) {
+            return;
+        }
+        try {
+            HttpClientContext context = HttpClientContext.create();
+            manager.startRoute(connection, route, context);
+            manager.routeComplete(connection, route, context);
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    /**
+     * Plans the route the same way the clients do, so that a proxy from the config or the system is taken into account
+     */
+    private static HttpRoute route(Config config, String url) {
+        HttpRoutePlanner planner = config.useSystemProperties()
+                ? new SystemDefaultRoutePlanner(ProxySelector.getDefault())
+                : new DefaultRoutePlanner(null);
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestOptions.toRequestConfig(config));
+        try {
+            HttpHost target = URIUtils.extractHost(URI.create(url));
+            return planner.determineRoute(target, new BasicHttpRequest("GET", url), context);
+        } catch (HttpException | IllegalArgumentException e) {
+            throw new UnirestException(e);
+        }
+    }
+}
@@ -29,12 +29,19 @@ import kong.unirest.ProgressMonitor;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.mime.content.FileBody;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Objects;
 
 public class MonitoringFileBody extends FileBody {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final long TRANSFER_CHUNK = 4 * 1024 * 1024;
     private final String field;
     private final ProgressMonitor monitor;
     private long length;
@@ -50,10 +57,45 @@ public class MonitoringFileBody extends FileBody {
 
     @Override
     public void writeTo(OutputStream out) throws IOException {
-        if(Objects.nonNull(monitor)){
-            super.writeTo(new MonitoringStream(out, length, field, name, monitor));
+        if (out instanceof ChannelOutputStream) {
+            out.flush();
+            transfer(((ChannelOutputStream) out).getChannel());
+        } else if(Objects.nonNull(monitor)){
+            copy(new MonitoringStream(out, length, field, name, monitor));
         } else {
-            super.writeTo(out);
+            copy(out);
+        }
+    }
+
+    /**
+     * Sends the file straight to the socket, after everything written before it has been flushed.
+     * Progress is reported after each chunk.
+     */
+    private void transfer(SocketChannel socket) throws IOException {
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            while (position < size) {
+                long sent = channel.transferTo(position, Math.min(TRANSFER_CHUNK, size - position), socket);
+                if (sent <= 0) {
+                    throw new EOFException("File was truncated while uploading: " + getFile());
+                }
+                position += sent;
+                if (Objects.nonNull(monitor)) {
+                    monitor.accept(field, name, position, length);
+                }
+            }
+        }
+    }
+
+    private void copy(OutputStream out) throws IOException {
+        try (FileChannel channel = FileChannel.open(getFile().toPath(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) != -1) {
+                out.write(buffer.array(), 0, buffer.position());
+                buffer.clear();
+            }
+            out.flush();
         }
     }
 }
@@ -31,12 +31,11 @@ import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.client.methods.*;
 import org.apache.http.message.BasicHeader;
-import org.apache.http.nio.entity.NByteArrayEntity;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.function.Function;
 
 class RequestPrep {
@@ -48,6 +47,7 @@ class RequestPrep {
     private final HttpRequest request;
     private Config config;
     private final boolean async;
+    private final Executor streams;
 
     static {
         FACTORIES = new HashMap<>();
@@ -61,9 +61,14 @@ class RequestPrep {
     }
 
     RequestPrep(HttpRequest request, Config config, boolean async) {
+        this(request, config, async, null);
+    }
+
+    RequestPrep(HttpRequest request, Config config, boolean async, Executor streams) {
         this.request = request;
         this.config = config;
         this.async = async;
+        this.streams = streams;
     }
 
     HttpRequestBase prepare(RequestConfigFactory configFactory) {
@@ -109,17 +114,22 @@ class RequestPrep {
                 if (reqObj.getHeaders(CONTENT_TYPE) == null || reqObj.getHeaders(CONTENT_TYPE).length == 0) {
                     reqObj.setHeader(entity.getContentType());
                 }
-                try {
-                    ByteArrayOutputStream output = new ByteArrayOutputStream();
-                    entity.writeTo(output);
-                    NByteArrayEntity en = new NByteArrayEntity(output.toByteArray());
-                    ((HttpEntityEnclosingRequestBase) reqObj).setEntity(en);
-                } catch (IOException e) {
-                    throw new UnirestException(e);
-                }
+                ((HttpEntityEnclosingRequestBase) reqObj).setEntity(toAsyncEntity(entity));
             } else {
                 ((HttpEntityEnclosingRequestBase) reqObj).setEntity(entity);
             }
         }
     }
+
+    /**
+     * Entities which can be read as a stream are sent from it directly by the async client.
+     * Multipart forms can only be written, so they are streamed through a writer thread.
+     */
+    private HttpEntity toAsyncEntity(HttpEntity entity) {
+        Optional<Body> body = request.getBody();
+        if (body.map(Body::isMultiPart).orElse(false)) {
+            return new StreamingRequestEntity(entity, streams);
+        }
+        return entity;
+    }
 }
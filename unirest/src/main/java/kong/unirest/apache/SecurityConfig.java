@@ -26,134 +26,59 @@
 package kong.unirest.apache;
 
 import kong.unirest.Config;
-import kong.unirest.UnirestConfigException;
 import org.apache.http.config.Registry;
 import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionRequest;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.conn.socket.ConnectionSocketFactory;
 import org.apache.http.conn.socket.PlainConnectionSocketFactory;
-import org.apache.http.conn.ssl.DefaultHostnameVerifier;
-import org.apache.http.conn.ssl.NoopHostnameVerifier;
-import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
-import org.apache.http.conn.ssl.TrustStrategy;
-import org.apache.http.impl.client.HttpClientBuilder;
 import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
-import org.apache.http.ssl.SSLContextBuilder;
-import org.apache.http.ssl.SSLContexts;
 
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.SSLContext;
-import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 
 class SecurityConfig {
     private final Config config;
-    private SSLContext sslContext;
-    private SSLConnectionSocketFactory sslSocketFactory;
+    private final ConnectionLimits limits;
 
 
     public SecurityConfig(Config config) {
         this.config = config;
+        this.limits = new ConnectionLimits(config);
     }
 
     public PoolingHttpClientConnectionManager createManager() {
         PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager(buildSocketFactory(),
-                null, null, null,
-                config.getTTL(), TimeUnit.MILLISECONDS);
-
-        manager.setMaxTotal(config.getMaxConnections());
-        manager.setDefaultMaxPerRoute(config.getMaxPerRoutes());
-        return manager;
-    }
-
-    private Registry<ConnectionSocketFactory> buildSocketFactory() {
-        try {
-            if (!config.isVerifySsl()) {
-                return createDisabledSSLContext();
-            } else if (config.getKeystore() != null || config.getSslContext() != null) {
-                return createCustomSslContext();
-            } else {
-                return createDefaultRegistry();
+                null, null, config.getDnsResolver(),
+                config.getTTL(), TimeUnit.MILLISECONDS) {
+            @Override
+            public ConnectionRequest requestConnection(HttpRoute route, Object state) {
+                limits.leasing(this, route);
+                return ConnectionPools.timed(super.requestConnection(route, state));
             }
-        } catch (Exception e) {
-            throw new UnirestConfigException(e);
-        }
-    }
+        };
 
-    private Registry<ConnectionSocketFactory> createDefaultRegistry() {
-        return RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.getSocketFactory())
-                .register("https", SSLConnectionSocketFactory.getSocketFactory())
-                .build();
+        limits.resize(manager, manager.getRoutes());
+        return manager;
     }
 
-    private Registry<ConnectionSocketFactory> createCustomSslContext() {
-        SSLConnectionSocketFactory socketFactory = getSocketFactory();
-        return RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("https", socketFactory)
-                .register("http", PlainConnectionSocketFactory.INSTANCE)
-                .build();
+    /**
+     * Applies the current concurrency settings of the config to a manager made by createManager
+     */
+    void resize(PoolingHttpClientConnectionManager manager) {
+        limits.resize(manager, manager.getRoutes());
     }
 
-    private Registry<ConnectionSocketFactory> createDisabledSSLContext() throws Exception {
+    private Registry<ConnectionSocketFactory> buildSocketFactory() {
         return RegistryBuilder.<ConnectionSocketFactory>create()
-                .register("http", PlainConnectionSocketFactory.INSTANCE)
-                .register("https", new SSLConnectionSocketFactory(new SSLContextBuilder()
-                        .loadTrustMaterial(null, (x509CertChain, authType) -> true)
-                        .build(),
-                        NoopHostnameVerifier.INSTANCE))
+                .register("http", plainSocketFactory())
+                .register("https", TlsLayer.of(config).socketFactory(config))
                 .build();
     }
 
-    private SSLConnectionSocketFactory getSocketFactory() {
-        if(sslSocketFactory == null) {
-            sslSocketFactory = new SSLConnectionSocketFactory(createSslContext(), config.getProtocols(), config.getCiphers(), getHostnameVerifier());
-        }
-        return sslSocketFactory;
-    }
-
-    private HostnameVerifier getHostnameVerifier() {
-        if(config.getHostnameVerifier() != null){
-            return config.getHostnameVerifier();
-        }
-        return new DefaultHostnameVerifier();
-    }
-
-    private SSLContext createSslContext() {
-        if(sslContext == null) {
-            if(config.getSslContext() != null){
-                sslContext = config.getSslContext();
-            } else {
-                try {
-                    char[] pass = Optional.ofNullable(config.getKeyStorePassword())
-                            .map(String::toCharArray)
-                            .orElse(null);
-                    sslContext = SSLContexts.custom()
-                            .loadKeyMaterial(config.getKeystore(), pass)
-                            .build();
-                } catch (Exception e) {
-                    throw new UnirestConfigException(e);
-                }
-            }
-        }
-        return sslContext;
-    }
-
-    public void configureSecurity(HttpClientBuilder cb) {
-        if(config.getKeystore() != null){
-            cb.setSSLContext(createSslContext());
-            cb.setSSLSocketFactory(getSocketFactory());
-        }
-        if (!config.isVerifySsl()) {
-            disableSsl(cb);
-        }
-    }
-
-    private void disableSsl(HttpClientBuilder cb) {
-        try {
-            cb.setSSLHostnameVerifier(NoopHostnameVerifier.INSTANCE);
-            cb.setSSLContext(new SSLContextBuilder().loadTrustMaterial(null, (TrustStrategy) (arg0, arg1) -> true).build());
-        } catch (Exception e) {
-            throw new UnirestConfigException(e);
+    private ConnectionSocketFactory plainSocketFactory() {
+        if (config.isZeroCopyUploadsOn()) {
+            return ChannelSocketFactory.INSTANCE;
         }
+        return PlainConnectionSocketFactory.INSTANCE;
     }
 }
@@ -0,0 +1,111 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.HttpEntityWrapper;
+import org.apache.http.nio.ContentEncoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentOutputStream;
+import org.apache.http.nio.entity.HttpAsyncContentProducer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedOutputBuffer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Executor;
+
+/**
+ * Lets the async client send an entity which can only be written to a stream, like a multipart form with files,
+ * without first copying it into memory. The entity is written on a separate thread into a fixed size buffer
+ * and the I/O thread sends whatever has been buffered, suspending output while the buffer is empty.
+ */
+class StreamingRequestEntity extends HttpEntityWrapper implements HttpAsyncContentProducer {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private final Executor streams;
+    private volatile Writer writer;
+
+    StreamingRequestEntity(HttpEntity entity, Executor streams) {
+        super(entity);
+        this.streams = streams;
+    }
+
+    @Override
+    public void produceContent(ContentEncoder encoder, IOControl control) throws IOException {
+        if (writer == null) {
+            writer = new Writer(control);
+            streams.execute(writer);
+        }
+        writer.produce(encoder, control);
+    }
+
+    @Override
+    public void close() {
+        Writer w = writer;
+        writer = null;
+        if (w != null) {
+            w.buffer.shutdown();
+        }
+    }
+
+    /**
+     * One pass over the entity. A new one is started if the request is sent again, after a redirect for example
+     */
+    private class Writer implements Runnable {
+        private final SharedOutputBuffer buffer = new SharedOutputBuffer(BUFFER_SIZE, HeapByteBufferAllocator.INSTANCE);
+        private final IOControl control;
+        private volatile IOException failure;
+
+        Writer(IOControl control) {
+            this.control = control;
+        }
+
+        void produce(ContentEncoder encoder, IOControl io) throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            buffer.produceContent(encoder, io);
+        }
+
+        @Override
+        public void run() {
+            try {
+                OutputStream out = new ContentOutputStream(buffer);
+                wrappedEntity.writeTo(out);
+                out.close();
+            } catch (IOException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(new IOException(e));
+            }
+        }
+
+        private void fail(IOException e) {
+            failure = e;
+            control.requestOutput();
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.entity.BasicHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.nio.ContentDecoder;
+import org.apache.http.nio.IOControl;
+import org.apache.http.nio.entity.ContentInputStream;
+import org.apache.http.nio.protocol.AbstractAsyncResponseConsumer;
+import org.apache.http.nio.util.HeapByteBufferAllocator;
+import org.apache.http.nio.util.SharedInputBuffer;
+import org.apache.http.protocol.HttpContext;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A response consumer which reads the body into a fixed size buffer rather than into memory as a whole.
+ * When the body fits in the buffer it behaves like the BasicAsyncResponseConsumer and the response is
+ * available once complete. Otherwise the response is handed to the reader as soon as the headers arrive and
+ * its entity streams through the buffer, with input from the connection suspended while the buffer is full.
+ * The reader runs on its own thread as it blocks until the I/O thread has filled the buffer.
+ */
+class StreamingResponseConsumer extends AbstractAsyncResponseConsumer<HttpResponse> {
+    private static final int MIN_BUFFER_SIZE = 1024;
+    private final int bufferSize;
+    private final Consumer<HttpResponse> reader;
+    private volatile HttpResponse response;
+    private volatile SharedInputBuffer buffer;
+    private volatile IOControl control;
+    private volatile boolean streaming;
+    private volatile boolean received;
+    private volatile boolean aborted;
+
+    StreamingResponseConsumer(int bufferSize, Consumer<HttpResponse> reader) {
+        this.bufferSize = bufferSize;
+        this.reader = reader;
+    }
+
+    /**
+     * @return true once the response has been handed to the reader while its body is still arriving
+     */
+    boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * @return the reason the exchange did not complete or null if it has not failed
+     */
+    Exception getFailure() {
+        Exception e = getException();
+        if (e == null && aborted) {
+            return new IOException("Response consumption was cancelled");
+        }
+        return e;
+    }
+
+    @Override
+    protected void onResponseReceived(HttpResponse httpResponse) {
+        this.response = httpResponse;
+    }
+
+    @Override
+    protected void onEntityEnclosed(HttpEntity entity, ContentType contentType) {
+        long length = entity.getContentLength();
+        buffer = new SharedInputBuffer(capacity(length), HeapByteBufferAllocator.INSTANCE);
+        BasicHttpEntity body = new BasicHttpEntity();
+        body.setContent(new ContentInputStream(buffer));
+        body.setContentLength(entity.getContentLength());
+        body.setContentType(entity.getContentType());
+        body.setContentEncoding(entity.getContentEncoding());
+        body.setChunked(entity.isChunked());
+        response.setEntity(body);
+        if (length < 0 || length > bufferSize) {
+            reader.accept(response);
+            streaming = true;
+        }
+    }
+
+    /**
+     * A body which fits gets a byte to spare, as the buffer suspends input from the connection whenever it is full
+     */
+    private int capacity(long length) {
+        if (length < 0 || length > bufferSize) {
+            return bufferSize;
+        }
+        return (int) Math.max(length + 1, MIN_BUFFER_SIZE);
+    }
+
+    @Override
+    protected void onContentReceived(ContentDecoder decoder, IOControl ioControl) throws IOException {
+        this.control = ioControl;
+        buffer.consumeContent(decoder, ioControl);
+    }
+
+    @Override
+    protected HttpResponse buildResult(HttpContext context) {
+        received = true;
+        if (buffer != null) {
+            buffer.close();
+        }
+        // the last read may have filled the buffer and suspended input, which would stall the next exchange on the connection
+        if (control != null) {
+            control.requestInput();
+        }
+        return response;
+    }
+
+    @Override
+    protected void releaseResources() {
+        if (!received) {
+            aborted = true;
+            if (buffer != null) {
+                buffer.shutdown();
+            }
+        }
+    }
+}
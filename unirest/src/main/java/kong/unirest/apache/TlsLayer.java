@@ -0,0 +1,197 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import kong.unirest.Config;
+import kong.unirest.UnirestConfigException;
+import org.apache.http.HttpHost;
+import org.apache.http.conn.ssl.DefaultHostnameVerifier;
+import org.apache.http.conn.ssl.NoopHostnameVerifier;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.nio.reactor.IOSession;
+import org.apache.http.nio.reactor.ssl.SSLIOSession;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.ssl.SSLContextBuilder;
+import org.apache.http.ssl.SSLContexts;
+
+import javax.net.ssl.HostnameVerifier;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLException;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.SSLSocket;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * The TLS settings of a config, built once and shared by its sync and async clients so that both negotiate
+ * the same way and resume each other's sessions from the one client session cache.
+ * It is rebuilt if the settings it was built from have changed since, for example after a reset.
+ * Every handshake is reported to UniMetric::tlsHandshake as either full or resumed. The JDK gives the session of
+ * a resumed handshake the creation time of the session it resumes, so a session created before its handshake
+ * began was resumed.
+ */
+final class TlsLayer {
+    private static final Map<Config, TlsLayer> SHARED = new WeakHashMap<>();
+    private static final String HANDSHAKE_STARTED = "unirest.tls.handshake-started";
+
+    private final List<Object> settings;
+    private final SSLContext context;
+    private final String[] protocols;
+    private final String[] ciphers;
+    private final HostnameVerifier verifier;
+
+    private TlsLayer(Config config, List<Object> settings) {
+        this.settings = settings;
+        this.context = createContext(config);
+        this.protocols = config.getProtocols();
+        this.ciphers = config.getCiphers();
+        this.verifier = createVerifier(config);
+        configureSessions(context.getClientSessionContext(), config);
+    }
+
+    static TlsLayer of(Config config) {
+        List<Object> settings = settings(config);
+        synchronized (SHARED) {
+            TlsLayer layer = SHARED.get(config);
+            if (layer == null || !layer.settings.equals(settings)) {
+                layer = new TlsLayer(config, settings);
+                SHARED.put(config, layer);
+            }
+            return layer;
+        }
+    }
+
+    private static List<Object> settings(Config config) {
+        return Arrays.asList(config.isVerifySsl(),
+                config.getKeystore(),
+                config.getKeystore() == null ? null : config.getKeyStorePassword(),
+                config.getSslContext(),
+                config.getProtocols() == null ? null : Arrays.asList(config.getProtocols()),
+                config.getCiphers() == null ? null : Arrays.asList(config.getCiphers()),
+                config.getHostnameVerifier(),
+                config.getSslSessionCacheSize(),
+                config.getSslSessionTimeout());
+    }
+
+    /**
+     * A context set on the config is used as it is unless verification is off, in which case (like a keystore)
+     * it is built here trusting every certificate
+     */
+    private static SSLContext createContext(Config config) {
+        if (config.isVerifySsl() && config.getSslContext() != null) {
+            return config.getSslContext();
+        }
+        try {
+            SSLContextBuilder builder = SSLContexts.custom();
+            if (!config.isVerifySsl()) {
+                builder.loadTrustMaterial(null, (chain, authType) -> true);
+            }
+            if (config.getKeystore() != null) {
+                String pass = config.getKeyStorePassword();
+                builder.loadKeyMaterial(config.getKeystore(), pass == null ? null : pass.toCharArray());
+            }
+            return builder.build();
+        } catch (Exception e) {
+            throw new UnirestConfigException(e);
+        }
+    }
+
+    private static HostnameVerifier createVerifier(Config config) {
+        if (!config.isVerifySsl()) {
+            return NoopHostnameVerifier.INSTANCE;
+        } else if (config.getHostnameVerifier() != null) {
+            return config.getHostnameVerifier();
+        }
+        return new DefaultHostnameVerifier();
+    }
+
+    private static void configureSessions(SSLSessionContext sessions, Config config) {
+        if (sessions == null) {
+            return;
+        }
+        if (config.getSslSessionCacheSize() >= 0) {
+            sessions.setSessionCacheSize(config.getSslSessionCacheSize());
+        }
+        Duration timeout = config.getSslSessionTimeout();
+        if (timeout != null) {
+            sessions.setSessionTimeout((int) Math.min(Integer.MAX_VALUE, timeout.getSeconds()));
+        }
+    }
+
+    SSLContext getContext() {
+        return context;
+    }
+
+    /**
+     * @param config the config to report handshakes to the metric of
+     * @return the socket factory of the sync client
+     */
+    SSLConnectionSocketFactory socketFactory(Config config) {
+        return new SSLConnectionSocketFactory(context, protocols, ciphers, verifier) {
+            @Override
+            public Socket createLayeredSocket(Socket socket, String target, int port, HttpContext httpContext) throws IOException {
+                long started = System.currentTimeMillis();
+                Socket layered = super.createLayeredSocket(socket, target, port, httpContext);
+                handshaken(config, target, ((SSLSocket) layered).getSession(), started);
+                return layered;
+            }
+        };
+    }
+
+    /**
+     * @param config the config to report handshakes to the metric of
+     * @return the session strategy of the async client
+     */
+    SSLIOSessionStrategy ioSessionStrategy(Config config) {
+        return new SSLIOSessionStrategy(context, protocols, ciphers, verifier) {
+            @Override
+            public SSLIOSession upgrade(HttpHost host, IOSession iosession) throws IOException {
+                iosession.setAttribute(HANDSHAKE_STARTED, System.currentTimeMillis());
+                return super.upgrade(host, iosession);
+            }
+
+            @Override
+            protected void verifySession(HttpHost host, IOSession iosession, SSLSession session) throws SSLException {
+                super.verifySession(host, iosession, session);
+                Object started = iosession.removeAttribute(HANDSHAKE_STARTED);
+                if (started != null) {
+                    handshaken(config, host.getHostName(), session, (Long) started);
+                }
+            }
+        };
+    }
+
+    private static void handshaken(Config config, String host, SSLSession session, long started) {
+        config.getMetric().tlsHandshake(host, session.getCreationTime() < started);
+    }
+}
@@ -38,6 +38,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -115,6 +116,34 @@ class AsFileTest extends BddTest {
         assertTrue(com.google.common.io.Files.equal(f1, f2));
     }
 
+    @Test
+    void canStreamABinaryFileAsyncThroughASmallBuffer() throws Exception {
+        Unirest.config().asyncResponseBufferSize(1024);
+        File f1 = TestUtil.rezFile("/spidey.jpg");
+
+        File f2 = Unirest.get(MockServer.BINARYFILE)
+                .asFileAsync(test.toString())
+                .get()
+                .getBody();
+
+        assertTrue(com.google.common.io.Files.equal(f1, f2));
+    }
+
+    @Test
+    void canReuseTheConnectionAfterABodyWhichFitsTheBuffer_Async() throws Exception {
+        Unirest.config().concurrency(1, 1).socketTimeout(5000);
+        File f1 = TestUtil.rezFile("/spidey.jpg");
+
+        for (int i = 0; i < 2; i++) {
+            File f2 = Unirest.get(MockServer.BINARYFILE)
+                    .asFileAsync(test.toString(), StandardCopyOption.REPLACE_EXISTING)
+                    .get(10, TimeUnit.SECONDS)
+                    .getBody();
+
+            assertTrue(com.google.common.io.Files.equal(f1, f2));
+        }
+    }
+
     @Test
     void byDefaultFailWhenAttemptingToOverride() {
         Unirest.get(MockServer.BINARYFILE)
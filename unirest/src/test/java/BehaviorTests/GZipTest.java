@@ -69,6 +69,18 @@ class GZipTest extends BddTest {
         assertEquals(0, resp.getHeaders().get("Content-Encoding").size());
     }
 
+    @Test
+    void testGzipAsyncStreamedThroughASmallBuffer() throws Exception {
+        Unirest.config().asyncResponseBufferSize(16);
+
+        Unirest.get(MockServer.GZIP)
+                .queryString("zipme", "up")
+                .asObjectAsync(RequestCapture.class)
+                .get()
+                .getBody()
+                .assertParam("zipme", "up");
+    }
+
     @Test
     void canDisableGZip() throws Exception {
         Unirest.config().requestCompression(false);
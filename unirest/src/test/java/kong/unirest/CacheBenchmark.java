@@ -0,0 +1,162 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded comparison of the default response cache against the
+ * LinkedHashMap based CacheMap it replaced. The old map was not thread safe,
+ * so it is measured here the way callers had to use it: behind a single lock.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=kong.unirest.CacheBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class CacheBenchmark {
+    private static final HttpResponse RESPONSE = new MockResponse();
+
+    @Param({"legacy", "concurrent"})
+    public String implementation;
+
+    @Param({"100", "10000"})
+    public int depth;
+
+    private Cache cache;
+    private Cache.Key[] keys;
+
+    @Setup
+    public void setUp() {
+        if ("legacy".equals(implementation)) {
+            cache = new LegacyCacheMap(depth, 0);
+        } else {
+            cache = new ConcurrentCache(depth, 0);
+        }
+        keys = new Cache.Key[depth * 2];
+        Instant now = Instant.now();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = new IntKey(i, now);
+        }
+    }
+
+    @Benchmark
+    public Object readHeavy() {
+        int i = ThreadLocalRandom.current().nextInt(depth);
+        return cache.get(keys[i], () -> RESPONSE);
+    }
+
+    @Benchmark
+    public Object mixedWithEvictions() {
+        int i = ThreadLocalRandom.current().nextInt(keys.length);
+        return cache.get(keys[i], () -> RESPONSE);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CacheBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+
+    private static class IntKey implements Cache.Key {
+        private final int id;
+        private final Instant time;
+
+        IntKey(int id, Instant time) {
+            this.id = id;
+            this.time = time;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof IntKey && ((IntKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public Instant getTime() {
+            return time;
+        }
+    }
+
+    /**
+     * The previous default cache, guarded by a lock so it survives concurrent access.
+     */
+    private static class LegacyCacheMap extends LinkedHashMap<Cache.Key, Object> implements Cache {
+        private final int maxSize;
+        private final long ttl;
+
+        LegacyCacheMap(int maxSize, long ttl) {
+            this.maxSize = maxSize;
+            this.ttl = ttl;
+        }
+
+        @Override
+        public synchronized <T> HttpResponse get(Key key, Supplier<HttpResponse<T>> fetcher) {
+            clearOld();
+            return (HttpResponse) super.computeIfAbsent(key, (k) -> fetcher.get());
+        }
+
+        @Override
+        public synchronized <T> CompletableFuture getAsync(Key key, Supplier<CompletableFuture<HttpResponse<T>>> fetcher) {
+            clearOld();
+            return (CompletableFuture) super.computeIfAbsent(key, (k) -> fetcher.get());
+        }
+
+        private void clearOld() {
+            if (ttl > 0) {
+                Instant now = Util.now();
+                keySet().removeIf(k -> ChronoUnit.MILLIS.between(k.getTime(), now) > ttl);
+            }
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -28,7 +28,18 @@ package kong.unirest;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.DataOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 import java.util.stream.Stream;
 
@@ -59,19 +70,31 @@ class CacheManagerTest {
     @Test
     void cacheSameRequestsAsync() {
         assertSame(
-                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null,null, Empty.class),
-                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null,null, Empty.class)
+                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class).join(),
+                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class).join()
         );
 
         assertEquals(1, client.invokes);
     }
 
+    @Test
+    void everyAsyncCallerGetsTheirOwnCallbackCompleted() {
+        CompletableFuture<HttpResponse<Object>> first = new CompletableFuture<>();
+        CompletableFuture<HttpResponse<Object>> second = new CompletableFuture<>();
+
+        assertSame(first, cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, first, Empty.class));
+        assertSame(second, cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, second, Empty.class));
+
+        assertTrue(second.isDone());
+        assertSame(first.join(), second.join());
+    }
+
 
     @Test
     void asyncAndSyncrequestsAreDifferent() {
         assertNotSame(
                 cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class),
-                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, null, Object.class)
+                cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Object.class).join()
         );
 
         assertEquals(2, client.invokes);
@@ -87,12 +110,402 @@ class CacheManagerTest {
         assertEquals(2, client.invokes);
     }
 
+    @Test
+    void rawResponsesAreSharedByEveryResponseType() {
+        cache = Cache.builder().storeRawResponses(true).build();
+        BodyClient origin = new BodyClient("{\"foo\":\"bar\"}");
+        Client client = cache.wrap(origin);
+
+        HttpResponse<String> string = client.request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+        HttpResponse<JsonNode> json = client.request(new HttpRequestNoBody(config, GET, "/"), JsonResponse::new, JsonNode.class);
+        HttpResponse<byte[]> bytes = client.request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+
+        assertEquals(1, origin.invokes);
+        assertEquals("{\"foo\":\"bar\"}", string.getBody());
+        assertEquals("bar", json.getBody().getObject().getString("foo"));
+        assertEquals("{\"foo\":\"bar\"}", new String(bytes.getBody()));
+        assertEquals(200, json.getStatus());
+        assertEquals("application/json", json.getHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void rawResponsesAreSharedByEveryResponseTypeAsync() {
+        cache = Cache.builder().storeRawResponses(true).build();
+        BodyClient origin = new BodyClient("hi");
+        AsyncClient client = cache.wrapAsync(origin);
+
+        HttpResponse<String> string = client.request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), new CompletableFuture<>(), String.class).join();
+        HttpResponse<byte[]> bytes = client.request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, new CompletableFuture<>(), byte[].class).join();
+
+        assertEquals(1, origin.invokes);
+        assertEquals("hi", string.getBody());
+        assertEquals("hi", new String(bytes.getBody()));
+    }
+
+    @Test
+    void cachedRawBodiesCannotBeChangedByReaders() {
+        cache = Cache.builder().storeRawResponses(true).build();
+        Client client = cache.wrap(new BodyClient("hi"));
+
+        client.request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class).getBody()[0] = 'X';
+        client.request(new HttpRequestNoBody(config, GET, "/"), JsonResponse::new, JsonNode.class).getHeaders().add("foo", "bar");
+
+        HttpResponse<String> string = client.request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+        assertEquals("hi", string.getBody());
+        assertFalse(string.getHeaders().containsKey("foo"));
+    }
+
+    @Test
+    void responsesEvictedFromTheHeapAreServedFromTheOffHeapTier() {
+        cache = Cache.builder().depth(1).offHeapTier(1024).build();
+        BodyClient origin = new BodyClient("hi");
+        Client client = cache.wrap(origin);
+
+        client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+        client.request(new HttpRequestNoBody(config, GET, "/b"), ByteResponse::new, byte[].class);
+        HttpResponse<String> a = client.request(new HttpRequestNoBody(config, GET, "/a"), r -> new StringResponse(r, null), String.class);
+
+        assertEquals(2, origin.invokes);
+        assertEquals("hi", a.getBody());
+        assertEquals(200, a.getStatus());
+    }
+
+    @Test
+    void expiredResponsesAreNotServedFromTheOffHeapTier() {
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            cache = Cache.builder().depth(1).maxAge(1, TimeUnit.MINUTES).offHeapTier(1024).build();
+            BodyClient origin = new BodyClient("hi");
+            Client client = cache.wrap(origin);
+            client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+            client.request(new HttpRequestNoBody(config, GET, "/b"), ByteResponse::new, byte[].class);
+
+            TestUtil.freeze(now.plus(1, ChronoUnit.DAYS));
+            client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+
+            assertEquals(3, origin.invokes);
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void responsesTakenFromTheOffHeapTierKeepTheirExpiry() {
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            cache = Cache.builder().depth(1).maxAge(1, TimeUnit.MINUTES).offHeapTier(1024).build();
+            BodyClient origin = new BodyClient("hi");
+            Client client = cache.wrap(origin);
+            client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+            client.request(new HttpRequestNoBody(config, GET, "/b"), ByteResponse::new, byte[].class);
+
+            TestUtil.freeze(now.plusSeconds(50));
+            client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+            assertEquals(2, origin.invokes);
+
+            TestUtil.freeze(now.plusSeconds(70));
+            client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+            assertEquals(3, origin.invokes);
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void theCacheCanBeSnapshotAndRestored() throws Exception {
+        Path file = Files.createTempFile("unirest", ".snapshot");
+        try {
+            cache = Cache.builder().snapshot(file).build();
+            cache.wrap(new BodyClient("hi")).request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+            cache.wrapAsync(new BodyClient("yo")).request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, new CompletableFuture<>(), byte[].class);
+            assertEquals(0, cache.saveSnapshot().count());
+
+            CacheManager restored = Cache.builder().snapshot(file).build();
+            restored.restoreSnapshot(config);
+            restored.getRestored().join();
+            BodyClient origin = new BodyClient("other");
+
+            HttpResponse<String> sync = restored.wrap(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+            HttpResponse<String> async = restored.wrapAsync(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), new CompletableFuture<>(), String.class).join();
+
+            assertEquals(0, origin.invokes);
+            assertEquals("hi", sync.getBody());
+            assertEquals("yo", async.getBody());
+            assertEquals("application/json", sync.getHeaders().getFirst("Content-Type"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void snapshotsTakenWithHttpSemanticsAreRestoredWithThem() throws Exception {
+        Path file = Files.createTempFile("unirest", ".snapshot");
+        try {
+            cache = Cache.builder().httpSemantics(true).snapshot(file).build();
+            cache.wrap(new BodyClient("hi").header("Cache-Control", "max-age=60"))
+                    .request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+            cache.wrapAsync(new BodyClient("yo").header("Cache-Control", "max-age=60"))
+                    .request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, new CompletableFuture<>(), byte[].class).join();
+            cache.wrap(new BodyClient("not stored").header("Cache-Control", "no-store"))
+                    .request(new HttpRequestNoBody(config, GET, "/other"), ByteResponse::new, byte[].class);
+            assertEquals(0, cache.saveSnapshot().count());
+
+            CacheManager restored = Cache.builder().httpSemantics(true).snapshot(file).build();
+            restored.restoreSnapshot(config);
+            restored.getRestored().join();
+            BodyClient origin = new BodyClient("other");
+
+            HttpResponse<String> sync = restored.wrap(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+            HttpResponse<String> async = restored.wrapAsync(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), new CompletableFuture<>(), String.class).join();
+            assertEquals("hi", sync.getBody());
+            assertEquals("yo", async.getBody());
+            assertEquals(0, origin.invokes);
+            restored.wrap(origin).request(new HttpRequestNoBody(config, GET, "/other"), r -> new StringResponse(r, null), String.class);
+            assertEquals(1, origin.invokes);
+
+            CacheManager plain = Cache.builder().snapshot(file).build();
+            plain.restoreSnapshot(config);
+            plain.getRestored().join();
+            HttpResponse<String> fresh = plain.wrap(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+            assertEquals("other", fresh.getBody());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void failedAndLoadingAsyncEntriesAreLeftOutOfSnapshots() throws Exception {
+        Path file = Files.createTempFile("unirest", ".snapshot");
+        try {
+            cache = Cache.builder().snapshot(file).build();
+            cache.wrap(new BodyClient("hi")).request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+            client.failure = new UnirestException("boom");
+            cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/failed"), ByteResponse::new, new CompletableFuture<>(), byte[].class);
+            client.hang = true;
+            cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/loading"), ByteResponse::new, new CompletableFuture<>(), byte[].class);
+
+            assertTimeoutPreemptively(Duration.ofSeconds(5), () -> assertEquals(0, cache.saveSnapshot().count()));
+
+            CacheManager restored = Cache.builder().snapshot(file).build();
+            restored.restoreSnapshot(config);
+            restored.getRestored().join();
+            HttpResponse<String> sync = restored.wrap(new BodyClient("other")).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+            assertEquals("hi", sync.getBody());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void aCorruptSnapshotFailsTheRestoreAndIsStillOverwritten() throws Exception {
+        Path file = Files.createTempFile("unirest", ".snapshot");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(0x554E4943);
+            out.writeInt(CacheSnapshot.VERSION);
+            out.writeInt(1);
+            out.writeInt(Integer.MAX_VALUE);
+        }
+        try {
+            cache = Cache.builder().snapshot(file).build();
+            cache.restoreSnapshot(config);
+
+            CompletionException e = assertThrows(CompletionException.class, () -> cache.getRestored().join());
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+
+            cache.wrap(new BodyClient("hi")).request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+            assertEquals(0, cache.saveSnapshot().count());
+
+            CacheManager restored = Cache.builder().snapshot(file).build();
+            restored.restoreSnapshot(config);
+            restored.getRestored().join();
+            HttpResponse<String> sync = restored.wrap(new BodyClient("other")).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+            assertEquals("hi", sync.getBody());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void restoredEntriesKeepTheirKeyTime() throws Exception {
+        Path file = Files.createTempFile("unirest", ".snapshot");
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            cache = Cache.builder().maxAge(1, TimeUnit.MINUTES).snapshot(file).build();
+            cache.wrap(new BodyClient("hi")).request(new HttpRequestNoBody(config, GET, "/"), ByteResponse::new, byte[].class);
+            cache.saveSnapshot();
+
+            TestUtil.freeze(now.plusSeconds(90));
+            CacheManager restored = Cache.builder().maxAge(1, TimeUnit.MINUTES).snapshot(file).build();
+            restored.restoreSnapshot(config);
+            restored.getRestored().join();
+            BodyClient origin = new BodyClient("fresh");
+
+            HttpResponse<String> response = restored.wrap(origin).request(new HttpRequestNoBody(config, GET, "/"), r -> new StringResponse(r, null), String.class);
+
+            assertEquals(1, origin.invokes);
+            assertEquals("fresh", response.getBody());
+        } finally {
+            TestUtil.reset();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void hitsMissesAndLoadsAreCounted() {
+        cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+        cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+        cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class).join();
+        cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class).join();
+
+        CacheStats stats = cache.getStats();
+        assertEquals(2, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(2, stats.getLoadSuccessCount());
+        assertEquals(0, stats.getLoadFailureCount());
+        assertTrue(stats.getTotalLoadTime() > 0);
+        assertEquals(2, stats.getEntryCount());
+        assertEquals(0.5, stats.getHitRate());
+    }
+
+    @Test
+    void failedLoadsAreCounted() {
+        client.failure = new UnirestException("boom");
+
+        assertThrows(UnirestException.class, () -> cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class));
+        CompletableFuture<HttpResponse<Object>> async = cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class);
+
+        assertTrue(async.isCompletedExceptionally());
+        assertEquals(2, cache.getStats().getMissCount());
+        assertEquals(2, cache.getStats().getLoadFailureCount());
+        assertEquals(0, cache.getStats().getLoadSuccessCount());
+    }
+
+    @Test
+    void responsesFromTheOffHeapTierAreHits() {
+        cache = Cache.builder().depth(1).offHeapTier(1024 * 1024).build();
+        BodyClient origin = new BodyClient("hi");
+        Client client = cache.wrap(origin);
+        client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+        client.request(new HttpRequestNoBody(config, GET, "/b"), ByteResponse::new, byte[].class);
+
+        client.request(new HttpRequestNoBody(config, GET, "/a"), ByteResponse::new, byte[].class);
+
+        assertEquals(2, origin.invokes);
+        assertEquals(1, cache.getStats().getHitCount());
+        assertEquals(2, cache.getStats().getMissCount());
+    }
+
+    @Test
+    void lookupsAreReportedToTheMetric() {
+        List<Boolean> lookups = new ArrayList<>();
+        UniMetric metric = new UniMetric() {
+            @Override
+            public MetricContext begin(HttpRequestSummary request) {
+                return (r, e) -> {};
+            }
+
+            @Override
+            public void cacheLookup(HttpRequestSummary request, boolean hit, CacheStats stats) {
+                assertEquals("/", request.getUrl());
+                assertSame(cache.getStats(), stats);
+                lookups.add(hit);
+            }
+        };
+        cache.instrumentWith(() -> metric);
+
+        cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+        cache.wrap(client).request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+        cache.wrapAsync(client).request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Empty.class).join();
+
+        assertEquals(3, lookups.size());
+        assertFalse(lookups.get(0));
+        assertTrue(lookups.get(1));
+        assertFalse(lookups.get(2));
+    }
+
+    private static class BodyClient implements Client, AsyncClient {
+        private final String body;
+        private final Headers extra = new Headers();
+        public int invokes = 0;
+
+        BodyClient(String body) {
+            this.body = body;
+        }
+
+        BodyClient header(String name, String value) {
+            extra.add(name, value);
+            return this;
+        }
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+            invokes++;
+            return transformer.apply(new TestRawResponse(new Config()) {
+                @Override
+                public int getStatus() {
+                    return 200;
+                }
+
+                @Override
+                public Headers getHeaders() {
+                    Headers headers = new Headers();
+                    headers.add("Content-Type", "application/json");
+                    headers.putAll(extra);
+                    return headers;
+                }
+
+                @Override
+                public byte[] getContentAsBytes() {
+                    return body.getBytes();
+                }
+
+                @Override
+                public boolean hasContent() {
+                    return true;
+                }
+            });
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer, CompletableFuture<HttpResponse<T>> callback) {
+            callback.complete(request(request, transformer));
+            return callback;
+        }
+
+        @Override
+        public Object getClient() {
+            return null;
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return null;
+        }
+
+        @Override
+        public void registerShutdownHook() {
+
+        }
+    }
+
     private static class MockClient implements Client, AsyncClient {
         public int invokes = 0;
+        public RuntimeException failure;
+        public boolean hang;
         @Override
         public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer, CompletableFuture<HttpResponse<T>> callback) {
             invokes++;
-            return new CompletableFuture<>();
+            if (hang) {
+                return callback;
+            } else if (failure != null) {
+                callback.completeExceptionally(failure);
+            } else {
+                callback.complete(new MockResponse<>());
+            }
+            return callback;
         }
 
         @Override
@@ -103,6 +516,9 @@ class CacheManagerTest {
         @Override
         public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
             invokes++;
+            if (failure != null) {
+                throw failure;
+            }
             return new MockResponse();
         }
 
@@ -0,0 +1,234 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.conn.DnsResolver;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CachingDnsResolverTest {
+    private final Instant now = Instant.parse("2020-11-10T10:00:00Z");
+    private final List<Runnable> refreshes = new ArrayList<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+    private InetAddress[] records;
+    private boolean failing;
+    private CachingDnsResolver resolver;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        TestUtil.freeze(now);
+        records = new InetAddress[]{address("my.service", 1)};
+        resolver = new CachingDnsResolver(this::lookup, Duration.ofSeconds(60), refreshes::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestUtil.reset();
+    }
+
+    @Test
+    void addressesAreCachedForTheirTtl() throws Exception {
+        assertEquals(records[0], resolver.resolve("my.service")[0]);
+        later(59);
+        assertEquals(records[0], resolver.resolve("MY.service")[0]);
+        assertEquals(1, lookups.get());
+
+        later(60);
+        resolver.resolve("my.service");
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void refreshesInTheBackgroundBeforeExpiry() throws Exception {
+        InetAddress old = records[0];
+        resolver.resolve("my.service");
+        records = new InetAddress[]{address("my.service", 2)};
+
+        later(50);
+        assertEquals(old, resolver.resolve("my.service")[0]);
+        assertEquals(old, resolver.resolve("my.service")[0]);
+        assertEquals(1, refreshes.size());
+        assertEquals(1, lookups.get());
+
+        refreshes.remove(0).run();
+        assertEquals(records[0], resolver.resolve("my.service")[0]);
+        assertEquals(2, lookups.get());
+        assertTrue(refreshes.isEmpty());
+    }
+
+    @Test
+    void failedRefreshKeepsTheCachedAddressesUntilTheyExpire() throws Exception {
+        InetAddress old = records[0];
+        resolver.resolve("my.service");
+        failing = true;
+
+        later(50);
+        resolver.resolve("my.service");
+        refreshes.remove(0).run();
+        assertEquals(old, resolver.resolve("my.service")[0]);
+
+        later(60);
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("my.service"));
+    }
+
+    @Test
+    void unknownHostsAreNotCached() throws Exception {
+        failing = true;
+        assertThrows(UnknownHostException.class, () -> resolver.resolve("my.service"));
+        failing = false;
+        assertEquals(records[0], resolver.resolve("my.service")[0]);
+        assertEquals(2, lookups.get());
+    }
+
+    @Test
+    void hostsStillBeingLookedUpAreNotDropped() throws Exception {
+        CountDownLatch looking = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger slowLookups = new AtomicInteger();
+        CachingDnsResolver slowResolver = new CachingDnsResolver(host -> {
+            if (host.equals("slow.service")) {
+                slowLookups.incrementAndGet();
+                looking.countDown();
+                await(release);
+            }
+            return records;
+        }, Duration.ofSeconds(60), refreshes::add);
+        Thread slow = new Thread(() -> {
+            try {
+                slowResolver.resolve("slow.service");
+            } catch (UnknownHostException e) {
+                throw new AssertionError(e);
+            }
+        });
+        slow.start();
+
+        await(looking);
+        slowResolver.resolve("my.service");
+        release.countDown();
+        slow.join(5000);
+        slowResolver.resolve("slow.service");
+
+        assertEquals(1, slowLookups.get());
+    }
+
+    @Test
+    void addressesAreHandedOutInTurn() throws Exception {
+        records = new InetAddress[]{address("my.service", 1), address("my.service", 2), address("my.service", 3)};
+        List<InetAddress> first = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            InetAddress[] resolved = resolver.resolve("my.service");
+            assertEquals(3, resolved.length);
+            first.add(resolved[0]);
+        }
+        assertEquals(records[0], first.get(0));
+        assertEquals(records[1], first.get(1));
+        assertEquals(records[2], first.get(2));
+        assertEquals(records[0], first.get(3));
+        assertEquals(1, lookups.get());
+    }
+
+    @Test
+    void ttlMustBePositive() {
+        assertThrows(UnirestConfigException.class, () -> new CachingDnsResolver(Duration.ZERO));
+    }
+
+    @Test
+    void clientsResolveHostsWithTheConfiguredResolver() throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        records = new InetAddress[]{InetAddress.getByAddress("my.service", new byte[]{127, 0, 0, 1})};
+        DnsResolver cached = new CachingDnsResolver(this::lookup, Duration.ofSeconds(60));
+        UnirestInstance unirest = new UnirestInstance(new Config().dnsResolver(cached));
+        try {
+            String url = "http://my.service:" + server.getAddress().getPort() + "/";
+            assertEquals("ok", unirest.get(url).asString().getBody());
+            assertEquals("ok", unirest.get(url).header("Connection", "close").asString().getBody());
+            assertEquals("ok", unirest.get(url).asString().getBody());
+            assertEquals(1, lookups.get());
+        } finally {
+            unirest.shutDown();
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void resolverCannotBeChangedOnceClientsAreRunning() {
+        UnirestInstance unirest = new UnirestInstance(new Config());
+        try {
+            unirest.config().getClient();
+            assertThrows(UnirestConfigException.class,
+                    () -> unirest.config().dnsResolver(new CachingDnsResolver(Duration.ofSeconds(1))));
+        } finally {
+            unirest.shutDown();
+        }
+    }
+
+    private InetAddress[] lookup(String host) throws UnknownHostException {
+        lookups.incrementAndGet();
+        if (failing) {
+            throw new UnknownHostException(host);
+        }
+        return records;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void later(int seconds) {
+        TestUtil.freeze(now.plusSeconds(seconds));
+    }
+
+    private static InetAddress address(String host, int last) throws UnknownHostException {
+        return InetAddress.getByAddress(host, new byte[]{10, 0, 0, (byte) last});
+    }
+}
@@ -0,0 +1,383 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentCacheTest {
+    private final ConcurrentCache cache = new ConcurrentCache(5, 0);
+
+    @Test
+    void returnsTheSameValueForTheSameKey() {
+        HttpResponse first = cache.get(key(1), MockResponse::new);
+        HttpResponse second = cache.get(key(1), MockResponse::new);
+
+        assertSame(first, second);
+    }
+
+    @Test
+    void evictsTheLeastRecentlyUsedWhenDepthIsExceeded() {
+        HttpResponse keep = cache.get(key(0), MockResponse::new);
+        IntStream.range(1, 10).forEach(i -> {
+            cache.get(key(0), MockResponse::new);
+            cache.get(key(i), MockResponse::new);
+        });
+
+        assertEquals(5, cache.size());
+        assertSame(keep, cache.get(key(0), MockResponse::new));
+    }
+
+    @Test
+    void failedLoadsAreNotCached() {
+        assertThrows(UnirestException.class, () -> cache.get(key(1), () -> {
+            throw new UnirestException("boom");
+        }));
+
+        assertEquals(0, cache.size());
+        assertNotNull(cache.get(key(1), MockResponse::new));
+    }
+
+    @Test
+    void errorsInALoadAreSharedWithWaitingCallersAndNotCached() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<HttpResponse> loader = pool.submit(() -> cache.get(key(1), () -> {
+                loading.countDown();
+                await(release);
+                throw new AssertionError("boom");
+            }));
+            await(loading);
+            Future<HttpResponse> waiter = pool.submit(() -> cache.get(key(1), MockResponse::new));
+
+            Thread.sleep(100);
+            release.countDown();
+
+            ExecutionException e = assertThrows(ExecutionException.class, () -> loader.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof AssertionError);
+            e = assertThrows(ExecutionException.class, () -> waiter.get(5, TimeUnit.SECONDS));
+            assertTrue(e.getCause() instanceof AssertionError);
+            assertEquals(0, cache.size());
+            assertNotNull(cache.get(key(1), MockResponse::new));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentMissesForTheSameKeyShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<HttpResponse>> results = IntStream.range(0, 8)
+                    .mapToObj(i -> pool.submit(() -> cache.get(key(1), () -> {
+                        loads.incrementAndGet();
+                        await(release);
+                        return new MockResponse();
+                    })))
+                    .collect(Collectors.toList());
+
+            Thread.sleep(100);
+            release.countDown();
+
+            HttpResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<HttpResponse> r : results) {
+                assertSame(first, r.get(5, TimeUnit.SECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void loadingOneKeyDoesNotBlockAnother() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<HttpResponse> slow = pool.submit(() -> cache.get(key(1), () -> {
+                await(release);
+                return new MockResponse();
+            }));
+
+            assertNotNull(cache.get(key(2), MockResponse::new));
+            assertFalse(slow.isDone());
+
+            release.countDown();
+            assertNotNull(slow.get(5, TimeUnit.SECONDS));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void entriesOlderThanTheTtlAreReloaded() {
+        ConcurrentCache ttlCache = new ConcurrentCache(5, 1000);
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            HttpResponse first = ttlCache.get(new TestKey(1, now), MockResponse::new);
+            TestUtil.freeze(now.plusSeconds(5));
+
+            assertNotSame(first, ttlCache.get(new TestKey(1, now.plusSeconds(5)), MockResponse::new));
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void theEvictionListenerRunsOutsideTheLock() throws Exception {
+        ConcurrentCache small = new ConcurrentCache(1, 0);
+        List<Boolean> otherWritesProceeded = new CopyOnWriteArrayList<>();
+        small.onEviction((k, v, t) -> {
+            CompletableFuture<?> write = CompletableFuture.runAsync(() -> small.get(key(99), MockResponse::new));
+            try {
+                write.get(5, TimeUnit.SECONDS);
+                otherWritesProceeded.add(true);
+            } catch (Exception e) {
+                otherWritesProceeded.add(false);
+            }
+        });
+
+        small.get(key(1), MockResponse::new);
+        small.get(key(2), MockResponse::new);
+
+        assertTrue(otherWritesProceeded.size() >= 1);
+        assertFalse(otherWritesProceeded.contains(false));
+    }
+
+    @Test
+    void renewedEntriesExpireFromTheirRenewal() {
+        ConcurrentCache ttlCache = new ConcurrentCache(100, 1000);
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            HttpResponse first = ttlCache.get(new TestKey(1, now), MockResponse::new);
+            TestUtil.freeze(now.plusMillis(800));
+            ttlCache.renew(new TestKey(1, now), now.plusMillis(800).toEpochMilli());
+
+            TestUtil.freeze(now.plusMillis(1500));
+            ttlCache.get(new TestKey(2, now.plusMillis(1500)), MockResponse::new);
+            assertSame(first, ttlCache.get(new TestKey(1, now.plusMillis(1500)), MockResponse::new));
+
+            TestUtil.freeze(now.plusMillis(1900));
+            assertNotSame(first, ttlCache.get(new TestKey(1, now.plusMillis(1900)), MockResponse::new));
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void expiredEntriesAreReclaimedWithoutBeingRead() {
+        ConcurrentCache ttlCache = new ConcurrentCache(100, 1000);
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            IntStream.range(0, 10).forEach(i -> ttlCache.get(new TestKey(i, now), MockResponse::new));
+            TestUtil.freeze(now.plusSeconds(5));
+
+            ttlCache.get(new TestKey(99, now.plusSeconds(5)), MockResponse::new);
+
+            assertEquals(1, ttlCache.size());
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void depthBoundedCachesReportEachEntryAsOneUnitOfWeight() {
+        IntStream.range(0, 7).forEach(i -> cache.get(key(i), MockResponse::new));
+
+        assertEquals(5, cache.getWeight());
+        assertEquals(5, cache.getEntryCount());
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    void evictionsAreCountedByCause() {
+        ConcurrentCache ttlCache = new ConcurrentCache(3, 1000);
+        Instant now = Instant.now();
+        TestUtil.freeze(now);
+        try {
+            IntStream.range(0, 4).forEach(i -> ttlCache.get(new TestKey(i, now), MockResponse::new));
+            assertEquals(1, ttlCache.getSizeEvictionCount());
+            assertEquals(0, ttlCache.getExpiredCount());
+
+            TestUtil.freeze(now.plusSeconds(5));
+            ttlCache.get(new TestKey(3, now.plusSeconds(5)), MockResponse::new);
+
+            assertEquals(1, ttlCache.getSizeEvictionCount());
+            assertEquals(3, ttlCache.getExpiredCount());
+            assertEquals(4, ttlCache.getEvictionCount());
+        } finally {
+            TestUtil.reset();
+        }
+    }
+
+    @Test
+    void evictsUntilTheTotalWeightFitsTheBudget() {
+        ConcurrentCache weighted = new ConcurrentCache(100, 0, (k, r) -> ((TestKey) k).id);
+        IntStream.of(10, 20, 30, 40).forEach(i -> weighted.get(key(i), MockResponse::new));
+        assertEquals(100, weighted.getWeight());
+        assertEquals(0, weighted.getEvictionCount());
+
+        weighted.get(key(50), MockResponse::new);
+
+        assertEquals(90, weighted.getWeight());
+        assertEquals(2, weighted.getEntryCount());
+        assertEquals(3, weighted.getEvictionCount());
+    }
+
+    @Test
+    void recentlyUsedEntriesSurviveWeightEviction() {
+        ConcurrentCache weighted = new ConcurrentCache(100, 0, (k, r) -> ((TestKey) k).id);
+        HttpResponse keep = weighted.get(key(10), MockResponse::new);
+        weighted.get(key(20), MockResponse::new);
+        weighted.get(key(10), MockResponse::new);
+
+        weighted.get(key(80), MockResponse::new);
+
+        assertSame(keep, weighted.get(key(10), MockResponse::new));
+        assertEquals(90, weighted.getWeight());
+    }
+
+    @Test
+    void anEntryHeavierThanTheBudgetIsReturnedButNotKept() {
+        ConcurrentCache weighted = new ConcurrentCache(100, 0, (k, r) -> ((TestKey) k).id);
+
+        assertNotNull(weighted.get(key(500), MockResponse::new));
+
+        assertEquals(0, weighted.getEntryCount());
+        assertEquals(0, weighted.getWeight());
+    }
+
+    @Test
+    void asyncEntriesAreWeighedOnceTheyComplete() {
+        ConcurrentCache weighted = new ConcurrentCache(100, 0, (k, r) -> ((TestKey) k).id);
+        CompletableFuture<HttpResponse<Object>> pending = new CompletableFuture<>();
+
+        weighted.getAsync(key(30), () -> pending);
+        assertEquals(0, weighted.getWeight());
+
+        pending.complete(new MockResponse<>());
+        assertEquals(30, weighted.getWeight());
+    }
+
+    @Test
+    void asyncLoadsWhichFailLaterAreNotCached() {
+        CompletableFuture<HttpResponse<Object>> failing = new CompletableFuture<>();
+        cache.getAsync(key(1), () -> failing);
+        AtomicInteger visited = new AtomicInteger();
+        cache.forEachLoaded((k, v) -> visited.incrementAndGet());
+        assertEquals(0, visited.get());
+
+        failing.completeExceptionally(new UnirestException("boom"));
+
+        assertEquals(0, cache.size());
+        CompletableFuture<HttpResponse<Object>> retried = CompletableFuture.completedFuture(new MockResponse<>());
+        assertSame(retried, cache.getAsync(key(1), () -> retried));
+    }
+
+    @Test
+    void theDefaultWeigherCountsTheBodyAndHeaders() {
+        Headers headers = new Headers();
+        headers.add("Content-Type", "text/plain");
+        HttpResponse<byte[]> bytes = new WeighedResponse<>(new byte[100], headers);
+        HttpResponse<Object> parsed = new WeighedResponse<>(new Object(), new Headers());
+        parsed.getHeaders().add("Content-Length", "42");
+
+        assertEquals(100 + "Content-Type".length() + "text/plain".length(), new ResponseWeigher().weigh(key(1), bytes));
+        assertEquals(42 + "Content-Length".length() + 2, new ResponseWeigher().weigh(key(1), parsed));
+    }
+
+    private static class WeighedResponse<T> extends MockResponse<T> {
+        private final T body;
+        private final Headers headers;
+
+        WeighedResponse(T body, Headers headers) {
+            this.body = body;
+            this.headers = headers;
+        }
+
+        @Override
+        public T getBody() {
+            return body;
+        }
+
+        @Override
+        public Headers getHeaders() {
+            return headers;
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Cache.Key key(int id) {
+        return new TestKey(id, Util.now());
+    }
+
+    private static class TestKey implements Cache.Key {
+        private final int id;
+        private final Instant time;
+
+        TestKey(int id, Instant time) {
+            this.id = id;
+            this.time = time;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof TestKey && ((TestKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+
+        @Override
+        public Instant getTime() {
+            return time;
+        }
+    }
+}
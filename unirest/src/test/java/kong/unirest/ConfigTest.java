@@ -87,6 +87,18 @@ class ConfigTest {
         assertEquals(Config.DEFAULT_MAX_PER_ROUTE, config.getMaxPerRoutes());
     }
 
+    @Test
+    void shouldKeepAsyncResponseBufferSizeDefault(){
+        assertEquals(Config.DEFAULT_ASYNC_RESPONSE_BUFFER_SIZE, config.getAsyncResponseBufferSize());
+    }
+
+    @Test
+    void asyncResponseBufferSizeMustBePositive(){
+        TestUtil.assertException(() -> config.asyncResponseBufferSize(0),
+                UnirestConfigException.class,
+                "The async response buffer size must be positive");
+    }
+
     @Test
     void onceTheConfigIsRunningYouCannotChangeConfig(){
         config.httpClient(mock(HttpClient.class));
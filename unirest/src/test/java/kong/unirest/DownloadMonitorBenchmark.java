@@ -0,0 +1,117 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a 32MB in-memory response to a file with and without a download ProgressMonitor.
+ * A monitor used to pull the body through one byte at a time, which made monitored downloads
+ * many times slower than plain ones. Bulk reads should keep all three cases close together.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=kong.unirest.DownloadMonitorBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DownloadMonitorBenchmark {
+    private static final int SIZE = 32 * 1024 * 1024;
+
+    @Param({"none", "every-read", "throttled"})
+    public String monitor;
+
+    private final byte[] body = new byte[SIZE];
+    private Config config;
+    private ProgressMonitor progress;
+    private Path target;
+    private long reported;
+
+    @Setup
+    public void setUp() throws IOException {
+        config = new Config();
+        if ("throttled".equals(monitor)) {
+            config.downloadMonitorThrottle(1024 * 1024, Duration.ofMillis(100));
+        }
+        progress = "none".equals(monitor) ? null : (field, file, bytes, total) -> reported = bytes;
+        target = Files.createTempFile("unirest-download", ".bin");
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public long download() {
+        File file = new FileResponse(new BodyResponse(config, body), target.toString(), progress,
+                StandardCopyOption.REPLACE_EXISTING).getBody();
+        return file.length() + reported;
+    }
+
+    private static class BodyResponse extends TestRawResponse {
+        private final byte[] body;
+        private final Headers headers = new Headers();
+
+        BodyResponse(Config config, byte[] body) {
+            super(config);
+            this.body = body;
+            headers.add("Content-Length", String.valueOf(body.length));
+        }
+
+        @Override
+        public Headers getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getContent() {
+            return new ByteArrayInputStream(body);
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DownloadMonitorBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
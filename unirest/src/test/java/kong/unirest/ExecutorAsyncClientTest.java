@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExecutorAsyncClientTest {
+    private final List<Runnable> queued = new ArrayList<>();
+    private final Executor executor = queued::add;
+    private final Config config = new Config();
+    private final IoClient io = new IoClient();
+
+    @Test
+    void callbacksRunOnTheExecutor() {
+        CompletableFuture<HttpResponse<Object>> callback = new CompletableFuture<>();
+        List<String> seen = new ArrayList<>();
+
+        CompletableFuture<HttpResponse<Object>> returned = new ExecutorAsyncClient(io, executor)
+                .request(new HttpRequestNoBody(config, HttpMethod.GET, "/"), null, callback, Object.class);
+        returned.thenRun(() -> seen.add("callback"));
+        io.respond(new MockResponse<>());
+
+        assertSame(callback, returned);
+        assertFalse(callback.isDone());
+        assertEquals(1, queued.size());
+
+        queued.get(0).run();
+
+        assertTrue(callback.isDone());
+        assertEquals(1, seen.size());
+    }
+
+    @Test
+    void failuresArePassedOnThroughTheExecutor() {
+        CompletableFuture<HttpResponse<Object>> callback = new CompletableFuture<>();
+        new ExecutorAsyncClient(io, executor).request(new HttpRequestNoBody(config, HttpMethod.GET, "/"), null, callback, Object.class);
+
+        io.fail(new UnirestException("boom"));
+        queued.get(0).run();
+
+        CompletionException e = assertThrows(CompletionException.class, callback::join);
+        assertEquals("boom", e.getCause().getMessage());
+    }
+
+    @Test
+    void cancellingTheCallbackCancelsTheRequest() {
+        CompletableFuture<HttpResponse<Object>> callback = new CompletableFuture<>();
+        new ExecutorAsyncClient(io, executor).request(new HttpRequestNoBody(config, HttpMethod.GET, "/"), null, callback, Object.class);
+
+        callback.cancel(true);
+
+        assertTrue(io.pending.isCancelled());
+    }
+
+    @Test
+    void aRejectingExecutorFailsTheCallback() {
+        CompletableFuture<HttpResponse<Object>> callback = new CompletableFuture<>();
+        Executor rejecting = r -> { throw new RejectedExecutionException("full"); };
+        new ExecutorAsyncClient(io, rejecting).request(new HttpRequestNoBody(config, HttpMethod.GET, "/"), null, callback, Object.class);
+
+        io.respond(new MockResponse<>());
+
+        CompletionException e = assertThrows(CompletionException.class, callback::join);
+        assertTrue(e.getCause() instanceof RejectedExecutionException);
+    }
+
+    @Test
+    void theConfigWrapsTheAsyncClientWhenAnExecutorIsSet() {
+        config.asyncClient(io);
+        assertSame(io, config.getAsyncClient());
+
+        config.callbackExecutor(executor);
+
+        assertTrue(config.getAsyncClient() instanceof ExecutorAsyncClient);
+        assertSame(executor, config.getCallbackExecutor());
+        assertTrue(config.getAsyncClient().isRunning());
+    }
+
+    private static class IoClient implements AsyncClient {
+        private CompletableFuture pending;
+
+        @Override
+        public <T> T getClient() {
+            return null;
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            pending = callback;
+            return callback;
+        }
+
+        void respond(HttpResponse response) {
+            pending.complete(response);
+        }
+
+        void fail(Exception e) {
+            pending.completeExceptionally(e);
+        }
+
+        @Override
+        public void registerShutdownHook() {
+
+        }
+    }
+}
@@ -0,0 +1,310 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static kong.unirest.HttpMethod.GET;
+import static kong.unirest.HttpMethod.POST;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpCachePolicyTest {
+    private final Config config = new Config();
+    private final Instant now = Instant.parse("2020-11-10T10:00:00Z");
+    private ScriptedClient client;
+    private Client cache;
+
+    @BeforeEach
+    void setUp() {
+        TestUtil.freeze(now);
+        client = new ScriptedClient();
+        cache = Cache.builder().httpSemantics(true).build().wrap(client);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestUtil.reset();
+    }
+
+    @Test
+    void freshResponsesAreServedFromTheCache() {
+        HttpResponse first = client.willReturn(200, "Cache-Control", "max-age=60");
+
+        assertSame(first, get());
+        TestUtil.freeze(now.plusSeconds(30));
+        assertSame(first, get());
+
+        assertEquals(1, client.invokes);
+    }
+
+    @Test
+    void staleResponsesAreRevalidatedWithTheirEtag() {
+        HttpResponse first = client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        client.willReturn(304, "Cache-Control", "max-age=60");
+
+        assertSame(first, get());
+        TestUtil.freeze(now.plusSeconds(90));
+        assertSame(first, get());
+
+        assertEquals(2, client.invokes);
+        assertEquals("\"v1\"", client.requestHeaders.get(1).getFirst("If-None-Match"));
+
+        TestUtil.freeze(now.plusSeconds(120));
+        assertSame(first, get());
+        assertEquals(2, client.invokes);
+    }
+
+    @Test
+    void revalidationHeadersAreNotLeftOnTheRequest() {
+        client.willReturn(200, "Last-Modified", date(now.minusSeconds(3600)), "Cache-Control", "no-cache");
+        client.willReturn(304);
+        HttpRequestNoBody request = new HttpRequestNoBody(config, GET, "/");
+
+        cache.request(request, null, Object.class);
+        cache.request(request, null, Object.class);
+
+        assertEquals(date(now.minusSeconds(3600)), client.requestHeaders.get(1).getFirst("If-Modified-Since"));
+        assertFalse(request.getHeaders().containsKey("If-Modified-Since"));
+        assertNotSame(request, client.requests.get(1));
+    }
+
+    @Test
+    void conditionsAreOnlySentForValidatorsTheEntryHas() {
+        client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        client.willReturn(304);
+
+        get();
+        TestUtil.freeze(now.plusSeconds(90));
+        get();
+
+        assertEquals("\"v1\"", client.requestHeaders.get(1).getFirst("If-None-Match"));
+        assertFalse(client.requestHeaders.get(1).containsKey("If-Modified-Since"));
+    }
+
+    @Test
+    void responsesWithoutValidatorsAreNotRevalidated() {
+        client.willReturn(200, "Cache-Control", "no-cache");
+        HttpResponse notModified = client.willReturn(304);
+
+        get();
+
+        assertSame(notModified, get());
+        assertFalse(client.requestHeaders.get(1).containsKey("If-None-Match"));
+        assertFalse(client.requestHeaders.get(1).containsKey("If-Modified-Since"));
+    }
+
+    @Test
+    void aNewResponseReplacesTheStaleOne() {
+        client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        HttpResponse second = client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v2\"");
+
+        get();
+        TestUtil.freeze(now.plusSeconds(90));
+
+        assertSame(second, get());
+        assertSame(second, get());
+        assertEquals(2, client.invokes);
+    }
+
+    @Test
+    void expiresIsUsedWithoutMaxAge() {
+        HttpResponse first = client.willReturn(200, "Date", date(now), "Expires", date(now.plusSeconds(60)));
+        client.willReturn(200);
+
+        assertSame(first, get());
+        assertSame(first, get());
+        TestUtil.freeze(now.plusSeconds(61));
+        assertNotSame(first, get());
+    }
+
+    @Test
+    void noStoreIsNeverCached() {
+        client.willReturn(200, "Cache-Control", "no-store, max-age=60");
+        client.willReturn(200, "Cache-Control", "no-store, max-age=60");
+
+        assertNotSame(get(), get());
+    }
+
+    @Test
+    void responsesWithoutFreshnessOrValidatorsAreNotCached() {
+        client.willReturn(200);
+        client.willReturn(200);
+
+        assertNotSame(get(), get());
+    }
+
+    @Test
+    void onlyGetAndHeadAreCached() {
+        client.willReturn(200, "Cache-Control", "max-age=60");
+        client.willReturn(200, "Cache-Control", "max-age=60");
+
+        assertNotSame(
+                cache.request(new HttpRequestBody(config, POST, "/"), null, Object.class),
+                cache.request(new HttpRequestBody(config, POST, "/"), null, Object.class)
+        );
+    }
+
+    @Test
+    void varyingHeadersMustMatch() {
+        HttpResponse english = client.willReturn(200, "Cache-Control", "max-age=60", "Vary", "Accept-Language");
+        client.willReturn(200, "Cache-Control", "max-age=60", "Vary", "Accept-Language");
+        Cache.KeyGenerator urlOnly = (r, a, t) -> new FixedKey();
+        cache = Cache.builder().httpSemantics(true).withKeyGen(urlOnly).build().wrap(client);
+
+        assertSame(english, cache.request(new HttpRequestNoBody(config, GET, "/").header("Accept-Language", "en"), null, Object.class));
+        assertNotSame(english, cache.request(new HttpRequestNoBody(config, GET, "/").header("Accept-Language", "fr"), null, Object.class));
+    }
+
+    @Test
+    void requestNoCacheForcesRevalidation() {
+        HttpResponse first = client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        client.willReturn(304);
+        cache = Cache.builder().httpSemantics(true).withKeyGen((r, a, t) -> new FixedKey()).build().wrap(client);
+
+        get();
+        assertSame(first, cache.request(new HttpRequestNoBody(config, GET, "/").header("Cache-Control", "no-cache"), null, Object.class));
+        assertEquals(2, client.invokes);
+    }
+
+    @Test
+    void asyncRevalidation() throws Exception {
+        HttpResponse first = client.willReturn(200, "Cache-Control", "max-age=60", "ETag", "\"v1\"");
+        client.willReturn(304);
+        AsyncClient async = Cache.builder().httpSemantics(true).build().wrapAsync(client);
+
+        assertSame(first, async.request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Object.class).get());
+        TestUtil.freeze(now.plusSeconds(90));
+        assertSame(first, async.request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Object.class).get());
+
+        assertEquals(2, client.invokes);
+        assertEquals("\"v1\"", client.requestHeaders.get(1).getFirst("If-None-Match"));
+    }
+
+    private HttpResponse get() {
+        return cache.request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+    }
+
+    private static String date(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(instant.atOffset(ZoneOffset.UTC));
+    }
+
+    private static class FixedKey implements Cache.Key {
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof FixedKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return 1;
+        }
+
+        @Override
+        public Instant getTime() {
+            return Util.now();
+        }
+    }
+
+    private static class StatusResponse extends MockResponse<Object> {
+        private final int status;
+        private final Headers headers = new Headers();
+
+        StatusResponse(int status, String... headerPairs) {
+            this.status = status;
+            for (int i = 0; i < headerPairs.length; i += 2) {
+                headers.add(headerPairs[i], headerPairs[i + 1]);
+            }
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+
+        @Override
+        public Headers getHeaders() {
+            return headers;
+        }
+    }
+
+    private static class ScriptedClient implements Client, AsyncClient {
+        private final Queue<HttpResponse> responses = new LinkedList<>();
+        private final List<Headers> requestHeaders = new ArrayList<>();
+        private final List<HttpRequest> requests = new ArrayList<>();
+        private int invokes = 0;
+
+        HttpResponse willReturn(int status, String... headers) {
+            HttpResponse response = new StatusResponse(status, headers);
+            responses.add(response);
+            return response;
+        }
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+            invokes++;
+            requests.add(request);
+            Headers copy = new Headers();
+            copy.putAll(request.getHeaders());
+            requestHeaders.add(copy);
+            return responses.remove();
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            callback.complete(request(request, transformer));
+            return callback;
+        }
+
+        @Override
+        public Object getClient() {
+            return null;
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return Stream.empty();
+        }
+
+        @Override
+        public void registerShutdownHook() {
+        }
+    }
+}
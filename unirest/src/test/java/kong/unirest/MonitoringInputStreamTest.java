@@ -0,0 +1,180 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MonitoringInputStreamTest {
+    private final List<Long> reported = new ArrayList<>();
+    private final CountingStream content = new CountingStream(new byte[10000]);
+    private final Config config = new Config();
+
+    @AfterEach
+    void tearDown() {
+        Util.resetClock();
+    }
+
+    @Test
+    void bulkReadsArePassedThroughToTheContent() throws IOException {
+        MonitoringInputStream stream = monitor();
+
+        assertEquals(4096, stream.read(new byte[4096]));
+        assertEquals(100, stream.read(new byte[200], 50, 100));
+
+        assertEquals(2, content.reads);
+        assertEquals(Arrays.asList(4096L, 4196L), reported);
+    }
+
+    @Test
+    void endOfStreamIsNotCounted() throws IOException {
+        MonitoringInputStream stream = monitor();
+
+        drain(stream, 4096);
+        stream.read(new byte[10]);
+        stream.read();
+
+        assertEquals(Arrays.asList(4096L, 8192L, 10000L), reported);
+    }
+
+    @Test
+    void singleByteReadsAreCounted() throws IOException {
+        MonitoringInputStream stream = monitor();
+
+        stream.read();
+        stream.read();
+
+        assertEquals(Arrays.asList(1L, 2L), reported);
+    }
+
+    @Test
+    void throttleByBytes() throws IOException {
+        config.downloadMonitorThrottle(5000, Duration.ZERO);
+        MonitoringInputStream stream = monitor();
+
+        drain(stream, 1000);
+
+        assertEquals(Arrays.asList(5000L, 10000L), reported);
+    }
+
+    @Test
+    void throttleByTime() throws IOException {
+        Instant start = Instant.now();
+        Util.freezeClock(start);
+        config.downloadMonitorThrottle(0, Duration.ofSeconds(1));
+        MonitoringInputStream stream = monitor();
+
+        stream.read(new byte[1000]);
+        stream.read(new byte[1000]);
+        Util.freezeClock(start.plusSeconds(1));
+        stream.read(new byte[1000]);
+        stream.read(new byte[1000]);
+
+        assertEquals(Arrays.asList(3000L), reported);
+    }
+
+    @Test
+    void closeReportsTheFinalCount() throws IOException {
+        config.downloadMonitorThrottle(5000, Duration.ZERO);
+        MonitoringInputStream stream = monitor();
+
+        stream.read(new byte[1000]);
+        stream.close();
+        stream.close();
+
+        assertEquals(Arrays.asList(1000L), reported);
+        assertTrue(content.closed);
+    }
+
+    @Test
+    void throttleSettingsAreValidated() {
+        assertThrows(UnirestConfigException.class, () -> config.downloadMonitorThrottle(-1, Duration.ZERO));
+        assertThrows(UnirestConfigException.class, () -> config.downloadMonitorThrottle(0, Duration.ofMillis(-1)));
+        assertThrows(NullPointerException.class, () -> config.downloadMonitorThrottle(0, null));
+    }
+
+    private MonitoringInputStream monitor() {
+        return new MonitoringInputStream(content, (field, file, bytes, total) -> {
+            assertEquals("body", field);
+            assertEquals("file.txt", file);
+            assertEquals(10000L, total.longValue());
+            reported.add(bytes);
+        }, Paths.get("/tmp/file.txt"), new SizedResponse(config, 10000));
+    }
+
+    private static void drain(InputStream stream, int chunk) throws IOException {
+        byte[] buffer = new byte[chunk];
+        while (stream.read(buffer) != -1) {
+            // keep reading
+        }
+    }
+
+    private static class CountingStream extends ByteArrayInputStream {
+        private int reads;
+        private boolean closed;
+
+        CountingStream(byte[] buf) {
+            super(buf);
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            reads++;
+            return super.read(b, off, len);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+
+    private static class SizedResponse extends TestRawResponse {
+        private final Headers headers = new Headers();
+
+        SizedResponse(Config config, long length) {
+            super(config);
+            headers.add("Content-Length", String.valueOf(length));
+        }
+
+        @Override
+        public Headers getHeaders() {
+            return headers;
+        }
+    }
+}
@@ -0,0 +1,217 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapTierTest {
+    private final Config config = new Config();
+    private Path dir;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        if (dir != null) {
+            try (Stream<Path> files = Files.list(dir)) {
+                files.forEach(f -> f.toFile().delete());
+            }
+            Files.delete(dir);
+        }
+    }
+
+    @Test
+    void bodiesAreMovedOffHeap() {
+        OffHeapTier tier = new OffHeapTier(1024, null);
+
+        tier.promote(key(1), response("hello"), Long.MAX_VALUE);
+        HttpResponse<RawResponse> hit = tier.take(key(1));
+
+        CachedRawResponse raw = (CachedRawResponse) hit.getBody();
+        assertTrue(raw.isOffHeap());
+        assertEquals("hello", raw.getContentAsString());
+        assertEquals(200, hit.getStatus());
+        assertEquals("text/plain", hit.getHeaders().getFirst("Content-Type"));
+    }
+
+    @Test
+    void aHitRemovesTheEntryFromTheTier() {
+        OffHeapTier tier = new OffHeapTier(1024, null);
+        tier.promote(key(1), response("hello"), Long.MAX_VALUE);
+
+        assertNotNull(tier.take(key(1)));
+        assertNull(tier.take(key(1)));
+        assertEquals(0, tier.size());
+    }
+
+    @Test
+    void expiredBodiesAreDroppedInsteadOfTaken() {
+        OffHeapTier tier = new OffHeapTier(1024, null);
+        long expiresAt = Instant.now().minusSeconds(1).toEpochMilli();
+        tier.promote(key(1), response("hello"), expiresAt);
+
+        assertNull(tier.take(key(1)));
+        assertEquals(0, tier.size());
+        assertEquals(0, tier.count());
+    }
+
+    @Test
+    void theLeastRecentlyUsedBodiesAreDroppedOnceFull() {
+        OffHeapTier tier = new OffHeapTier(10, null);
+
+        tier.promote(key(1), response("aaaa"), Long.MAX_VALUE);
+        tier.promote(key(2), response("bbbb"), Long.MAX_VALUE);
+        tier.promote(key(3), response("cccc"), Long.MAX_VALUE);
+
+        assertEquals(2, tier.count());
+        assertEquals(8, tier.size());
+        assertNull(tier.take(key(1)));
+    }
+
+    @Test
+    void completedAsyncResponsesArePromoted() {
+        OffHeapTier tier = new OffHeapTier(1024, null);
+
+        tier.promote(key(1), CompletableFuture.completedFuture(response("hello")), Long.MAX_VALUE);
+        tier.promote(key(2), new CompletableFuture<>(), Long.MAX_VALUE);
+
+        assertEquals(1, tier.count());
+    }
+
+    @Test
+    void parsedResponsesAreIgnored() {
+        OffHeapTier tier = new OffHeapTier(1024, null);
+
+        tier.promote(key(1), new MockResponse<>(), Long.MAX_VALUE);
+
+        assertEquals(0, tier.count());
+    }
+
+    @Test
+    void bodiesCanBeMemoryMappedFromADirectory() throws IOException {
+        dir = Files.createTempDirectory("unirest-tier");
+        OffHeapTier tier = new OffHeapTier(1024, dir);
+
+        tier.promote(key(1), response("hello"), Long.MAX_VALUE);
+        assertEquals(1, Files.list(dir).count());
+
+        CachedRawResponse raw = (CachedRawResponse) tier.take(key(1)).getBody();
+        assertEquals("hello", raw.getContentAsString());
+        assertTrue(raw.isOffHeap());
+    }
+
+    @Test
+    void theFileOfATakenBodyIsKeptUntilTheBodyIsUnreachable() throws Exception {
+        dir = Files.createTempDirectory("unirest-tier");
+        OffHeapTier tier = new OffHeapTier(1024, dir);
+        tier.promote(key(1), response("hello"), Long.MAX_VALUE);
+
+        HttpResponse<RawResponse> taken = tier.take(key(1));
+        tier.take(key(2));
+        assertEquals(1, Files.list(dir).count());
+        assertEquals("hello", taken.getBody().getContentAsString());
+
+        taken = null;
+        long deadline = System.currentTimeMillis() + 10000;
+        while (Files.list(dir).count() > 0 && System.currentTimeMillis() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+            tier.take(key(2));
+        }
+        assertEquals(0, Files.list(dir).count());
+    }
+
+    @Test
+    void filesAreWrittenStraightFromTheOffHeapBuffer() throws IOException {
+        dir = Files.createTempDirectory("unirest-tier");
+        OffHeapTier tier = new OffHeapTier(1024, null);
+        tier.promote(key(1), response("hello"), Long.MAX_VALUE);
+        RawResponse raw = tier.take(key(1)).getBody();
+        String target = dir.resolve("out.txt").toString();
+
+        File file = new FileResponse(raw, target, null).getBody();
+        assertEquals("hello", new String(Files.readAllBytes(file.toPath())));
+
+        assertThrows(UnirestException.class, () -> new FileResponse(raw, target, null));
+        new FileResponse(raw, target, null, StandardCopyOption.REPLACE_EXISTING);
+        assertEquals("hello", new String(Files.readAllBytes(file.toPath())));
+    }
+
+    private HttpResponse<RawResponse> response(String body) {
+        return CachedRawResponse.capture(new TestRawResponse(config) {
+            @Override
+            public int getStatus() {
+                return 200;
+            }
+
+            @Override
+            public Headers getHeaders() {
+                Headers headers = new Headers();
+                headers.add("Content-Type", "text/plain");
+                return headers;
+            }
+
+            @Override
+            public byte[] getContentAsBytes() {
+                return body.getBytes();
+            }
+
+            @Override
+            public boolean hasContent() {
+                return true;
+            }
+        });
+    }
+
+    private static Cache.Key key(int id) {
+        return new Cache.Key() {
+            @Override
+            public boolean equals(Object obj) {
+                return obj != null && obj.hashCode() == id;
+            }
+
+            @Override
+            public int hashCode() {
+                return id;
+            }
+
+            @Override
+            public Instant getTime() {
+                return Instant.now();
+            }
+        };
+    }
+}
@@ -0,0 +1,164 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PagedStreamTest {
+    private final Map<String, CompletableFuture<HttpResponse>> requested = new LinkedHashMap<>();
+    private final GetRequest request = new HttpRequestNoBody(new Config(), HttpMethod.GET, "http://pages/1");
+
+    @Test
+    void pagesAreStreamedInOrder() {
+        Stream<HttpResponse<String>> pages = request.asPagedStream(this::immediately, this::nextOf, 2);
+
+        assertEquals(Arrays.asList("http://pages/1", "http://pages/2", "http://pages/3", "http://pages/4", "http://pages/5"),
+                pages.map(HttpResponse::getBody).collect(Collectors.toList()));
+    }
+
+    @Test
+    void onlyPrefetchPagesAreRequestedAheadOfTheCaller() {
+        Iterator<HttpResponse<String>> pages = request.<String>asPagedStream(this::later, this::nextOf, 2).iterator();
+        complete("http://pages/1");
+        complete("http://pages/2");
+        complete("http://pages/3");
+
+        assertEquals(Arrays.asList("http://pages/1", "http://pages/2"), new ArrayList<>(requested.keySet()));
+
+        assertEquals("http://pages/1", pages.next().getBody());
+        assertEquals(Arrays.asList("http://pages/1", "http://pages/2", "http://pages/3"), new ArrayList<>(requested.keySet()));
+    }
+
+    @Test
+    void theNextPageIsRequestedAsSoonAsTheCurrentOneArrives() {
+        Iterator<HttpResponse<String>> pages = request.<String>asPagedStream(this::later, this::nextOf, 1).iterator();
+        complete("http://pages/1");
+
+        assertEquals("http://pages/1", pages.next().getBody());
+        assertTrue(requested.containsKey("http://pages/2"));
+        complete("http://pages/2");
+        assertEquals("http://pages/2", pages.next().getBody());
+    }
+
+    @Test
+    void pagingEndsWhenThereIsNoNextLink() {
+        List<HttpResponse<String>> pages = request.<String>asPagedStream(this::immediately, r -> null, 3)
+                .collect(Collectors.toList());
+
+        assertEquals(1, pages.size());
+    }
+
+    @Test
+    void closingCancelsThePagesStillLoading() {
+        Stream<HttpResponse<String>> pages = request.asPagedStream(this::later, this::nextOf, 2);
+        complete("http://pages/1");
+
+        pages.close();
+        complete("http://pages/2");
+
+        assertTrue(requested.get("http://pages/2").isCancelled());
+        assertFalse(requested.containsKey("http://pages/3"));
+    }
+
+    @Test
+    void failuresAreThrownToTheCaller() {
+        Iterator<HttpResponse<String>> pages = request.<String>asPagedStream(this::later, this::nextOf, 2).iterator();
+        requested.get("http://pages/1").completeExceptionally(new UnirestException("boom"));
+
+        UnirestException e = assertThrows(UnirestException.class, pages::next);
+        assertEquals("boom", e.getMessage());
+        assertFalse(pages.hasNext());
+    }
+
+    @Test
+    void eachPageIsRequestedWithACopyOfTheCallersRequest() {
+        RequestBodyEntity post = new HttpRequestBody(new Config(), HttpMethod.POST, "http://pages/1").body("query");
+        List<HttpRequest> sent = new ArrayList<>();
+
+        long count = post.<String>asPagedStream(r -> {
+            sent.add(r);
+            return immediately(r);
+        }, this::nextOf, 2).count();
+
+        assertEquals(5, count);
+        assertEquals("http://pages/1", post.getUrl());
+        assertEquals("http://pages/5", sent.get(4).getUrl());
+        for (HttpRequest r : sent) {
+            assertNotSame(post, r);
+            assertEquals(HttpMethod.POST, r.getHttpMethod());
+            assertEquals("query", ((Optional<Body>) r.getBody()).get().uniPart().getValue());
+        }
+    }
+
+    @Test
+    void prefetchMustBePositive() {
+        assertThrows(UnirestException.class, () -> request.asPagedStream(this::later, this::nextOf, 0));
+    }
+
+    private CompletableFuture<HttpResponse> immediately(HttpRequest r) {
+        return CompletableFuture.completedFuture(page(r.getUrl()));
+    }
+
+    private CompletableFuture<HttpResponse> later(HttpRequest r) {
+        CompletableFuture<HttpResponse> page = new CompletableFuture<>();
+        requested.put(r.getUrl(), page);
+        return page;
+    }
+
+    private void complete(String url) {
+        CompletableFuture<HttpResponse> page = requested.get(url);
+        if (page != null) {
+            page.complete(page(url));
+        }
+    }
+
+    private String nextOf(HttpResponse<String> page) {
+        int number = Integer.parseInt(page.getBody().substring("http://pages/".length()));
+        return number < 5 ? "http://pages/" + (number + 1) : null;
+    }
+
+    private static HttpResponse<String> page(String url) {
+        return new MockResponse<String>() {
+            @Override
+            public String getBody() {
+                return url;
+            }
+        };
+    }
+}
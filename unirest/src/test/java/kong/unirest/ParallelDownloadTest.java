@@ -0,0 +1,209 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelDownloadTest {
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private byte[] content;
+    private boolean ranges = true;
+    private final AtomicInteger fullBodiesSent = new AtomicInteger();
+    private String etag = "\"v1\"";
+    private HttpServer server;
+    private ExecutorService threads;
+    private UnirestInstance unirest;
+    private File file;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[1024 * 1024 + 7];
+        new Random(5).nextBytes(content);
+        file = File.createTempFile("download", ".bin");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::serve);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/file";
+        threads = Executors.newCachedThreadPool();
+        unirest = new UnirestInstance(new Config().asyncClient(new ThreadedAsyncClient()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        unirest.shutDown();
+        threads.shutdownNow();
+        server.stop(0);
+        file.delete();
+    }
+
+    @Test
+    void rangesAreWrittenAtTheirOffsets() throws IOException {
+        List<Long> progress = Collections.synchronizedList(new ArrayList<>());
+
+        HttpResponse<File> response = unirest.get(url)
+                .downloadMonitor((field, name, bytes, total) -> {
+                    assertEquals(content.length, total.longValue());
+                    progress.add(bytes);
+                })
+                .asFileParallel(file.getPath(), 4, StandardCopyOption.REPLACE_EXISTING);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(response.getBody().toPath()));
+        assertEquals(Arrays.asList("GET bytes=0-262144", "GET bytes=262145-524290",
+                "GET bytes=524291-786436", "GET bytes=786437-1048582", "HEAD"), sorted());
+        assertEquals(content.length, progress.get(progress.size() - 1).longValue());
+    }
+
+    @Test
+    void fallsBackToASingleStreamWithoutRangeSupport() throws IOException {
+        ranges = false;
+
+        HttpResponse<File> response = unirest.get(url).asFileParallel(file.getPath(), 4, StandardCopyOption.REPLACE_EXISTING);
+
+        assertArrayEquals(content, Files.readAllBytes(response.getBody().toPath()));
+        assertEquals(Arrays.asList("GET", "HEAD"), sorted());
+    }
+
+    @Test
+    void failsAndRemovesTheFileWhenTheContentChangesUnderneath() {
+        etag = "\"v2\"";
+
+        assertThrows(UnirestException.class,
+                () -> unirest.get(url).asFileParallel(file.getPath(), 4, StandardCopyOption.REPLACE_EXISTING));
+
+        assertFalse(file.exists());
+    }
+
+    @Test
+    void theWholeFileIsNotDownloadedForARangeTheServerRefuses() {
+        content = new byte[32 * 1024 * 1024];
+        etag = "\"v2\"";
+        unirest.shutDown();
+        unirest = new UnirestInstance(new Config());
+
+        assertThrows(UnirestException.class,
+                () -> unirest.get(url).asFileParallel(file.getPath(), 2, StandardCopyOption.REPLACE_EXISTING));
+
+        assertEquals(0, fullBodiesSent.get());
+    }
+
+    @Test
+    void existingFilesAreNotReplacedUnlessAsked() {
+        assertThrows(UnirestException.class, () -> unirest.get(url).asFileParallel(file.getPath(), 4));
+
+        assertTrue(file.exists());
+    }
+
+    private List<String> sorted() {
+        List<String> sorted = new ArrayList<>(requests);
+        Collections.sort(sorted);
+        return sorted;
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        requests.add(exchange.getRequestMethod() + (range == null ? "" : " " + range));
+        if (ranges) {
+            exchange.getResponseHeaders().add("Accept-Ranges", "bytes");
+        }
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            // the JDK server drops kept alive connections after a HEAD, so don't let the client reuse it
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Content-Length", String.valueOf(content.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+        } else if (range != null && ranges && "\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-Range"))) {
+            String[] bounds = range.substring("bytes=".length()).split("-");
+            int start = Integer.parseInt(bounds[0]);
+            int end = Integer.parseInt(bounds[1]);
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+            send(exchange, 206, Arrays.copyOfRange(content, start, end + 1));
+        } else {
+            send(exchange, 200, content);
+            fullBodiesSent.incrementAndGet();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Runs each request on the sync client from its own thread.
+     */
+    private class ThreadedAsyncClient implements AsyncClient {
+        @Override
+        public <T> T getClient() {
+            return null;
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            threads.execute(() -> {
+                try {
+                    callback.complete(unirest.config().getOriginClient().request(request, transformer));
+                } catch (RuntimeException e) {
+                    callback.completeExceptionally(e);
+                }
+            });
+            return callback;
+        }
+
+        @Override
+        public void registerShutdownHook() {
+        }
+    }
+}
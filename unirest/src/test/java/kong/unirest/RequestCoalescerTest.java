@@ -0,0 +1,273 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static kong.unirest.HttpMethod.GET;
+import static kong.unirest.HttpMethod.POST;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestCoalescerTest {
+    private final Config config = new Config();
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final SlowClient origin = new SlowClient();
+
+    @Test
+    void concurrentSyncRequestsShareOneExchange() throws Exception {
+        Client client = coalescer.wrap(origin);
+        ExecutorService pool = Executors.newFixedThreadPool(5);
+        try {
+            List<Future<HttpResponse>> results = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                results.add(pool.submit(() -> client.request(get(), null, String.class)));
+            }
+            awaitCollapsed(4);
+            origin.release.countDown();
+
+            HttpResponse first = results.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<HttpResponse> result : results) {
+                assertSame(first, result.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(1, origin.invokes.get());
+        assertEquals(5, coalescer.getRequestCount());
+        assertEquals(4, coalescer.getCollapsedCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void asyncRequestsShareOneExchangeAndCompleteEveryCallback() throws Exception {
+        AsyncClient client = coalescer.wrapAsync(origin);
+
+        CompletableFuture<HttpResponse<String>> one = client.request(get(), null, new CompletableFuture<>(), String.class);
+        CompletableFuture<HttpResponse<String>> two = client.request(get(), null, new CompletableFuture<>(), String.class);
+        assertFalse(one.isDone());
+        assertEquals(1, coalescer.getInFlightCount());
+
+        HttpResponse response = new MockResponse<>();
+        origin.pending.get(0).complete(response);
+
+        assertSame(response, one.get());
+        assertSame(response, two.get());
+        assertEquals(1, origin.invokes.get());
+        assertEquals(1, coalescer.getCollapsedCount());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void syncRequestsJoinAsyncRequestsInFlight() throws Exception {
+        CompletableFuture<HttpResponse<String>> async = coalescer.wrapAsync(origin)
+                .request(get(), null, new CompletableFuture<>(), String.class);
+        CompletableFuture<HttpResponse> sync = CompletableFuture.supplyAsync(
+                () -> coalescer.wrap(origin).request(get(), null, String.class));
+        awaitCollapsed(1);
+
+        HttpResponse response = new MockResponse<>();
+        origin.pending.get(0).complete(response);
+
+        assertSame(response, sync.get(5, TimeUnit.SECONDS));
+        assertSame(response, async.get());
+        assertEquals(1, origin.invokes.get());
+    }
+
+    @Test
+    void failuresAreSharedButNotRemembered() {
+        AsyncClient client = coalescer.wrapAsync(origin);
+        CompletableFuture<HttpResponse<String>> one = client.request(get(), null, new CompletableFuture<>(), String.class);
+        CompletableFuture<HttpResponse<String>> two = client.request(get(), null, new CompletableFuture<>(), String.class);
+
+        origin.pending.get(0).completeExceptionally(new UnirestException("boom"));
+
+        assertTrue(one.isCompletedExceptionally());
+        assertTrue(two.isCompletedExceptionally());
+
+        client.request(get(), null, new CompletableFuture<>(), String.class);
+        assertEquals(2, origin.invokes.get());
+    }
+
+    @Test
+    void completedRequestsAreNotReused() {
+        origin.release.countDown();
+        Client client = coalescer.wrap(origin);
+
+        assertNotSame(client.request(get(), null, String.class), client.request(get(), null, String.class));
+        assertEquals(2, origin.invokes.get());
+        assertEquals(0, coalescer.getCollapsedCount());
+    }
+
+    @Test
+    void onlyIdempotentRequestsAreCoalesced() {
+        AsyncClient client = coalescer.wrapAsync(origin);
+
+        client.request(new HttpRequestBody(config, POST, "/"), null, new CompletableFuture<>(), String.class);
+        client.request(new HttpRequestBody(config, POST, "/"), null, new CompletableFuture<>(), String.class);
+
+        assertEquals(2, origin.invokes.get());
+        assertEquals(0, coalescer.getRequestCount());
+    }
+
+    @Test
+    void differentRequestsAreNotCoalesced() {
+        AsyncClient client = coalescer.wrapAsync(origin);
+
+        client.request(new HttpRequestNoBody(config, GET, "/a"), null, new CompletableFuture<>(), String.class);
+        client.request(new HttpRequestNoBody(config, GET, "/b"), null, new CompletableFuture<>(), String.class);
+
+        assertEquals(2, origin.invokes.get());
+        assertEquals(2, coalescer.getInFlightCount());
+    }
+
+    @Test
+    void filesFunctionsAndConsumersAreNotCoalesced() {
+        AsyncClient client = coalescer.wrapAsync(origin);
+
+        client.request(get(), null, new CompletableFuture<>(), File.class);
+        client.request(get(), null, new CompletableFuture<>(), File.class);
+        client.request(get(), null, new CompletableFuture<>(), Object.class);
+        client.request(get(), null, new CompletableFuture<>(), Object.class);
+
+        assertEquals(4, origin.invokes.get());
+        assertEquals(0, coalescer.getCollapsedCount());
+    }
+
+    @Test
+    void objectsOfDifferentGenericTypesAreNotCoalesced() {
+        config.asyncClient(origin).coalesceRequests(true);
+
+        get().asObjectAsync(new GenericType<List<String>>(){});
+        get().asObjectAsync(new GenericType<List<Integer>>(){});
+        get().asObjectAsync(List.class);
+
+        assertEquals(3, origin.invokes.get());
+        assertEquals(0, config.getCoalescingStats().getCollapsedCount());
+    }
+
+    @Test
+    void errorsInASyncLeaderAreSharedWithWaitingCallers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Client failing = coalescer.wrap(new SlowClient() {
+            @Override
+            public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new UnirestException(e);
+                }
+                throw new InternalError("boom");
+            }
+        });
+        CompletableFuture<Throwable> leader = CompletableFuture.supplyAsync(() -> {
+            try {
+                failing.request(get(), null, String.class);
+                return null;
+            } catch (InternalError e) {
+                return e;
+            }
+        });
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getInFlightCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        CompletableFuture<HttpResponse<String>> follower = coalescer.wrapAsync(origin)
+                .request(get(), null, new CompletableFuture<>(), String.class);
+        release.countDown();
+
+        assertTrue(leader.get(5, TimeUnit.SECONDS) instanceof InternalError);
+        ExecutionException e = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof InternalError);
+        assertEquals(0, origin.invokes.get());
+        assertEquals(0, coalescer.getInFlightCount());
+    }
+
+    private HttpRequestNoBody get() {
+        return new HttpRequestNoBody(config, GET, "/");
+    }
+
+    private void awaitCollapsed(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (coalescer.getCollapsedCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(count, coalescer.getCollapsedCount());
+    }
+
+    private static class SlowClient implements Client, AsyncClient {
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final AtomicInteger invokes = new AtomicInteger();
+        private final List<CompletableFuture> pending = new ArrayList<>();
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+            invokes.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                throw new UnirestException(e);
+            }
+            return new MockResponse<>();
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            invokes.incrementAndGet();
+            pending.add(callback);
+            return callback;
+        }
+
+        @Override
+        public Object getClient() {
+            return null;
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return Stream.empty();
+        }
+
+        @Override
+        public void registerShutdownHook() {
+        }
+    }
+}
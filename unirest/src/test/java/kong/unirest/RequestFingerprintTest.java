@@ -0,0 +1,140 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.Collections.singletonList;
+import static kong.unirest.HttpMethod.GET;
+import static kong.unirest.HttpMethod.POST;
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestFingerprintTest {
+    private final Config config = new Config();
+
+    @Test
+    void identicalRequestsHaveEqualKeys() {
+        Cache.Key one = key(get("http://example.com/a").header("Accept", "text/plain"));
+        Cache.Key two = key(get("http://example.com/a").header("Accept", "text/plain"));
+
+        assertEquals(one, two);
+        assertEquals(one.hashCode(), two.hashCode());
+    }
+
+    @Test
+    void everyPartOfTheRequestCounts() {
+        Cache.Key base = key(get("http://example.com/a"));
+
+        assertNotEquals(base, key(get("http://example.com/b")));
+        assertNotEquals(base, key(get("http://example.com/a").header("Accept", "text/plain")));
+        assertNotEquals(base, key(new HttpRequestNoBody(config, HttpMethod.HEAD, "http://example.com/a")));
+        assertNotEquals(base, new RequestFingerprint(get("http://example.com/a"), true, Object.class));
+        assertNotEquals(base, new RequestFingerprint(get("http://example.com/a"), false, String.class));
+    }
+
+    @Test
+    void valuesDoNotRunIntoEachOther() {
+        assertNotEquals(
+                key(get("http://example.com/").header("ab", "c")),
+                key(get("http://example.com/").header("a", "bc"))
+        );
+    }
+
+    @Test
+    void bodiesArePartOfTheKey() {
+        assertEquals(key(post().body("{\"a\":1}")), key(post().body("{\"a\":1}")));
+        assertNotEquals(key(post().body("{\"a\":1}")), key(post().body("{\"a\":2}")));
+        assertNotEquals(key(post().body(new byte[]{1, 2})), key(post().body(new byte[]{1, 3})));
+        assertNotEquals(key(post().field("a", "1")), key(post().field("a", "2")));
+    }
+
+    @Test
+    void streamedBodiesAreNeverShared() {
+        assertNotEquals(
+                key(post().field("f", new ByteArrayInputStream(new byte[1]), "f.txt")),
+                key(post().field("f", new ByteArrayInputStream(new byte[1]), "f.txt"))
+        );
+    }
+
+    @Test
+    void urlsAreNormalized() {
+        Cache.Key expected = key(get("http://example.com/"));
+
+        assertEquals(expected, key(get("HTTP://Example.COM:80/")));
+        assertEquals(expected, key(get("http://example.com")));
+        assertEquals(expected, key(get("http://example.com/#top")));
+        assertNotEquals(expected, key(get("http://example.com:8080/")));
+        assertEquals(key(get("https://example.com/a?b=c")), key(get("https://EXAMPLE.com:443/a?b=c")));
+        assertNotEquals(key(get("https://example.com/a")), key(get("https://example.com/a?")));
+    }
+
+    @Test
+    void theOrderOfHeadersAndQueryParamsDoesNotMatter() {
+        assertEquals(
+                key(get("http://example.com/?b=2&a=1").header("Accept", "a").header("x-id", "1")),
+                key(get("http://example.com/?a=1&b=2").header("X-Id", "1").header("accept", "a"))
+        );
+        assertNotEquals(key(get("http://example.com/?a=1&a=2")), key(get("http://example.com/?a=2&a=1")));
+        assertNotEquals(key(get("http://example.com/?a=1&b=2")), key(get("http://example.com/?a=2&b=1")));
+    }
+
+    @Test
+    void onlySelectedHeadersTakePartAndOthersAreNotEvaluated() {
+        AtomicInteger evaluated = new AtomicInteger();
+        config.setDefaultHeader("Authorization", () -> "token-" + evaluated.incrementAndGet());
+        Cache.KeyGenerator keyGen = RequestFingerprint.withHeaders(singletonList("accept"));
+
+        Cache.Key one = keyGen.apply(get("http://example.com/").header("Accept", "a"), false, Object.class);
+        Cache.Key two = keyGen.apply(get("http://example.com/").header("Accept", "a"), false, Object.class);
+        Cache.Key three = keyGen.apply(get("http://example.com/").header("Accept", "b"), false, Object.class);
+
+        assertEquals(one, two);
+        assertNotEquals(one, three);
+        assertEquals(0, evaluated.get());
+    }
+
+    @Test
+    void keysKeepTheRequestTime() {
+        HttpRequestNoBody request = get("http://example.com/");
+
+        assertEquals(request.getCreationTime(), key(request).getTime());
+    }
+
+    private Cache.Key key(HttpRequest request) {
+        return new RequestFingerprint(request, false, Object.class);
+    }
+
+    private HttpRequestNoBody get(String url) {
+        return new HttpRequestNoBody(config, GET, url);
+    }
+
+    private HttpRequestBody post() {
+        return new HttpRequestBody(config, POST, "http://example.com/");
+    }
+}
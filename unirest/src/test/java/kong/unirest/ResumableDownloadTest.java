@@ -0,0 +1,186 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResumableDownloadTest {
+    private static final String ETAG = "\"v1\"";
+    private final List<String> requests = Collections.synchronizedList(new ArrayList<>());
+    private byte[] content;
+    private int drops;
+    private HttpServer server;
+    private UnirestInstance unirest;
+    private Path target;
+    private Path checkpoint;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        content = new byte[300 * 1024 + 11];
+        new Random(7).nextBytes(content);
+        File dir = Files.createTempDirectory("resume").toFile();
+        target = Paths.get(dir.getPath(), "file.bin");
+        checkpoint = Paths.get(target + ResumableDownload.CHECKPOINT);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", this::serve);
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/file";
+        unirest = new UnirestInstance(new Config());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        unirest.shutDown();
+        server.stop(0);
+        Files.deleteIfExists(target);
+        Files.deleteIfExists(checkpoint);
+        Files.deleteIfExists(target.getParent());
+    }
+
+    @Test
+    void resumesFromWhereTheConnectionDropped() throws IOException {
+        drops = 1;
+        List<Long> progress = new ArrayList<>();
+
+        HttpResponse<File> response = unirest.get(url)
+                .downloadMonitor((field, name, bytes, total) -> {
+                    assertEquals(content.length, total.longValue());
+                    progress.add(bytes);
+                })
+                .asFileResumable(target.toString(), 2);
+
+        assertEquals(206, response.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(checkpoint));
+        assertEquals(Arrays.asList("GET", "GET bytes=" + content.length / 2 + "- " + ETAG), requests);
+        assertEquals(content.length, progress.get(progress.size() - 1).longValue());
+    }
+
+    @Test
+    void continuesAPartialFileFromItsCheckpoint() throws IOException {
+        Files.write(target, Arrays.copyOf(content, 1000));
+        Files.write(checkpoint, ETAG.getBytes(StandardCharsets.UTF_8));
+
+        unirest.get(url).asFileResumable(target.toString(), 0);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(Arrays.asList("GET bytes=1000- " + ETAG), requests);
+    }
+
+    @Test
+    void startsAgainWhenTheFileChangedOnTheServer() throws IOException {
+        Files.write(target, new byte[1000]);
+        Files.write(checkpoint, "\"v0\"".getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<File> response = unirest.get(url).asFileResumable(target.toString(), 0);
+
+        assertEquals(200, response.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void aCompleteFileIsLeftAlone() throws IOException {
+        Files.write(target, content);
+        Files.write(checkpoint, ETAG.getBytes(StandardCharsets.UTF_8));
+
+        HttpResponse<File> response = unirest.get(url).asFileResumable(target.toString(), 0);
+
+        assertEquals(416, response.getStatus());
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertFalse(Files.exists(checkpoint));
+    }
+
+    @Test
+    void givesUpAfterTheRetriesAndKeepsWhatItHas() throws IOException {
+        drops = 3;
+
+        assertThrows(UnirestException.class, () -> unirest.get(url).asFileResumable(target.toString(), 2));
+
+        assertEquals(3, requests.size());
+        assertTrue(Files.size(target) > 0);
+        assertEquals(ETAG, new String(Files.readAllBytes(checkpoint), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void downloadsAreNotServedFromTheCache() throws IOException {
+        unirest.config().cacheResponses(true).coalesceRequests(true);
+
+        unirest.get(url).asFileResumable(target.toString(), 0);
+        Files.delete(target);
+        unirest.get(url).asFileResumable(target.toString(), 0);
+
+        assertArrayEquals(content, Files.readAllBytes(target));
+        assertEquals(Arrays.asList("GET", "GET"), requests);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        requests.add("GET" + (range == null ? "" : " " + range + " " + ifRange));
+        exchange.getResponseHeaders().add("ETag", ETAG);
+        int start = range == null || !ETAG.equals(ifRange) ? 0 : Integer.parseInt(range.substring(6, range.length() - 1));
+        if (start >= content.length) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes */" + content.length);
+            exchange.sendResponseHeaders(416, -1);
+            exchange.close();
+            return;
+        }
+        if (start > 0) {
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + (content.length - 1) + "/" + content.length);
+        }
+        exchange.sendResponseHeaders(start > 0 ? 206 : 200, content.length - start);
+        OutputStream out = exchange.getResponseBody();
+        if (drops-- > 0) {
+            out.write(content, start, (content.length - start) / 2);
+            out.flush();
+            throw new IOException("dropped");
+        }
+        out.write(content, start, content.length - start);
+        out.close();
+    }
+}
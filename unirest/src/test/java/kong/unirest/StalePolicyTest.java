@@ -0,0 +1,278 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import static kong.unirest.HttpMethod.GET;
+import static org.junit.jupiter.api.Assertions.*;
+
+class StalePolicyTest {
+    private final Config config = new Config();
+    private final Instant now = Instant.parse("2020-11-10T10:00:00Z");
+    private ScriptedClient origin;
+    private CacheManager manager;
+    private Client client;
+
+    @BeforeEach
+    void setUp() {
+        TestUtil.freeze(now);
+        origin = new ScriptedClient();
+        manager = Cache.builder()
+                .maxAge(1, TimeUnit.MINUTES)
+                .staleWhileRevalidate(1, TimeUnit.MINUTES)
+                .staleIfError(10, TimeUnit.MINUTES)
+                .build();
+        client = manager.wrap(origin);
+        manager.wrapAsync(origin);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TestUtil.reset();
+    }
+
+    @Test
+    void freshEntriesAreServedWithoutTheOrigin() {
+        HttpResponse first = origin.willReturn(200);
+
+        assertSame(first, get());
+        at(59);
+        assertSame(first, get());
+        assertEquals(1, origin.invokes);
+    }
+
+    @Test
+    void staleEntriesAreServedWhileASingleRefreshRunsInTheBackground() {
+        HttpResponse first = origin.willReturn(200);
+        get();
+
+        at(90);
+        assertSame(first, get());
+        assertSame(first, get());
+        assertEquals(1, origin.pending.size());
+
+        HttpResponse second = new Response(200);
+        origin.pending.get(0).complete(second);
+
+        assertSame(second, get());
+        assertEquals(2, origin.invokes);
+    }
+
+    @Test
+    void refreshedEntriesAreKeptPastTheirFirstExpiry() {
+        origin.willReturn(200);
+        get();
+
+        for (int seconds = 100; seconds <= 1500; seconds += 100) {
+            at(seconds);
+            get();
+            HttpResponse refreshed = new Response(200);
+            origin.pending.get(origin.pending.size() - 1).complete(refreshed);
+            assertSame(refreshed, get());
+        }
+        assertEquals(15, origin.pending.size());
+        assertEquals(16, origin.invokes);
+    }
+
+    @Test
+    void aFailedRefreshKeepsTheStaleResponse() {
+        HttpResponse first = origin.willReturn(200);
+        get();
+
+        at(90);
+        get();
+        origin.pending.get(0).complete(new Response(503));
+
+        assertSame(first, get());
+        assertEquals(2, origin.pending.size());
+    }
+
+    @Test
+    void pastTheRevalidateWindowTheOriginIsCalledDirectly() {
+        origin.willReturn(200);
+        HttpResponse second = origin.willReturn(200);
+        get();
+
+        at(150);
+
+        assertSame(second, get());
+        assertSame(second, get());
+        assertEquals(0, origin.pending.size());
+    }
+
+    @Test
+    void serverErrorsServeTheStaleResponseWithinTheErrorWindow() {
+        HttpResponse first = origin.willReturn(200);
+        origin.willReturn(500);
+        get();
+
+        at(300);
+
+        assertSame(first, get());
+    }
+
+    @Test
+    void connectionFailuresServeTheStaleResponseWithinTheErrorWindow() {
+        HttpResponse first = origin.willReturn(200);
+        origin.willThrow(new UnirestException("connection refused"));
+        get();
+
+        at(300);
+
+        assertSame(first, get());
+    }
+
+    @Test
+    void errorsArePassedOnOnceTheErrorWindowHasPassed() {
+        origin.willReturn(200);
+        origin.willThrow(new UnirestException("connection refused"));
+        get();
+
+        at(60 + 601);
+
+        assertThrows(UnirestException.class, this::get);
+    }
+
+    @Test
+    void asyncStaleEntriesAreServedWhileRefreshing() {
+        AsyncClient async = manager.wrapAsync(origin);
+        HttpResponse first = new Response(200);
+        CompletableFuture<HttpResponse<Object>> result = getAsync(async);
+        origin.pending.get(0).complete(first);
+        assertSame(first, result.join());
+
+        at(90);
+        assertSame(first, getAsync(async).join());
+        assertSame(first, getAsync(async).join());
+        assertEquals(2, origin.pending.size());
+
+        HttpResponse second = new Response(200);
+        origin.pending.get(1).complete(second);
+        assertSame(second, getAsync(async).join());
+    }
+
+    @Test
+    void asyncErrorsServeTheStaleResponse() {
+        AsyncClient async = manager.wrapAsync(origin);
+        HttpResponse first = new Response(200);
+        CompletableFuture<HttpResponse<Object>> result = getAsync(async);
+        origin.pending.get(0).complete(first);
+        result.join();
+
+        at(300);
+        CompletableFuture<HttpResponse<Object>> stale = getAsync(async);
+        origin.pending.get(1).completeExceptionally(new UnirestException("boom"));
+
+        assertSame(first, stale.join());
+    }
+
+    private void at(long seconds) {
+        TestUtil.freeze(now.plusSeconds(seconds));
+    }
+
+    private HttpResponse get() {
+        return client.request(new HttpRequestNoBody(config, GET, "/"), null, Object.class);
+    }
+
+    private CompletableFuture<HttpResponse<Object>> getAsync(AsyncClient async) {
+        return async.request(new HttpRequestNoBody(config, GET, "/"), null, new CompletableFuture<>(), Object.class);
+    }
+
+    private static class Response extends MockResponse<Object> {
+        private final int status;
+
+        Response(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+    }
+
+    private static class ScriptedClient implements Client, AsyncClient {
+        private final Queue<Object> script = new LinkedList<>();
+        private final List<CompletableFuture> pending = new ArrayList<>();
+        private int invokes = 0;
+
+        HttpResponse willReturn(int status) {
+            HttpResponse response = new Response(status);
+            script.add(response);
+            return response;
+        }
+
+        void willThrow(RuntimeException e) {
+            script.add(e);
+        }
+
+        @Override
+        public <T> HttpResponse<T> request(HttpRequest request, Function<RawResponse, HttpResponse<T>> transformer) {
+            invokes++;
+            Object next = script.remove();
+            if (next instanceof RuntimeException) {
+                throw (RuntimeException) next;
+            }
+            return (HttpResponse<T>) next;
+        }
+
+        @Override
+        public <T> CompletableFuture<HttpResponse<T>> request(HttpRequest request,
+                                                              Function<RawResponse, HttpResponse<T>> transformer,
+                                                              CompletableFuture<HttpResponse<T>> callback) {
+            invokes++;
+            pending.add(callback);
+            return callback;
+        }
+
+        @Override
+        public Object getClient() {
+            return null;
+        }
+
+        @Override
+        public Stream<Exception> close() {
+            return Stream.empty();
+        }
+
+        @Override
+        public void registerShutdownHook() {
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+    private final List<TimerWheel.Timer> expired = new ArrayList<>();
+    private final TimerWheel wheel = new TimerWheel(0);
+
+    @Test
+    void doesNotExpireTimersBeforeTheirTime() {
+        wheel.schedule(new TimerWheel.Timer(5000));
+
+        wheel.advance(5000, expired::add);
+
+        assertEquals(0, expired.size());
+    }
+
+    @Test
+    void expiresTimersOnceTheirTimeHasPassed() {
+        TimerWheel.Timer timer = new TimerWheel.Timer(5000);
+        wheel.schedule(timer);
+
+        wheel.advance(7000, expired::add);
+
+        assertEquals(asList(timer), expired);
+    }
+
+    @Test
+    void cascadesLongTimersDownTheWheel() {
+        TimerWheel.Timer hour = new TimerWheel.Timer(60 * 60 * 1000);
+        TimerWheel.Timer day = new TimerWheel.Timer(24 * 60 * 60 * 1000);
+        wheel.schedule(hour);
+        wheel.schedule(day);
+
+        for (long t = 0; t <= 60 * 60 * 1000; t += 30_000) {
+            wheel.advance(t, expired::add);
+        }
+        assertEquals(0, expired.size());
+
+        wheel.advance(60 * 60 * 1000 + 2000, expired::add);
+        assertEquals(asList(hour), expired);
+
+        wheel.advance(24 * 60 * 60 * 1000 + 2000, expired::add);
+        assertEquals(asList(hour, day), expired);
+    }
+
+    @Test
+    void descheduledTimersNeverExpire() {
+        TimerWheel.Timer timer = new TimerWheel.Timer(5000);
+        wheel.schedule(timer);
+        wheel.deschedule(timer);
+
+        wheel.advance(10_000, expired::add);
+
+        assertEquals(0, expired.size());
+    }
+
+    @Test
+    void pastDueTimersExpireOnTheNextTick() {
+        wheel.advance(100_000, expired::add);
+        TimerWheel.Timer timer = new TimerWheel.Timer(1000);
+        wheel.schedule(timer);
+
+        wheel.advance(102_000, expired::add);
+
+        assertEquals(asList(timer), expired);
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest;
+
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Many blocking callers of the sync API against a server which takes 20ms to answer.
+ * Compares a pool of 200 platform threads, the usual way to bound blocking callers, with one
+ * virtual thread per caller. Each operation is one batch of callers all waiting on a response,
+ * so the platform pool has to work through a large batch in waves while virtual threads all wait at once.
+ *
+ * The virtual executor needs Java 21 or later; on older JVMs that case fails at setup. Batches are kept to
+ * 2000 because every virtual caller holds its own connection and larger bursts overrun the local accept queue.
+ *
+ * Run with: mvn test-compile exec:java -Dexec.mainClass=kong.unirest.VirtualThreadBenchmark -Dexec.classpathScope=test
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class VirtualThreadBenchmark {
+    private static final int PLATFORM_THREADS = 200;
+    private static final int LATENCY_MILLIS = 20;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"200", "2000"})
+    public int callers;
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private ExecutorService executor;
+    private UnirestInstance unirest;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        // the JDK server closes idle keep-alive connections beyond 200 by default, which the client would then reuse
+        System.setProperty("sun.net.httpserver.maxIdleConnections", "2000");
+        // the server is the same for both cases and should not be what limits them
+        serverThreads = virtualThreadsAvailable() ? virtualThreads() : Executors.newCachedThreadPool();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), callers);
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            sleep();
+            byte[] body = "{\"ok\":true}".getBytes();
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+        unirest = new UnirestInstance(new Config().concurrency(callers, callers));
+        executor = "virtual".equals(threads) ? virtualThreads() : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+        unirest.shutDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Benchmark
+    public int batch() {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>(callers);
+        for (int i = 0; i < callers; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> unirest.get(url).asJson().getStatus(), executor));
+        }
+        int ok = 0;
+        for (CompletableFuture<Integer> call : calls) {
+            ok += call.join() == 200 ? 1 : 0;
+        }
+        return ok;
+    }
+
+    private static boolean virtualThreadsAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    private static ExecutorService virtualThreads() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("virtual threads need Java 21 or later", e);
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(LATENCY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VirtualThreadBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.entity.AbstractHttpEntity;
+import org.apache.http.entity.ContentType;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ChannelRequestExecutorTest {
+    private static final byte[] HEAD = "--head\r\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TAIL = "\r\n--tail".getBytes(StandardCharsets.US_ASCII);
+    private HttpServer server;
+    private CloseableHttpClient client;
+    private File file;
+    private byte[] content;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[9 * 1024 * 1024 + 17];
+        new Random(3).nextBytes(content);
+        file = File.createTempFile("upload", ".bin");
+        Files.write(file.toPath(), content);
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            byte[] body = read(exchange.getRequestBody());
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort() + "/";
+
+        client = HttpClients.custom()
+                .setConnectionManager(new PoolingHttpClientConnectionManager(RegistryBuilder.<ConnectionSocketFactory>create()
+                        .register("http", ChannelSocketFactory.INSTANCE)
+                        .build()))
+                .setRequestExecutor(new ChannelRequestExecutor())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        client.close();
+        server.stop(0);
+        file.delete();
+    }
+
+    @Test
+    void filesAreTransferredToTheSocketBetweenTheRestOfTheBody() throws Exception {
+        List<Long> progress = new ArrayList<>();
+        MonitoringFileBody body = new MonitoringFileBody("f", file, ContentType.APPLICATION_OCTET_STREAM,
+                (field, name, bytes, total) -> progress.add(bytes));
+        Framed entity = new Framed(body, true);
+
+        byte[] echoed = post(entity);
+
+        assertTrue(entity.transferred);
+        assertArrayEquals(expected(), echoed);
+        assertEquals(3, progress.size());
+        assertEquals(content.length, progress.get(2).longValue());
+    }
+
+    @Test
+    void chunkedBodiesAreCopiedAsUsual() throws Exception {
+        MonitoringFileBody body = new MonitoringFileBody("f", file, ContentType.APPLICATION_OCTET_STREAM, null);
+        Framed entity = new Framed(body, false);
+
+        byte[] echoed = post(entity);
+
+        assertFalse(entity.transferred);
+        assertArrayEquals(expected(), echoed);
+    }
+
+    @Test
+    void theConnectionCanBeReusedAfterATransfer() throws Exception {
+        MonitoringFileBody body = new MonitoringFileBody("f", file, ContentType.APPLICATION_OCTET_STREAM, null);
+
+        assertArrayEquals(expected(), post(new Framed(body, true)));
+        assertArrayEquals(expected(), post(new Framed(body, true)));
+    }
+
+    private byte[] post(Framed entity) throws IOException {
+        HttpPost post = new HttpPost(url);
+        post.setEntity(entity);
+        return EntityUtils.toByteArray(client.execute(post).getEntity());
+    }
+
+    private byte[] expected() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(HEAD);
+        out.write(content);
+        out.write(TAIL);
+        return out.toByteArray();
+    }
+
+    private static byte[] read(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int n;
+        while ((n = in.read(buffer)) != -1) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+
+    private class Framed extends AbstractHttpEntity {
+        private final MonitoringFileBody body;
+        private final boolean known;
+        private boolean transferred;
+
+        Framed(MonitoringFileBody body, boolean known) {
+            this.body = body;
+            this.known = known;
+            setChunked(!known);
+        }
+
+        @Override
+        public boolean isRepeatable() {
+            return true;
+        }
+
+        @Override
+        public long getContentLength() {
+            return known ? HEAD.length + content.length + TAIL.length : -1;
+        }
+
+        @Override
+        public InputStream getContent() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void writeTo(OutputStream out) throws IOException {
+            transferred = out instanceof ChannelOutputStream;
+            out.write(HEAD);
+            body.writeTo(out);
+            out.write(TAIL);
+            out.flush();
+        }
+
+        @Override
+        public boolean isStreaming() {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.Config;
+import kong.unirest.PoolStats;
+import kong.unirest.UnirestConfigException;
+import kong.unirest.UnirestInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionLimitsTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private Config config;
+    private UnirestInstance unirest;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            await(release);
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        config = new Config().concurrency(10, 1);
+        unirest = new UnirestInstance(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        unirest.shutDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void hostsCanHaveTheirOwnLimit() throws Exception {
+        config.routeConcurrency("LOCALHOST", 3);
+
+        List<CompletableFuture<Integer>> calls = send(3);
+        awaitStats(s -> s.getLeased() == 3);
+        assertEquals(0, unirest.getPoolStats().getPending());
+        assertEquals(3, route().getMax());
+
+        assertAllOk(calls);
+    }
+
+    @Test
+    void routesTakePrecedenceOverTheirHost() throws Exception {
+        config.routeConcurrency("localhost", 3)
+                .routeConcurrency(url, 2);
+
+        List<CompletableFuture<Integer>> calls = send(3);
+        awaitStats(s -> s.getLeased() == 2 && s.getPending() == 1);
+        assertEquals(2, route().getMax());
+
+        assertAllOk(calls);
+    }
+
+    @Test
+    void poolsCanBeResizedWhileRequestsAreWaiting() throws Exception {
+        List<CompletableFuture<Integer>> calls = send(3);
+        awaitStats(s -> s.getLeased() == 1 && s.getPending() == 2);
+
+        config.concurrency(20, 5);
+
+        PoolStats stats = unirest.getPoolStats();
+        assertEquals(20, stats.getMax());
+        assertEquals(5, route().getMax());
+        assertEquals(1, stats.getLeased());
+
+        assertAllOk(calls);
+        config.routeConcurrency("localhost", 2);
+        assertEquals(2, route().getMax());
+    }
+
+    @Test
+    void adaptiveLimitsGrowWhileRequestsWouldWait() throws Exception {
+        config.adaptiveConcurrency(2);
+
+        List<CompletableFuture<Integer>> calls = send(3);
+        awaitStats(s -> s.getLeased() == 2 && s.getPending() == 1);
+        assertEquals(2, route().getMax());
+
+        assertAllOk(calls);
+    }
+
+    @Test
+    void limitsMustBeSensible() {
+        assertThrows(UnirestConfigException.class, () -> config.routeConcurrency("localhost", 0));
+        assertThrows(UnirestConfigException.class, () -> config.adaptiveConcurrency(-1));
+    }
+
+    @Test
+    void routesAreNormalised() {
+        config.routeConcurrency("HTTPS://Somewhere.com", 5)
+                .routeConcurrency("http://somewhere.com:8080/", 6)
+                .routeConcurrency(" Somewhere.com ", 7);
+
+        assertEquals(5, config.getRouteConcurrency().get("https://somewhere.com:443").intValue());
+        assertEquals(6, config.getRouteConcurrency().get("http://somewhere.com:8080").intValue());
+        assertEquals(7, config.getRouteConcurrency().get("somewhere.com").intValue());
+    }
+
+    private List<CompletableFuture<Integer>> send(int count) {
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> unirest.get(url).asString().getStatus(), serverThreads));
+        }
+        return calls;
+    }
+
+    private void assertAllOk(List<CompletableFuture<Integer>> calls) throws Exception {
+        release.countDown();
+        for (CompletableFuture<Integer> call : calls) {
+            assertEquals(200, call.get(5, TimeUnit.SECONDS).intValue());
+        }
+    }
+
+    private PoolStats route() {
+        return unirest.getPoolStats().getRoutes().get(url);
+    }
+
+    private void awaitStats(Predicate<PoolStats> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (unirest.getPoolStats() == null || !condition.test(unirest.getPoolStats())) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting on the pool: " + unirest.getPoolStats());
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.Config;
+import kong.unirest.HttpResponseSummary;
+import kong.unirest.MetricContext;
+import kong.unirest.PoolStats;
+import kong.unirest.UnirestInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolsTest {
+    private final List<Long> waits = new CopyOnWriteArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private UnirestInstance unirest;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            if (exchange.getRequestURI().getPath().equals("/slow")) {
+                await(release);
+            }
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        unirest = new UnirestInstance(new Config()
+                .concurrency(10, 1)
+                .instrumentWith(request -> new MetricContext() {
+                    @Override
+                    public void complete(HttpResponseSummary httpResponse, Exception ex) {
+                    }
+
+                    @Override
+                    public void connectionLeased(long waitNanos) {
+                        waits.add(waitNanos);
+                    }
+                }));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        unirest.shutDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void noStatsBeforeTheClientIsBuilt() {
+        assertNull(unirest.getPoolStats());
+        assertNull(unirest.getAsyncPoolStats());
+    }
+
+    @Test
+    void statsAreReportedInTotalAndPerRoute() {
+        unirest.get(url + "/fast").asString();
+
+        PoolStats stats = unirest.getPoolStats();
+        assertEquals(0, stats.getLeased());
+        assertEquals(1, stats.getAvailable());
+        assertEquals(0, stats.getPending());
+        assertEquals(10, stats.getMax());
+
+        PoolStats route = stats.getRoutes().get(url);
+        assertEquals(1, route.getAvailable());
+        assertEquals(1, route.getMax());
+        assertTrue(route.getRoutes().isEmpty());
+    }
+
+    @Test
+    void requestsWaitingOnAnExhaustedPoolArePendingAndTheirWaitIsTimed() throws Exception {
+        CompletableFuture<Integer> first = CompletableFuture.supplyAsync(() -> unirest.get(url + "/slow").asString().getStatus());
+        awaitStats(s -> s.getLeased() == 1);
+        CompletableFuture<Integer> second = CompletableFuture.supplyAsync(() -> unirest.get(url + "/fast").asString().getStatus());
+        awaitStats(s -> s.getPending() == 1);
+        assertEquals(1, unirest.getPoolStats().getRoutes().get(url).getPending());
+
+        TimeUnit.MILLISECONDS.sleep(200);
+        release.countDown();
+
+        assertEquals(200, first.get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(200, second.get(5, TimeUnit.SECONDS).intValue());
+        assertEquals(2, waits.size());
+        assertTrue(waits.stream().anyMatch(w -> w >= TimeUnit.MILLISECONDS.toNanos(200)), waits.toString());
+        assertTrue(waits.stream().anyMatch(w -> w < TimeUnit.MILLISECONDS.toNanos(200)), waits.toString());
+    }
+
+    private void awaitStats(Predicate<PoolStats> condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (unirest.getPoolStats() == null || !condition.test(unirest.getPoolStats())) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting on the pool");
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import com.sun.net.httpserver.HttpServer;
+import kong.unirest.Config;
+import kong.unirest.PoolStats;
+import kong.unirest.UnirestException;
+import kong.unirest.UnirestInstance;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionWarmerTest {
+    private final Set<Integer> clientPorts = ConcurrentHashMap.newKeySet();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private UnirestInstance unirest;
+    private ApacheClient client;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            clientPorts.add(exchange.getRemoteAddress().getPort());
+            await(release);
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+        unirest = new UnirestInstance(new Config().concurrency(10, 3));
+        client = (ApacheClient) unirest.config().getClient();
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        unirest.shutDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void warmConnectionsAreLeftAvailableInThePool() throws Exception {
+        client.warmUp(url + "/some/path?q=1", 2).get(5, TimeUnit.SECONDS);
+
+        PoolStats route = client.getPoolStats().getRoutes().get(url);
+        assertEquals(2, route.getAvailable());
+        assertEquals(0, route.getLeased());
+        assertTrue(clientPorts.isEmpty());
+    }
+
+    @Test
+    void warmingIsLimitedByTheRoute() throws Exception {
+        client.warmUp(url, 5).get(5, TimeUnit.SECONDS);
+
+        assertEquals(3, client.getPoolStats().getRoutes().get(url).getAvailable());
+    }
+
+    @Test
+    void requestsLeaseTheWarmConnections() throws Exception {
+        client.warmUp(url, 3).get(5, TimeUnit.SECONDS);
+
+        List<CompletableFuture<Integer>> calls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            calls.add(CompletableFuture.supplyAsync(() -> unirest.get(url).asString().getStatus(), serverThreads));
+        }
+        awaitPorts(3);
+        release.countDown();
+        for (CompletableFuture<Integer> call : calls) {
+            assertEquals(200, call.get(5, TimeUnit.SECONDS).intValue());
+        }
+
+        assertEquals(3, clientPorts.size());
+        assertEquals(3, client.getPoolStats().getAvailable());
+    }
+
+    @Test
+    void warmingFailsWhenTheRouteCannotBeReached() throws Exception {
+        server.stop(0);
+
+        CompletableFuture<Void> warming = client.warmUp(url, 1);
+
+        assertThrows(Exception.class, () -> warming.get(5, TimeUnit.SECONDS));
+        assertEquals(0, client.getPoolStats().getLeased());
+    }
+
+    @Test
+    void warmingNeedsAConnection() {
+        assertThrows(UnirestException.class, () -> unirest.warmUp(0, url));
+    }
+
+    private void awaitPorts(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (clientPorts.size() < count) {
+            assertTrue(System.nanoTime() < deadline, "timed out waiting on requests");
+            TimeUnit.MILLISECONDS.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import org.apache.http.entity.ContentType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MonitoringFileBodyTest {
+    private File file;
+    private byte[] content;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        content = new byte[100_000];
+        new Random(7).nextBytes(content);
+        file = File.createTempFile("upload", ".bin");
+        Files.write(file.toPath(), content);
+    }
+
+    @AfterEach
+    void tearDown() {
+        file.delete();
+    }
+
+    @Test
+    void writesTheWholeFile() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        new MonitoringFileBody("f", file, ContentType.APPLICATION_OCTET_STREAM, null).writeTo(out);
+
+        assertArrayEquals(content, out.toByteArray());
+    }
+
+    @Test
+    void reportsProgressAsItGoes() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicLong reported = new AtomicLong();
+        AtomicLong calls = new AtomicLong();
+
+        new MonitoringFileBody("f", file, ContentType.APPLICATION_OCTET_STREAM, (field, name, bytes, total) -> {
+            assertEquals("f", field);
+            assertEquals(file.getName(), name);
+            assertEquals(content.length, total.longValue());
+            reported.set(bytes);
+            calls.incrementAndGet();
+        }).writeTo(out);
+
+        assertArrayEquals(content, out.toByteArray());
+        assertEquals(content.length, reported.get());
+        assertEquals(7, calls.get());
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ *
+ * Copyright for portions of unirest-java are held by Kong Inc (c) 2013.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package kong.unirest.apache;
+
+import com.sun.net.httpserver.HttpsConfigurator;
+import com.sun.net.httpserver.HttpsServer;
+import kong.unirest.Config;
+import kong.unirest.HttpRequestSummary;
+import kong.unirest.MetricContext;
+import kong.unirest.TestUtil;
+import kong.unirest.UniMetric;
+import kong.unirest.UnirestConfigException;
+import kong.unirest.UnirestInstance;
+import org.apache.http.ssl.SSLContexts;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLSessionContext;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TlsLayerTest {
+    private final List<Boolean> handshakes = new CopyOnWriteArrayList<>();
+    private HttpsServer server;
+    private ExecutorService serverThreads;
+    private Config config;
+    private UnirestInstance unirest;
+    private String url;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = HttpsServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setHttpsConfigurator(new HttpsConfigurator(SSLContexts.custom()
+                .loadKeyMaterial(TestUtil.readStore(), "badssl.com".toCharArray())
+                .build()));
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/", exchange -> {
+            // a new connection, and so a new handshake, for every request
+            exchange.getResponseHeaders().add("Connection", "close");
+            exchange.sendResponseHeaders(200, 2);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write("ok".getBytes());
+            }
+        });
+        server.start();
+        url = "https://localhost:" + server.getAddress().getPort();
+        config = new Config()
+                .verifySsl(false)
+                .instrumentWith(new UniMetric() {
+                    @Override
+                    public MetricContext begin(HttpRequestSummary request) {
+                        return (response, ex) -> {};
+                    }
+
+                    @Override
+                    public void tlsHandshake(String host, boolean resumed) {
+                        handshakes.add(resumed);
+                    }
+                });
+        unirest = new UnirestInstance(config);
+    }
+
+    @AfterEach
+    void tearDown() {
+        unirest.shutDown();
+        server.stop(0);
+        serverThreads.shutdownNow();
+    }
+
+    @Test
+    void laterHandshakesResumeTheSessionOfTheFirst() {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, unirest.get(url).asString().getStatus());
+        }
+
+        assertEquals(Arrays.asList(false, true, true), handshakes);
+    }
+
+    @Test
+    void theClientsOfAConfigShareOneLayer() {
+        assertSame(TlsLayer.of(config), TlsLayer.of(config));
+        assertNotSame(TlsLayer.of(config), TlsLayer.of(new Config().verifySsl(false)));
+    }
+
+    @Test
+    void theLayerIsRebuiltWhenItsSettingsChange() {
+        TlsLayer layer = TlsLayer.of(config);
+
+        config.protocols("TLSv1.2");
+
+        assertNotSame(layer, TlsLayer.of(config));
+    }
+
+    @Test
+    void theSessionCacheOfTheSharedContextCanBeTuned() {
+        config.sslSessionCache(5, Duration.ofMinutes(2));
+
+        SSLSessionContext sessions = TlsLayer.of(config).getContext().getClientSessionContext();
+        assertEquals(5, sessions.getSessionCacheSize());
+        assertEquals(120, sessions.getSessionTimeout());
+    }
+
+    @Test
+    void theSessionCacheCannotBeNegative() {
+        assertThrows(UnirestConfigException.class, () -> config.sslSessionCache(-1, Duration.ZERO));
+        assertThrows(UnirestConfigException.class, () -> config.sslSessionCache(1, Duration.ofSeconds(-1)));
+    }
+}